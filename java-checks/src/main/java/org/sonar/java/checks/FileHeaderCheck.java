@@ -19,23 +19,17 @@
  */
 package org.sonar.java.checks;
 
-import com.google.common.io.Files;
 import org.sonar.api.server.rule.RulesDefinition;
-import org.sonar.api.utils.SonarException;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
 import org.sonar.check.RuleProperty;
-import org.sonar.java.CharsetAwareVisitor;
+import org.sonar.plugins.java.api.FileContent;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.tree.Tree;
 import org.sonar.squidbridge.annotations.SqaleConstantRemediation;
 import org.sonar.squidbridge.annotations.SqaleSubCharacteristic;
 
-import java.io.File;
-import java.io.IOException;
-import java.nio.charset.Charset;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
 
 @Rule(
@@ -45,7 +39,7 @@ import java.util.List;
   priority = Priority.BLOCKER)
 @SqaleSubCharacteristic(RulesDefinition.SubCharacteristics.SECURITY_FEATURES)
 @SqaleConstantRemediation("5min")
-public class FileHeaderCheck extends SubscriptionBaseVisitor implements CharsetAwareVisitor {
+public class FileHeaderCheck extends SubscriptionBaseVisitor {
 
   private static final String DEFAULT_HEADER_FORMAT = "";
 
@@ -56,14 +50,8 @@ public class FileHeaderCheck extends SubscriptionBaseVisitor implements CharsetA
     defaultValue = DEFAULT_HEADER_FORMAT)
   public String headerFormat = DEFAULT_HEADER_FORMAT;
 
-  private Charset charset;
   private String[] expectedLines;
 
-  @Override
-  public void setCharset(Charset charset) {
-    this.charset = charset;
-  }
-
   @Override
   public List<Tree.Kind> nodesToVisit() {
     return Collections.emptyList();
@@ -73,32 +61,19 @@ public class FileHeaderCheck extends SubscriptionBaseVisitor implements CharsetA
   public void scanFile(JavaFileScannerContext context) {
     super.context = context;
     expectedLines = headerFormat.split("(?:\r)?\n|\r");
-    visitFile(context.getFile());
-  }
-
-  public void visitFile(File file) {
-    List<String> lines;
-    try {
-      lines = Files.readLines(file, charset);
-    } catch (IOException e) {
-      throw new SonarException(e);
-    }
-
-    if (!matches(expectedLines, lines)) {
+    if (!matches(expectedLines, context.getFileContent())) {
       addIssueOnFile("Add or update the header of this file.");
     }
   }
 
-  private static boolean matches(String[] expectedLines, List<String> lines) {
+  private static boolean matches(String[] expectedLines, FileContent content) {
     boolean result;
 
-    if (expectedLines.length <= lines.size()) {
+    if (expectedLines.length <= content.linesIgnoringTrailingEmptyLine()) {
       result = true;
 
-      Iterator<String> it = lines.iterator();
       for (int i = 0; i < expectedLines.length; i++) {
-        String line = it.next();
-        if (!line.equals(expectedLines[i])) {
+        if (!content.line(i + 1).equals(expectedLines[i])) {
           result = false;
           break;
         }
@@ -23,6 +23,9 @@ import com.google.common.collect.Sets;
 import org.sonar.api.server.rule.RulesDefinition;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
+import org.sonar.java.incremental.AnalysisCache;
+import org.sonar.java.incremental.AnalysisCacheAware;
+import org.sonar.java.incremental.FileAnalysis;
 import org.sonar.plugins.java.api.JavaFileScanner;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.squidbridge.annotations.SqaleConstantRemediation;
@@ -38,7 +41,7 @@ import java.util.Set;
   priority = Priority.MINOR)
 @SqaleSubCharacteristic(RulesDefinition.SubCharacteristics.UNDERSTANDABILITY)
 @SqaleConstantRemediation("20min")
-public class PackageInfoCheck implements JavaFileScanner {
+public class PackageInfoCheck implements JavaFileScanner, AnalysisCacheAware {
 
   public static final String RULE_KEY = "S1228";
 
@@ -47,11 +50,25 @@ public class PackageInfoCheck implements JavaFileScanner {
 
   @Override
   public void scanFile(JavaFileScannerContext context) {
-    File parentFile = context.getFile().getParentFile();
+    addFile(context.getFile());
+  }
+
+  @Override
+  public void setAnalysisCache(AnalysisCache analysisCache) {
+    // directories are collected from all files, whether they are analyzed or not
+  }
+
+  @Override
+  public void replay(File file, FileAnalysis analysis) {
+    addFile(file);
+  }
+
+  private void addFile(File file) {
+    File parentFile = file.getParentFile();
     if(!directoriesWithPackageFile.contains(parentFile)) {
       directoriesWithoutPackageFile.add(parentFile);
     }
-    if ("package-info.java".equals(context.getFile().getName())) {
+    if ("package-info.java".equals(file.getName())) {
       directoriesWithoutPackageFile.remove(parentFile);
       directoriesWithPackageFile.add(parentFile);
     }
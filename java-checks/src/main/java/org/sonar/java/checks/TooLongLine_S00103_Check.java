@@ -20,13 +20,11 @@
 package org.sonar.java.checks;
 
 import com.google.common.collect.Sets;
-import com.google.common.io.Files;
 import org.sonar.api.server.rule.RulesDefinition;
-import org.sonar.api.utils.SonarException;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
 import org.sonar.check.RuleProperty;
-import org.sonar.java.CharsetAwareVisitor;
+import org.sonar.plugins.java.api.FileContent;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.tree.CompilationUnitTree;
 import org.sonar.plugins.java.api.tree.EmptyStatementTree;
@@ -36,9 +34,6 @@ import org.sonar.plugins.java.api.tree.Tree;
 import org.sonar.squidbridge.annotations.SqaleConstantRemediation;
 import org.sonar.squidbridge.annotations.SqaleSubCharacteristic;
 
-import java.io.File;
-import java.io.IOException;
-import java.nio.charset.Charset;
 import java.text.MessageFormat;
 import java.util.Collections;
 import java.util.List;
@@ -51,7 +46,7 @@ import java.util.Set;
   priority = Priority.MINOR)
 @SqaleSubCharacteristic(RulesDefinition.SubCharacteristics.READABILITY)
 @SqaleConstantRemediation("1min")
-public class TooLongLine_S00103_Check extends SubscriptionBaseVisitor implements CharsetAwareVisitor {
+public class TooLongLine_S00103_Check extends SubscriptionBaseVisitor {
 
   private static final int DEFAULT_MAXIMUM_LINE_LENHGTH = 120;
 
@@ -61,7 +56,6 @@ public class TooLongLine_S00103_Check extends SubscriptionBaseVisitor implements
       defaultValue = "" + DEFAULT_MAXIMUM_LINE_LENHGTH)
   public int maximumLineLength = DEFAULT_MAXIMUM_LINE_LENHGTH;
 
-  private Charset charset;
   private Set<Integer> ignoredLines = Sets.newHashSet();
 
   @Override
@@ -69,18 +63,13 @@ public class TooLongLine_S00103_Check extends SubscriptionBaseVisitor implements
     return Collections.emptyList();
   }
 
-  @Override
-  public void setCharset(Charset charset) {
-    this.charset = charset;
-  }
-
   @Override
   public void scanFile(JavaFileScannerContext context) {
     super.context = context;
     ignoredLines.clear();
     ignoreLines(context.getTree());
     super.scanFile(context);
-    visitFile(context.getFile());
+    visitFile(context.getFileContent());
   }
 
   public void ignoreLines(CompilationUnitTree tree) {
@@ -105,18 +94,12 @@ public class TooLongLine_S00103_Check extends SubscriptionBaseVisitor implements
     return ((EmptyStatementTree) importClauseTree).semicolonToken().line();
   }
 
-  private void visitFile(File file) {
-    List<String> lines;
-    try {
-      lines = Files.readLines(file, charset);
-    } catch (IOException e) {
-      throw new SonarException(e);
-    }
-    for (int i = 0; i < lines.size(); i++) {
-      if (!ignoredLines.contains(i + 1)) {
-        String line = lines.get(i);
-        if (line.length() > maximumLineLength) {
-          addIssue(i + 1, MessageFormat.format("Split this {0} characters long line (which is greater than {1} authorized).", line.length(), maximumLineLength));
+  private void visitFile(FileContent content) {
+    for (int line = 1; line <= content.lines(); line++) {
+      if (!ignoredLines.contains(line)) {
+        int length = content.lineLength(line);
+        if (length > maximumLineLength) {
+          addIssue(line, MessageFormat.format("Split this {0} characters long line (which is greater than {1} authorized).", length, maximumLineLength));
         }
       }
     }
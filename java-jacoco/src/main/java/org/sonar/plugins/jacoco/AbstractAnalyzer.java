@@ -20,7 +20,9 @@
 package org.sonar.plugins.jacoco;
 
 import com.google.common.collect.Lists;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Uninterruptibles;
 import org.apache.commons.lang.StringUtils;
 import org.jacoco.core.analysis.CoverageBuilder;
 import org.jacoco.core.analysis.ICounter;
@@ -41,15 +43,21 @@ import org.sonar.api.test.MutableTestCase;
 import org.sonar.api.test.MutableTestPlan;
 import org.sonar.api.test.MutableTestable;
 import org.sonar.api.test.Testable;
-import org.sonar.java.JavaClasspath;
 import org.sonar.plugins.java.api.JavaResourceLocator;
 
 import java.io.File;
+import java.util.ArrayDeque;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-
-import static com.google.common.collect.Lists.newArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public abstract class AbstractAnalyzer {
 
@@ -58,24 +66,21 @@ public abstract class AbstractAnalyzer {
   private final PathResolver pathResolver;
   private final JavaResourceLocator javaResourceLocator;
   private final boolean readCoveragePerTests;
-
-  private Map<String, File> classFilesCache;
-  private JavaClasspath javaClasspath;
-  private JacocoReportReader jacocoReportReader;
+  private final JacocoCoverageEngine coverageEngine;
 
   public AbstractAnalyzer(ResourcePerspectives perspectives, ModuleFileSystem fileSystem, PathResolver pathResolver,
-    JavaResourceLocator javaResourceLocator, JavaClasspath javaClasspath) {
-    this(perspectives, fileSystem, pathResolver, javaResourceLocator, javaClasspath, true);
+    JavaResourceLocator javaResourceLocator, JacocoCoverageEngine coverageEngine) {
+    this(perspectives, fileSystem, pathResolver, javaResourceLocator, coverageEngine, true);
   }
 
   public AbstractAnalyzer(ResourcePerspectives perspectives, ModuleFileSystem fileSystem,
-    PathResolver pathResolver, JavaResourceLocator javaResourceLocator, JavaClasspath javaClasspath, boolean readCoveragePerTests) {
+    PathResolver pathResolver, JavaResourceLocator javaResourceLocator, JacocoCoverageEngine coverageEngine, boolean readCoveragePerTests) {
     this.perspectives = perspectives;
     this.fileSystem = fileSystem;
     this.pathResolver = pathResolver;
     this.javaResourceLocator = javaResourceLocator;
     this.readCoveragePerTests = readCoveragePerTests;
-    this.javaClasspath = javaClasspath;
+    this.coverageEngine = coverageEngine;
   }
 
   private static String fullyQualifiedClassName(String packageName, String simpleClassName) {
@@ -83,8 +88,10 @@ public abstract class AbstractAnalyzer {
   }
 
   private Resource getResource(ISourceFileCoverage coverage, SensorContext context) {
-    String className = fullyQualifiedClassName(coverage.getPackageName(), coverage.getName());
+    return getResource(fullyQualifiedClassName(coverage.getPackageName(), coverage.getName()), context);
+  }
 
+  private Resource getResource(String className, SensorContext context) {
     Resource resourceInContext = context.getResource(javaResourceLocator.findResourceByClassName(className));
     if (resourceInContext == null) {
       // Do not save measures on resource which doesn't exist in the context
@@ -99,49 +106,37 @@ public abstract class AbstractAnalyzer {
   }
 
   public final void analyse(Project project, SensorContext context) {
-    classFilesCache = Maps.newHashMap();
-    for (File classesDir : javaClasspath.getBinaryDirs()) {
-      populateClassFilesCache(classesDir, "");
-    }
-
-    if (classFilesCache.isEmpty()) {
+    if (!coverageEngine.hasClassFiles()) {
       JaCoCoExtensions.LOG.info("No JaCoCo analysis of project coverage can be done since there is no class files.");
       return;
     }
-    String path = getReportPath(project);
-    File jacocoExecutionData = pathResolver.relativeFile(fileSystem.baseDir(), path);
-
-    readExecutionData(jacocoExecutionData, context);
-
-    classFilesCache = null;
-  }
-
-  private void populateClassFilesCache(File dir, String path) {
-    File[] files = dir.listFiles();
-    if (files == null) {
-      return;
-    }
-    for (File file : files) {
-      if (file.isDirectory()) {
-        populateClassFilesCache(file, path + file.getName() + "/");
-      } else if (file.getName().endsWith(".class")) {
-        String className = path + StringUtils.removeEnd(file.getName(), ".class");
-        classFilesCache.put(className, file);
-      }
-    }
+    readExecutionData(readReport(project), context);
   }
 
-  private void readExecutionData(File jacocoExecutionData, SensorContext context) {
+  /**
+   * @param path path of the report, relative to the base directory of the module
+   */
+  protected final ExecutionDataReport readReport(String path) {
+    File jacocoExecutionData = pathResolver.relativeFile(fileSystem.baseDir(), path);
     if (jacocoExecutionData == null || !jacocoExecutionData.isFile()) {
       JaCoCoExtensions.LOG.info("Project coverage is set to 0% as no JaCoCo execution data has been dumped: {}", jacocoExecutionData);
       jacocoExecutionData = null;
     }
-    ExecutionDataVisitor executionDataVisitor = new ExecutionDataVisitor();
-    jacocoReportReader = new JacocoReportReader(jacocoExecutionData).readJacocoReport(executionDataVisitor, executionDataVisitor);
+    return coverageEngine.report(jacocoExecutionData, readCoveragePerTests);
+  }
 
-    boolean collectedCoveragePerTest = readCoveragePerTests(context, executionDataVisitor);
+  protected final ExecutionDataReport mergeReports(String... paths) {
+    File[] reports = new File[paths.length];
+    for (int i = 0; i < paths.length; i++) {
+      reports[i] = pathResolver.relativeFile(fileSystem.baseDir(), paths[i]);
+    }
+    return coverageEngine.mergedReport(reports);
+  }
 
-    CoverageBuilder coverageBuilder = jacocoReportReader.analyzeFiles(executionDataVisitor.getMerged(), classFilesCache.values());
+  private void readExecutionData(ExecutionDataReport report, SensorContext context) {
+    boolean collectedCoveragePerTest = readCoveragePerTests(context, report);
+
+    CoverageBuilder coverageBuilder = coverageEngine.analyze(report);
     int analyzedResources = 0;
     for (ISourceFileCoverage coverage : coverageBuilder.getSourceFiles()) {
       Resource resource = getResource(coverage, context);
@@ -155,44 +150,80 @@ public abstract class AbstractAnalyzer {
       JaCoCoExtensions.LOG.warn("Coverage information was not collected. Perhaps you forget to include debug information into compiled classes?");
     } else if (collectedCoveragePerTest) {
       JaCoCoExtensions.LOG.info("Information about coverage per test has been collected.");
-    } else if (jacocoExecutionData != null) {
+    } else if (!report.executionData().getContents().isEmpty()) {
       JaCoCoExtensions.LOG.info("No information about coverage per test.");
     }
   }
 
-  private boolean readCoveragePerTests(SensorContext context, ExecutionDataVisitor executionDataVisitor) {
+  /**
+   * Sessions are read and projected on lines of classes by worker threads, at most two sessions per thread ahead of the one
+   * whose coverage is saved, so that the number of sessions kept in memory stays bounded.
+   */
+  private boolean readCoveragePerTests(SensorContext context, final ExecutionDataReport report) {
+    if (!readCoveragePerTests || report.sessionIds().isEmpty()) {
+      return false;
+    }
     boolean collectedCoveragePerTest = false;
-    if (readCoveragePerTests) {
-      for (Map.Entry<String, ExecutionDataStore> entry : executionDataVisitor.getSessions().entrySet()) {
-        if (analyzeLinesCoveredByTests(entry.getKey(), entry.getValue(), context)) {
+    int threads = coverageEngine.threads();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      Iterator<String> sessionIds = report.sessionIds().iterator();
+      Deque<CoverageOfTest> coveragesOfTests = new ArrayDeque<CoverageOfTest>();
+      while (sessionIds.hasNext() || !coveragesOfTests.isEmpty()) {
+        while (sessionIds.hasNext() && coveragesOfTests.size() < 2 * threads) {
+          final String sessionId = sessionIds.next();
+          int i = sessionId.indexOf(' ');
+          Resource testResource = i < 0 ? null : context.getResource(javaResourceLocator.findResourceByClassName(sessionId.substring(0, i)));
+          if (testResource != null) {
+            coveragesOfTests.add(new CoverageOfTest(testResource, sessionId.substring(i + 1), executor.submit(new Callable<Map<String, BitSet>>() {
+              @Override
+              public Map<String, BitSet> call() {
+                return coveredLinesBySourceFile(report.session(sessionId), report.useCurrentBinaryFormat());
+              }
+            })));
+          }
+        }
+        if (!coveragesOfTests.isEmpty() && saveCoverageOfTest(coveragesOfTests.remove(), context)) {
           collectedCoveragePerTest = true;
         }
       }
+    } finally {
+      executor.shutdownNow();
     }
     return collectedCoveragePerTest;
   }
 
-  private boolean analyzeLinesCoveredByTests(String sessionId, ExecutionDataStore executionDataStore, SensorContext context) {
-    int i = sessionId.indexOf(' ');
-    if (i < 0) {
-      return false;
-    }
-    String testClassName = sessionId.substring(0, i);
-    String testName = sessionId.substring(i + 1);
-    Resource testResource = context.getResource(javaResourceLocator.findResourceByClassName(testClassName));
-    if (testResource == null) {
-      // No such test class
-      return false;
+  private Map<String, BitSet> coveredLinesBySourceFile(ExecutionDataStore executionDataStore, boolean useCurrentBinaryFormat) {
+    Map<String, BitSet> coveredLinesBySourceFile = Maps.newHashMap();
+    for (ExecutionData data : executionDataStore.getContents()) {
+      ProbeLines probeLines = coverageEngine.probeLines(data.getName(), useCurrentBinaryFormat);
+      if (probeLines != null && probeLines.classId() == data.getId()) {
+        String className = fullyQualifiedClassName(probeLines.packageName(), probeLines.sourceFileName());
+        BitSet coveredLines = coveredLinesBySourceFile.get(className);
+        if (coveredLines == null) {
+          coveredLines = new BitSet();
+          coveredLinesBySourceFile.put(className, coveredLines);
+        }
+        probeLines.addCoveredLines(data.getProbes(), coveredLines);
+      }
     }
+    return coveredLinesBySourceFile;
+  }
 
+  private boolean saveCoverageOfTest(CoverageOfTest coverageOfTest, SensorContext context) {
+    Map<String, BitSet> coveredLinesBySourceFile;
+    try {
+      coveredLinesBySourceFile = Uninterruptibles.getUninterruptibly(coverageOfTest.coveredLinesBySourceFile);
+    } catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause());
+      throw new IllegalStateException(e.getCause());
+    }
     boolean result = false;
-    CoverageBuilder coverageBuilder = jacocoReportReader.analyzeFiles(executionDataStore, classFilesOfStore(executionDataStore));
-    for (ISourceFileCoverage coverage : coverageBuilder.getSourceFiles()) {
-      Resource resource = getResource(coverage, context);
-      if (resource != null) {
-        CoverageMeasuresBuilder builder = analyzeFile(resource, coverage);
-        List<Integer> coveredLines = getCoveredLines(builder);
-        if (!coveredLines.isEmpty() && addCoverage(resource, testResource, testName, coveredLines)) {
+    for (Map.Entry<String, BitSet> entry : coveredLinesBySourceFile.entrySet()) {
+      BitSet coveredLines = entry.getValue();
+      if (!coveredLines.isEmpty()) {
+        Resource resource = getResource(entry.getKey(), context);
+        if (resource != null && addCoverage(resource, coverageOfTest.testResource, coverageOfTest.testName, toList(coveredLines))) {
           result = true;
         }
       }
@@ -200,26 +231,24 @@ public abstract class AbstractAnalyzer {
     return result;
   }
 
-  private Collection<File> classFilesOfStore(ExecutionDataStore executionDataStore) {
-    Collection<File> result = Lists.newArrayList();
-    for (ExecutionData data : executionDataStore.getContents()) {
-      String vmClassName = data.getName();
-      File classFile = classFilesCache.get(vmClassName);
-      if (classFile != null) {
-        result.add(classFile);
-      }
+  private static class CoverageOfTest {
+    private final Resource testResource;
+    private final String testName;
+    private final Future<Map<String, BitSet>> coveredLinesBySourceFile;
+
+    CoverageOfTest(Resource testResource, String testName, Future<Map<String, BitSet>> coveredLinesBySourceFile) {
+      this.testResource = testResource;
+      this.testName = testName;
+      this.coveredLinesBySourceFile = coveredLinesBySourceFile;
     }
-    return result;
   }
 
-  private List<Integer> getCoveredLines(CoverageMeasuresBuilder builder) {
-    List<Integer> linesCover = newArrayList();
-    for (Map.Entry<Integer, Integer> hitsByLine : builder.getHitsByLine().entrySet()) {
-      if (hitsByLine.getValue() > 0) {
-        linesCover.add(hitsByLine.getKey());
-      }
+  private static List<Integer> toList(BitSet lines) {
+    List<Integer> result = Lists.newArrayListWithCapacity(lines.cardinality());
+    for (int line = lines.nextSetBit(0); line >= 0; line = lines.nextSetBit(line + 1)) {
+      result.add(line);
     }
-    return linesCover;
+    return result;
   }
 
   private boolean addCoverage(Resource resource, Resource testFile, String testName, List<Integer> coveredLines) {
@@ -270,6 +299,9 @@ public abstract class AbstractAnalyzer {
 
   protected abstract void saveMeasures(SensorContext context, Resource resource, Collection<Measure> measures);
 
-  protected abstract String getReportPath(Project project);
+  /**
+   * @return execution data to compute coverage from, see {@link #readReport(String)}
+   */
+  protected abstract ExecutionDataReport readReport(Project project);
 
 }
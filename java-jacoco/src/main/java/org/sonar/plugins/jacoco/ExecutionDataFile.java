@@ -0,0 +1,335 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2010 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.jacoco;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.ExecutionDataWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * JaCoCo execution data file mapped in memory. The file is indexed on opening: blocks are skipped, only offsets of sessions
+ * and of chunks of the file are kept, so that execution data of all sessions is read by chunks in parallel,
+ * and execution data of a session is only read when requested.
+ *
+ * Both versions of JaCoCo binary format are read, as they only differ by the way probes are inserted in classes.
+ */
+class ExecutionDataFile {
+
+  private static final int SEGMENT_BITS = 30;
+  private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+  private static final long CHUNK_SIZE = 16L * 1024 * 1024;
+
+  private final File file;
+  private final MappedByteBuffer[] segments;
+  private final long length;
+  private final long chunkSize;
+  private boolean useCurrentBinaryFormat;
+  private final List<Long> chunkStarts = Lists.newArrayList();
+  private final Map<String, List<long[]>> sessions = Maps.newLinkedHashMap();
+
+  private ExecutionDataFile(File file, MappedByteBuffer[] segments, long length, long chunkSize) {
+    this.file = file;
+    this.segments = segments;
+    this.length = length;
+    this.chunkSize = chunkSize;
+  }
+
+  static ExecutionDataFile open(File file) throws IOException {
+    return open(file, CHUNK_SIZE);
+  }
+
+  /**
+   * @param chunkSize approximate size of the chunks of the file read in parallel
+   */
+  static ExecutionDataFile open(File file, long chunkSize) throws IOException {
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = randomAccessFile.getChannel();
+      long length = channel.size();
+      MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((length + SEGMENT_MASK) >>> SEGMENT_BITS)];
+      for (int i = 0; i < segments.length; i++) {
+        long position = (long) i << SEGMENT_BITS;
+        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(SEGMENT_MASK + 1, length - position));
+      }
+      ExecutionDataFile executionDataFile = new ExecutionDataFile(file, segments, length, chunkSize);
+      executionDataFile.index();
+      return executionDataFile;
+    } finally {
+      randomAccessFile.close();
+    }
+  }
+
+  private void index() throws IOException {
+    Input in = new Input(0, length);
+    if (length == 0 || in.readByte() != ExecutionDataWriter.BLOCK_HEADER) {
+      throw new IOException("Invalid execution data file.");
+    }
+    useCurrentBinaryFormat = readHeader(in) == ExecutionDataWriter.FORMAT_VERSION;
+    chunkStarts.add(0L);
+    long[] session = null;
+    while (in.position < length) {
+      long blockStart = in.position;
+      if (blockStart - chunkStarts.get(chunkStarts.size() - 1) >= chunkSize) {
+        chunkStarts.add(blockStart);
+      }
+      byte type = in.readByte();
+      if (type == ExecutionDataWriter.BLOCK_HEADER) {
+        if ((readHeader(in) == ExecutionDataWriter.FORMAT_VERSION) != useCurrentBinaryFormat) {
+          throw new IOException("Incompatible versions of execution data in the same file.");
+        }
+      } else if (type == ExecutionDataWriter.BLOCK_SESSIONINFO) {
+        if (session != null) {
+          session[1] = blockStart;
+        }
+        String sessionId = in.readUTF();
+        in.skip(16);
+        session = new long[] {in.position, length};
+        List<long[]> sessionSegments = sessions.get(sessionId);
+        if (sessionSegments == null) {
+          sessionSegments = Lists.newArrayListWithCapacity(1);
+          sessions.put(sessionId, sessionSegments);
+        }
+        sessionSegments.add(session);
+      } else if (type == ExecutionDataWriter.BLOCK_EXECUTIONDATA) {
+        in.skip(8);
+        in.skip(in.readUnsignedShort());
+        in.skip((in.readVarInt() + 7) / 8);
+      } else {
+        throw new IOException(String.format("Unknown block type %x.", type));
+      }
+    }
+  }
+
+  private static char readHeader(Input in) throws IOException {
+    if (in.readChar() != ExecutionDataWriter.MAGIC_NUMBER) {
+      throw new IOException("Invalid execution data file.");
+    }
+    char version = in.readChar();
+    if (version != ExecutionDataWriter.FORMAT_VERSION && version != org.jacoco.previous.core.data.ExecutionDataWriter.FORMAT_VERSION) {
+      throw new IOException(String.format("Incompatible version %x.", (int) version));
+    }
+    return version;
+  }
+
+  boolean useCurrentBinaryFormat() {
+    return useCurrentBinaryFormat;
+  }
+
+  /**
+   * @param threads number of threads reading chunks of the file
+   * @return execution data of all sessions
+   */
+  ExecutionDataStore readExecutionData(int threads) throws IOException {
+    ExecutionDataStore executionData = new ExecutionDataStore();
+    if (threads <= 1 || chunkStarts.size() == 1) {
+      read(0, length, executionData);
+      return executionData;
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, chunkStarts.size()));
+    try {
+      List<Future<ExecutionDataStore>> chunks = Lists.newArrayList();
+      for (int i = 0; i < chunkStarts.size(); i++) {
+        final long start = chunkStarts.get(i);
+        final long end = i + 1 < chunkStarts.size() ? chunkStarts.get(i + 1) : length;
+        chunks.add(executor.submit(new Callable<ExecutionDataStore>() {
+          @Override
+          public ExecutionDataStore call() throws IOException {
+            ExecutionDataStore chunk = new ExecutionDataStore();
+            read(start, end, chunk);
+            return chunk;
+          }
+        }));
+      }
+      for (Future<ExecutionDataStore> chunk : chunks) {
+        for (ExecutionData data : Uninterruptibles.getUninterruptibly(chunk).getContents()) {
+          executionData.put(data);
+        }
+      }
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IllegalStateException("Unable to read " + file.getAbsolutePath(), e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+    return executionData;
+  }
+
+  /**
+   * @return identifiers of sessions, in order of their first appearance in the file
+   */
+  Collection<String> sessionIds() {
+    return sessions.keySet();
+  }
+
+  /**
+   * Can be called concurrently.
+   *
+   * @return execution data of the given session, empty if there is no such session
+   */
+  ExecutionDataStore readSession(String sessionId) throws IOException {
+    ExecutionDataStore executionData = new ExecutionDataStore();
+    List<long[]> sessionSegments = sessions.get(sessionId);
+    if (sessionSegments != null) {
+      for (long[] segment : sessionSegments) {
+        read(segment[0], segment[1], executionData);
+      }
+    }
+    return executionData;
+  }
+
+  /**
+   * Reads execution data of all blocks between the given offsets, which are offsets of block starts.
+   */
+  private void read(long start, long end, ExecutionDataStore executionData) throws IOException {
+    Input in = new Input(start, end);
+    while (in.position < end) {
+      byte type = in.readByte();
+      if (type == ExecutionDataWriter.BLOCK_HEADER) {
+        in.skip(4);
+      } else if (type == ExecutionDataWriter.BLOCK_SESSIONINFO) {
+        in.skip(in.readUnsignedShort());
+        in.skip(16);
+      } else {
+        long id = in.readLong();
+        String name = in.readUTF();
+        executionData.put(new ExecutionData(id, name, in.readBooleanArray()));
+      }
+    }
+  }
+
+  /**
+   * Reads data written by {@link ExecutionDataWriter} using absolute reads of mapped segments, so that several inputs
+   * are used concurrently on the same file.
+   */
+  private class Input {
+    private long position;
+    private final long limit;
+
+    Input(long position, long limit) {
+      this.position = position;
+      this.limit = limit;
+    }
+
+    byte readByte() throws IOException {
+      if (position >= limit) {
+        throw new IOException("Unexpected end of execution data file.");
+      }
+      byte result = segments[(int) (position >>> SEGMENT_BITS)].get((int) (position & SEGMENT_MASK));
+      position++;
+      return result;
+    }
+
+    void skip(int n) throws IOException {
+      if (position + n > limit) {
+        throw new IOException("Unexpected end of execution data file.");
+      }
+      position += n;
+    }
+
+    int readUnsignedShort() throws IOException {
+      return ((readByte() & 0xFF) << 8) | (readByte() & 0xFF);
+    }
+
+    char readChar() throws IOException {
+      return (char) readUnsignedShort();
+    }
+
+    long readLong() throws IOException {
+      long result = 0;
+      for (int i = 0; i < 8; i++) {
+        result = (result << 8) | (readByte() & 0xFF);
+      }
+      return result;
+    }
+
+    /**
+     * Reads a string written with {@link java.io.DataOutput#writeUTF(String)}, decoding directly the usual case of ASCII characters.
+     */
+    String readUTF() throws IOException {
+      int utfLength = readUnsignedShort();
+      byte[] bytes = new byte[utfLength + 2];
+      bytes[0] = (byte) (utfLength >>> 8);
+      bytes[1] = (byte) utfLength;
+      boolean ascii = true;
+      for (int i = 2; i < bytes.length; i++) {
+        bytes[i] = readByte();
+        ascii &= bytes[i] > 0;
+      }
+      if (ascii) {
+        char[] chars = new char[utfLength];
+        for (int i = 0; i < utfLength; i++) {
+          chars[i] = (char) bytes[i + 2];
+        }
+        return new String(chars);
+      }
+      return new DataInputStream(new ByteArrayInputStream(bytes)).readUTF();
+    }
+
+    /**
+     * Variable length encoding of {@link org.jacoco.core.internal.data.CompactDataOutput}: 7 bits per byte, least significant bits first.
+     */
+    int readVarInt() throws IOException {
+      int result = 0;
+      int shift = 0;
+      int value;
+      do {
+        value = readByte() & 0xFF;
+        result |= (value & 0x7F) << shift;
+        shift += 7;
+      } while ((value & 0x80) != 0);
+      return result;
+    }
+
+    boolean[] readBooleanArray() throws IOException {
+      boolean[] result = new boolean[readVarInt()];
+      int buffer = 0;
+      for (int i = 0; i < result.length; i++) {
+        if (i % 8 == 0) {
+          buffer = readByte() & 0xFF;
+        }
+        result[i] = (buffer & 0x01) != 0;
+        buffer >>>= 1;
+      }
+      return result;
+    }
+  }
+
+}
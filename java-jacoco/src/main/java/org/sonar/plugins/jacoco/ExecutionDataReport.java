@@ -0,0 +1,108 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2010 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.jacoco;
+
+import com.google.common.base.Preconditions;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.sonar.api.utils.SonarException;
+
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Execution data read from a JaCoCo report, together with the version of the binary format of the report.
+ */
+class ExecutionDataReport {
+
+  private final boolean useCurrentBinaryFormat;
+  private final ExecutionDataStore executionData;
+  @Nullable
+  private final ExecutionDataFile sessionsFile;
+
+  ExecutionDataReport(boolean useCurrentBinaryFormat, ExecutionDataStore executionData) {
+    this(useCurrentBinaryFormat, executionData, null);
+  }
+
+  private ExecutionDataReport(boolean useCurrentBinaryFormat, ExecutionDataStore executionData, @Nullable ExecutionDataFile sessionsFile) {
+    this.useCurrentBinaryFormat = useCurrentBinaryFormat;
+    this.executionData = executionData;
+    this.sessionsFile = sessionsFile;
+  }
+
+  /**
+   * @param report report to read, <tt>null</tt> for a report without execution data
+   * @param readSessions <tt>true</tt> to keep the report mapped in memory, so that execution data of each session can be read
+   * @param threads number of threads reading the report
+   */
+  static ExecutionDataReport read(@Nullable File report, boolean readSessions, int threads) {
+    if (report == null) {
+      return new ExecutionDataReport(true, new ExecutionDataStore());
+    }
+    JaCoCoExtensions.LOG.info("Analysing {}", report);
+    try {
+      ExecutionDataFile executionDataFile = ExecutionDataFile.open(report);
+      if (!executionDataFile.useCurrentBinaryFormat()) {
+        JaCoCoExtensions.LOG.warn("You are not using the latest JaCoCo binary format version, please consider upgrading to latest JaCoCo version.");
+      }
+      return new ExecutionDataReport(executionDataFile.useCurrentBinaryFormat(), executionDataFile.readExecutionData(threads), readSessions ? executionDataFile : null);
+    } catch (IOException e) {
+      throw new SonarException(String.format("Unable to read %s", report.getAbsolutePath()), e);
+    }
+  }
+
+  boolean useCurrentBinaryFormat() {
+    return useCurrentBinaryFormat;
+  }
+
+  /**
+   * @return execution data of all sessions
+   */
+  ExecutionDataStore executionData() {
+    return executionData;
+  }
+
+  /**
+   * @return identifiers of sessions, empty if sessions were not read
+   */
+  Collection<String> sessionIds() {
+    return sessionsFile == null ? Collections.<String>emptyList() : sessionsFile.sessionIds();
+  }
+
+  /**
+   * Can be called concurrently.
+   */
+  ExecutionDataStore session(String sessionId) {
+    Preconditions.checkState(sessionsFile != null, "Sessions were not read");
+    try {
+      return sessionsFile.readSession(sessionId);
+    } catch (IOException e) {
+      throw new SonarException("Unable to read session " + sessionId, e);
+    }
+  }
+
+  ExecutionDataReport withoutSessions() {
+    return sessionsFile == null ? this : new ExecutionDataReport(useCurrentBinaryFormat, executionData);
+  }
+
+}
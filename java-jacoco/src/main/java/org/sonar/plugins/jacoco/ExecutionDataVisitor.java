@@ -59,7 +59,7 @@ public class ExecutionDataVisitor implements ISessionInfoVisitor, IExecutionData
     return merged;
   }
 
-  private static ExecutionData defensiveCopy(ExecutionData data) {
+  static ExecutionData defensiveCopy(ExecutionData data) {
     boolean[] src = data.getProbes();
     boolean[] dest = new boolean[src.length];
     System.arraycopy(src, 0, dest, 0, src.length);
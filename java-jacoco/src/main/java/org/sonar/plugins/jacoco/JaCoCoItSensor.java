@@ -28,7 +28,6 @@ import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
 import org.sonar.api.scan.filesystem.ModuleFileSystem;
 import org.sonar.api.scan.filesystem.PathResolver;
-import org.sonar.java.JavaClasspath;
 import org.sonar.plugins.java.api.JavaResourceLocator;
 
 import java.io.File;
@@ -40,16 +39,16 @@ public class JaCoCoItSensor implements Sensor {
   private final ModuleFileSystem fileSystem;
   private final PathResolver pathResolver;
   private final JavaResourceLocator javaResourceLocator;
-  private final JavaClasspath javaClasspath;
+  private final JacocoCoverageEngine coverageEngine;
 
   public JaCoCoItSensor(JacocoConfiguration configuration, ResourcePerspectives perspectives, ModuleFileSystem fileSystem, PathResolver pathResolver,
-                        JavaResourceLocator javaResourceLocator, JavaClasspath javaClasspath) {
+                        JavaResourceLocator javaResourceLocator, JacocoCoverageEngine coverageEngine) {
     this.configuration = configuration;
     this.perspectives = perspectives;
     this.fileSystem = fileSystem;
     this.pathResolver = pathResolver;
     this.javaResourceLocator = javaResourceLocator;
-    this.javaClasspath = javaClasspath;
+    this.coverageEngine = coverageEngine;
   }
 
   @Override
@@ -70,12 +69,12 @@ public class JaCoCoItSensor implements Sensor {
 
   class ITAnalyzer extends AbstractAnalyzer {
     public ITAnalyzer(ResourcePerspectives perspectives) {
-      super(perspectives, fileSystem, pathResolver, javaResourceLocator, javaClasspath);
+      super(perspectives, fileSystem, pathResolver, javaResourceLocator, coverageEngine);
     }
 
     @Override
-    protected String getReportPath(Project project) {
-      return configuration.getItReportPath();
+    protected ExecutionDataReport readReport(Project project) {
+      return readReport(configuration.getItReportPath());
     }
 
     @Override
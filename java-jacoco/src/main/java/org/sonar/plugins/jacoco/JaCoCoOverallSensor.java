@@ -28,7 +28,6 @@ import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
 import org.sonar.api.scan.filesystem.ModuleFileSystem;
 import org.sonar.api.scan.filesystem.PathResolver;
-import org.sonar.java.JavaClasspath;
 import org.sonar.plugins.java.api.JavaResourceLocator;
 
 import java.io.File;
@@ -36,6 +35,10 @@ import java.util.Collection;
 
 public class JaCoCoOverallSensor implements Sensor {
 
+  /**
+   * @deprecated since 3.4, execution data of unit and integration tests is merged in memory and no longer written to this file
+   */
+  @Deprecated
   public static final String JACOCO_OVERALL = "jacoco-overall.exec";
 
   private final JacocoConfiguration configuration;
@@ -43,16 +46,16 @@ public class JaCoCoOverallSensor implements Sensor {
   private final ModuleFileSystem fileSystem;
   private final PathResolver pathResolver;
   private final JavaResourceLocator javaResourceLocator;
-  private final JavaClasspath javaClasspath;
+  private final JacocoCoverageEngine coverageEngine;
 
   public JaCoCoOverallSensor(JacocoConfiguration configuration, ResourcePerspectives perspectives, ModuleFileSystem fileSystem, PathResolver pathResolver,
-                             JavaResourceLocator javaResourceLocator, JavaClasspath javaClasspath) {
+                             JavaResourceLocator javaResourceLocator, JacocoCoverageEngine coverageEngine) {
     this.configuration = configuration;
     this.perspectives = perspectives;
     this.fileSystem = fileSystem;
     this.pathResolver = pathResolver;
     this.javaResourceLocator = javaResourceLocator;
-    this.javaClasspath = javaClasspath;
+    this.coverageEngine = coverageEngine;
   }
 
   @Override
@@ -69,28 +72,21 @@ public class JaCoCoOverallSensor implements Sensor {
 
   @Override
   public void analyse(Project project, SensorContext context) {
-    File reportUTs = pathResolver.relativeFile(fileSystem.baseDir(), configuration.getReportPath());
-    File reportITs = pathResolver.relativeFile(fileSystem.baseDir(), configuration.getItReportPath());
-
-    File reportOverall = new File(fileSystem.workingDir(), JACOCO_OVERALL);
-    reportOverall.getParentFile().mkdirs();
-
-    JaCoCoReportMerger.mergeReports(reportOverall, reportUTs, reportITs);
-
-    new OverallAnalyzer(reportOverall, perspectives).analyse(project, context);
+    new OverallAnalyzer(perspectives).analyse(project, context);
   }
 
+  /**
+   * Execution data of unit and integration tests is merged in memory.
+   */
   class OverallAnalyzer extends AbstractAnalyzer {
-    private final File report;
 
-    OverallAnalyzer(File report, ResourcePerspectives perspectives) {
-      super(perspectives, fileSystem, pathResolver, javaResourceLocator, javaClasspath, false);
-      this.report = report;
+    OverallAnalyzer(ResourcePerspectives perspectives) {
+      super(perspectives, fileSystem, pathResolver, javaResourceLocator, coverageEngine, false);
     }
 
     @Override
-    protected String getReportPath(Project project) {
-      return report.getAbsolutePath();
+    protected ExecutionDataReport readReport(Project project) {
+      return mergeReports(configuration.getReportPath(), configuration.getItReportPath());
     }
 
     @Override
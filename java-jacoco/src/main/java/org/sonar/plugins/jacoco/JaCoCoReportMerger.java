@@ -20,17 +20,10 @@
 package org.sonar.plugins.jacoco;
 
 import org.apache.commons.lang.BooleanUtils;
+import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.data.ExecutionDataStore;
-import org.jacoco.core.data.ExecutionDataWriter;
-import org.jacoco.core.data.IExecutionDataVisitor;
-import org.jacoco.core.data.ISessionInfoVisitor;
-import org.jacoco.core.data.SessionInfoStore;
-import org.sonar.api.utils.SonarException;
 
-import java.io.BufferedOutputStream;
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
+import java.util.List;
 
 /**
  * Utility class to merge JaCoCo reports.
@@ -43,43 +36,24 @@ public class JaCoCoReportMerger {
   }
 
   /**
-   * Merge all reports in reportOverall.
-   * @param reportOverall destination file of merge.
-   * @param reports files to be merged.
+   * Merges execution data of reports in memory: a probe of a class is hit in the merged data if it is hit in any of the reports.
+   * @param reports reports to be merged, which are left unchanged.
+   * @throws IllegalStateException if reports use different versions of JaCoCo binary format.
    */
-  public static void mergeReports(File reportOverall, File... reports) {
-    SessionInfoStore infoStore = new SessionInfoStore();
-    ExecutionDataStore dataStore = new ExecutionDataStore();
-    boolean isCurrentVersionFormat = loadSourceFiles(infoStore, dataStore, reports);
-
-    try (BufferedOutputStream outputStream = new BufferedOutputStream(new FileOutputStream(reportOverall))) {
-      Object visitor;
-      if (isCurrentVersionFormat) {
-        visitor = new ExecutionDataWriter(outputStream);
-      } else {
-        visitor = new org.jacoco.previous.core.data.ExecutionDataWriter(outputStream);
-      }
-      infoStore.accept((ISessionInfoVisitor) visitor);
-      dataStore.accept((IExecutionDataVisitor) visitor);
-    } catch (IOException e) {
-      throw new SonarException(String.format("Unable to write overall coverage report %s", reportOverall.getAbsolutePath()), e);
-    }
-  }
-
-  private static boolean loadSourceFiles(ISessionInfoVisitor infoStore, IExecutionDataVisitor dataStore, File... reports) {
+  static ExecutionDataReport mergeReports(List<ExecutionDataReport> reports) {
     Boolean isCurrentVersionFormat = null;
-    for (File report : reports) {
-      if (report.isFile()) {
-        JacocoReportReader jacocoReportReader = new JacocoReportReader(report).readJacocoReport(dataStore, infoStore);
-        boolean reportFormatIsCurrent = jacocoReportReader.useCurrentBinaryFormat();
-        if (isCurrentVersionFormat == null) {
-          isCurrentVersionFormat = reportFormatIsCurrent;
-        } else if (!isCurrentVersionFormat.equals(reportFormatIsCurrent)) {
-          throw new IllegalStateException("You are trying to merge two different JaCoCo binary formats. Please use only one version of JaCoCo.");
-        }
+    ExecutionDataStore executionData = new ExecutionDataStore();
+    for (ExecutionDataReport report : reports) {
+      if (isCurrentVersionFormat == null) {
+        isCurrentVersionFormat = report.useCurrentBinaryFormat();
+      } else if (isCurrentVersionFormat != report.useCurrentBinaryFormat()) {
+        throw new IllegalStateException("You are trying to merge two different JaCoCo binary formats. Please use only one version of JaCoCo.");
+      }
+      for (ExecutionData data : report.executionData().getContents()) {
+        executionData.put(ExecutionDataVisitor.defensiveCopy(data));
       }
     }
-    return BooleanUtils.isNotFalse(isCurrentVersionFormat);
+    return new ExecutionDataReport(BooleanUtils.isNotFalse(isCurrentVersionFormat), executionData);
   }
 
 }
@@ -0,0 +1,248 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2010 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.jacoco;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import org.apache.commons.lang.StringUtils;
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.internal.data.CRC64;
+import org.sonar.api.BatchExtension;
+import org.sonar.java.JavaClasspath;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Coverage of the class files of a module, shared by JaCoCo sensors: class files are indexed once, each report is read once,
+ * and a class file is analyzed again only for execution data of the class which differs from the ones it was already analyzed with.
+ */
+public class JacocoCoverageEngine implements BatchExtension {
+
+  private final JavaClasspath javaClasspath;
+  private final int threads;
+  private Map<String, AnalyzedClass> classes;
+  private final Map<File, ExecutionDataReport> reports = Maps.newHashMap();
+  private final Map<String, ProbeLines> currentProbeLines = Maps.newHashMap();
+  private final Map<String, ProbeLines> previousProbeLines = Maps.newHashMap();
+
+  public JacocoCoverageEngine(JavaClasspath javaClasspath, JacocoConfiguration configuration) {
+    this.javaClasspath = javaClasspath;
+    this.threads = configuration.getThreads();
+  }
+
+  /**
+   * @return <tt>true</tt> if binary directories of the module contain class files
+   */
+  boolean hasClassFiles() {
+    return !classes().isEmpty();
+  }
+
+  private Map<String, AnalyzedClass> classes() {
+    if (classes == null) {
+      classes = Maps.newHashMap();
+      for (File classesDir : javaClasspath.getBinaryDirs()) {
+        indexClassFiles(classesDir, "");
+      }
+    }
+    return classes;
+  }
+
+  private void indexClassFiles(File dir, String path) {
+    File[] files = dir.listFiles();
+    if (files == null) {
+      return;
+    }
+    for (File file : files) {
+      if (file.isDirectory()) {
+        indexClassFiles(file, path + file.getName() + "/");
+      } else if (file.getName().endsWith(".class")) {
+        String className = path + StringUtils.removeEnd(file.getName(), ".class");
+        classes.put(className, new AnalyzedClass(className, file));
+      }
+    }
+  }
+
+  /**
+   * Execution data of reports is kept for the whole analysis of the module, while sessions are read from the returned report.
+   *
+   * @param report report to read, <tt>null</tt> for a report without execution data
+   * @param readSessions <tt>true</tt> to read execution data of each session
+   */
+  ExecutionDataReport report(@Nullable File report, boolean readSessions) {
+    if (report == null) {
+      return ExecutionDataReport.read(null, false, threads);
+    }
+    File key = report.getAbsoluteFile();
+    ExecutionDataReport result = reports.get(key);
+    if (result == null || readSessions) {
+      result = ExecutionDataReport.read(report, readSessions, threads);
+      reports.put(key, result.withoutSessions());
+    }
+    return result;
+  }
+
+  /**
+   * @param reportFiles reports to merge, those which do not exist are ignored
+   * @return execution data of all reports
+   */
+  ExecutionDataReport mergedReport(File... reportFiles) {
+    List<ExecutionDataReport> toMerge = Lists.newArrayList();
+    for (File reportFile : reportFiles) {
+      if (reportFile.isFile()) {
+        toMerge.add(report(reportFile, false));
+      }
+    }
+    return toMerge.size() == 1 ? toMerge.get(0) : JaCoCoReportMerger.mergeReports(toMerge);
+  }
+
+  /**
+   * @return coverage of all class files of the module according to the execution data of the given report
+   */
+  CoverageBuilder analyze(ExecutionDataReport report) {
+    CoverageBuilder coverageBuilder = new CoverageBuilder();
+    for (AnalyzedClass analyzedClass : classes().values()) {
+      IClassCoverage classCoverage = analyzedClass.coverage(report.executionData(), report.useCurrentBinaryFormat());
+      if (classCoverage != null) {
+        coverageBuilder.visitCoverage(classCoverage);
+      }
+    }
+    return coverageBuilder;
+  }
+
+  /**
+   * @return number of threads used to read reports and compute coverage per test
+   */
+  int threads() {
+    return threads;
+  }
+
+  /**
+   * Lines covered by probes of a class are computed on first execution of the class by a test, then reused for all other tests.
+   * Can be called concurrently.
+   *
+   * @param vmClassName name of the class, for instance <tt>org/example/App$Inner</tt>
+   * @return lines covered by each probe of the class, <tt>null</tt> if there is no such class file or its lines can not be determined
+   */
+  @CheckForNull
+  ProbeLines probeLines(String vmClassName, boolean useCurrentBinaryFormat) {
+    Map<String, ProbeLines> cache = useCurrentBinaryFormat ? currentProbeLines : previousProbeLines;
+    AnalyzedClass analyzedClass;
+    synchronized (cache) {
+      if (cache.containsKey(vmClassName)) {
+        return cache.get(vmClassName);
+      }
+      analyzedClass = classes().get(vmClassName);
+    }
+    // class may be analyzed concurrently by several threads, which compute the same lines
+    byte[] classBytes = analyzedClass == null ? null : analyzedClass.readBytes();
+    ProbeLines probeLines = classBytes == null ? null : ProbeLines.analyze(classBytes, useCurrentBinaryFormat);
+    synchronized (cache) {
+      cache.put(vmClassName, probeLines);
+    }
+    return probeLines;
+  }
+
+  private static class AnalyzedClass {
+    private final String name;
+    private final File classFile;
+    private boolean read = false;
+    private long classId;
+    private List<Analysis> analyses = Collections.emptyList();
+
+    AnalyzedClass(String name, File classFile) {
+      this.name = name;
+      this.classFile = classFile;
+    }
+
+    /**
+     * Execution data is looked up the way {@link org.jacoco.core.analysis.Analyzer} does, so that the result of a previous analysis
+     * is reused when the class has the same execution data.
+     */
+    @CheckForNull
+    IClassCoverage coverage(ExecutionDataStore executionDataStore, boolean useCurrentBinaryFormat) {
+      byte[] classBytes = null;
+      if (!read) {
+        classBytes = readBytes();
+        if (classBytes == null) {
+          return null;
+        }
+        classId = CRC64.checksum(classBytes);
+        read = true;
+      }
+      ExecutionData data = executionDataStore.get(classId);
+      boolean[] probes = data == null ? null : data.getProbes();
+      boolean noMatch = data == null && executionDataStore.contains(name);
+      for (Analysis analysis : analyses) {
+        if (analysis.useCurrentBinaryFormat == useCurrentBinaryFormat && analysis.noMatch == noMatch && Arrays.equals(analysis.probes, probes)) {
+          return analysis.coverage;
+        }
+      }
+      if (classBytes == null) {
+        classBytes = readBytes();
+        if (classBytes == null) {
+          return null;
+        }
+      }
+      IClassCoverage coverage = JacocoReportReader.analyzeClass(classBytes, classFile.getPath(), executionDataStore, useCurrentBinaryFormat);
+      if (analyses.isEmpty()) {
+        analyses = Lists.newArrayListWithCapacity(2);
+      }
+      analyses.add(new Analysis(useCurrentBinaryFormat, probes == null ? null : probes.clone(), noMatch, coverage));
+      return coverage;
+    }
+
+    @CheckForNull
+    byte[] readBytes() {
+      try {
+        return Files.toByteArray(classFile);
+      } catch (IOException e) {
+        JaCoCoExtensions.LOG.warn("Exception during analysis of file " + classFile.getAbsolutePath(), e);
+        return null;
+      }
+    }
+  }
+
+  private static class Analysis {
+    private final boolean useCurrentBinaryFormat;
+    private final boolean[] probes;
+    private final boolean noMatch;
+    private final IClassCoverage coverage;
+
+    Analysis(boolean useCurrentBinaryFormat, @Nullable boolean[] probes, boolean noMatch, @Nullable IClassCoverage coverage) {
+      this.useCurrentBinaryFormat = useCurrentBinaryFormat;
+      this.probes = probes;
+      this.noMatch = noMatch;
+      this.coverage = coverage;
+    }
+  }
+
+}
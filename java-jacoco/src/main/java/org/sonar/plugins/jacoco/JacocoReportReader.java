@@ -21,7 +21,8 @@ package org.sonar.plugins.jacoco;
 
 import com.google.common.base.Preconditions;
 import org.jacoco.core.analysis.Analyzer;
-import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICoverageVisitor;
 import org.jacoco.core.data.ExecutionDataReader;
 import org.jacoco.core.data.ExecutionDataStore;
 import org.jacoco.core.data.ExecutionDataWriter;
@@ -29,6 +30,7 @@ import org.jacoco.core.data.IExecutionDataVisitor;
 import org.jacoco.core.data.ISessionInfoVisitor;
 import org.sonar.api.utils.SonarException;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 
 import java.io.BufferedInputStream;
@@ -37,7 +39,6 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Collection;
 
 public class JacocoReportReader {
 
@@ -105,43 +106,29 @@ public class JacocoReportReader {
   }
 
   /**
-   * Caller must guarantee that {@code classFiles} are actually class file.
+   * @param location location of the class file, used in messages
+   * @return coverage of the class according to the given execution data, <tt>null</tt> if the class can not be analyzed
    */
-  public CoverageBuilder analyzeFiles(ExecutionDataStore executionDataStore, Collection<File> classFiles) {
-    CoverageBuilder coverageBuilder = new CoverageBuilder();
-    if (useCurrentBinaryFormat) {
-      Analyzer analyzer = new Analyzer(executionDataStore, coverageBuilder);
-      for (File classFile : classFiles) {
-        analyzeClassFile(analyzer, classFile);
+  @CheckForNull
+  static IClassCoverage analyzeClass(byte[] classBytes, String location, ExecutionDataStore executionDataStore, boolean useCurrentBinaryFormat) {
+    final IClassCoverage[] result = new IClassCoverage[1];
+    ICoverageVisitor coverageVisitor = new ICoverageVisitor() {
+      @Override
+      public void visitCoverage(IClassCoverage coverage) {
+        result[0] = coverage;
       }
-    } else {
-      org.jacoco.previous.core.analysis.Analyzer analyzer = new org.jacoco.previous.core.analysis.Analyzer(executionDataStore, coverageBuilder);
-      for (File classFile : classFiles) {
-        analyzeClassFile(analyzer, classFile);
+    };
+    try {
+      if (useCurrentBinaryFormat) {
+        new Analyzer(executionDataStore, coverageVisitor).analyzeClass(classBytes, location);
+      } else {
+        new org.jacoco.previous.core.analysis.Analyzer(executionDataStore, coverageVisitor).analyzeClass(classBytes, location);
       }
-    }
-    return coverageBuilder;
-  }
-
-  /**
-   * Caller must guarantee that {@code classFile} is actually class file.
-   */
-  private static void analyzeClassFile(org.jacoco.previous.core.analysis.Analyzer analyzer, File classFile) {
-    try (InputStream inputStream = new FileInputStream(classFile)) {
-      analyzer.analyzeClass(inputStream, classFile.getPath());
-    } catch (IOException e) {
-      // (Godin): in fact JaCoCo includes name into exception
-      JaCoCoExtensions.LOG.warn("Exception during analysis of file " + classFile.getAbsolutePath(), e);
-    }
-  }
-
-  private static void analyzeClassFile(Analyzer analyzer, File classFile) {
-    try (InputStream inputStream = new FileInputStream(classFile)) {
-      analyzer.analyzeClass(inputStream, classFile.getPath());
     } catch (IOException e) {
       // (Godin): in fact JaCoCo includes name into exception
-      JaCoCoExtensions.LOG.warn("Exception during analysis of file " + classFile.getAbsolutePath(), e);
+      JaCoCoExtensions.LOG.warn("Exception during analysis of file " + location, e);
     }
+    return result[0];
   }
 
 }
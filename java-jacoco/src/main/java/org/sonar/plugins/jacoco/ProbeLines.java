@@ -0,0 +1,473 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2010 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.jacoco;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.jacoco.core.analysis.ISourceNode;
+import org.jacoco.core.internal.data.CRC64;
+import org.jacoco.core.internal.flow.ClassProbesAdapter;
+import org.jacoco.core.internal.flow.ClassProbesVisitor;
+import org.jacoco.core.internal.flow.IFrame;
+import org.jacoco.core.internal.flow.LabelInfo;
+import org.jacoco.core.internal.flow.MethodProbesVisitor;
+import org.jacoco.core.internal.instr.InstrSupport;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import javax.annotation.CheckForNull;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lines of a class covered by each of its probes, so that lines covered by a test are obtained from the probes hit during the test,
+ * without analyzing the class again for each test.
+ */
+class ProbeLines {
+
+  private static final int[] NO_LINES = new int[0];
+
+  private final long classId;
+  private final String packageName;
+  private final String sourceFileName;
+  private final int[][] linesByProbe;
+
+  private ProbeLines(long classId, String packageName, String sourceFileName, int[][] linesByProbe) {
+    this.classId = classId;
+    this.packageName = packageName;
+    this.sourceFileName = sourceFileName;
+    this.linesByProbe = linesByProbe;
+  }
+
+  long classId() {
+    return classId;
+  }
+
+  String packageName() {
+    return packageName;
+  }
+
+  String sourceFileName() {
+    return sourceFileName;
+  }
+
+  /**
+   * Adds to the given set the lines covered by the probes hit in an execution of this class.
+   */
+  void addCoveredLines(boolean[] probes, BitSet lines) {
+    int length = Math.min(probes.length, linesByProbe.length);
+    for (int probeId = 0; probeId < length; probeId++) {
+      if (probes[probeId]) {
+        for (int line : linesByProbe[probeId]) {
+          lines.set(line);
+        }
+      }
+    }
+  }
+
+  /**
+   * The class is read once, building for each method the instruction graph JaCoCo analyzes: a hit probe covers the instruction it is
+   * attached to and its predecessors, so the lines of a probe are the lines of the instructions on this chain.
+   *
+   * @param useCurrentBinaryFormat <tt>false</tt> to analyze the class as the previous version of JaCoCo did
+   * @return lines covered by each probe, <tt>null</tt> if the class has no probes, no source file or can not be analyzed
+   */
+  @CheckForNull
+  static ProbeLines analyze(byte[] classBytes, boolean useCurrentBinaryFormat) {
+    ClassReader reader = new ClassReader(classBytes);
+    ClassLines classLines = new ClassLines(reader.getClassName());
+    try {
+      if (useCurrentBinaryFormat) {
+        reader.accept(new ClassProbesAdapter(new CurrentClassVisitor(classLines), false), 0);
+      } else {
+        reader.accept(new org.jacoco.previous.core.internal.flow.ClassProbesAdapter(new PreviousClassVisitor(classLines), false), 0);
+      }
+    } catch (IllegalStateException e) {
+      JaCoCoExtensions.LOG.warn("Exception during analysis of class " + classLines.className, e);
+      return null;
+    }
+    if (classLines.totalProbes == 0 || classLines.sourceFileName == null) {
+      return null;
+    }
+    int[][] linesByProbe = new int[classLines.totalProbes][];
+    Arrays.fill(linesByProbe, NO_LINES);
+    for (Map.Entry<Integer, int[]> entry : classLines.linesByProbe.entrySet()) {
+      linesByProbe[entry.getKey()] = entry.getValue();
+    }
+    return new ProbeLines(CRC64.checksum(classBytes), classLines.packageName(), classLines.sourceFileName, linesByProbe);
+  }
+
+  private static class ClassLines {
+    private final String className;
+    private final Map<Integer, int[]> linesByProbe = Maps.newHashMap();
+    private String sourceFileName;
+    private int totalProbes;
+
+    ClassLines(String className) {
+      this.className = className;
+    }
+
+    String packageName() {
+      int index = className.lastIndexOf('/');
+      return index == -1 ? "" : className.substring(0, index);
+    }
+
+    /**
+     * Same as the analyzers of both versions of JaCoCo, which do not report coverage of synthetic methods.
+     */
+    static boolean isFiltered(int access, String name) {
+      return (access & Opcodes.ACC_SYNTHETIC) != 0 && !name.startsWith("lambda$");
+    }
+  }
+
+  private static class Instruction {
+    private final int line;
+    private Instruction predecessor;
+    private int walk;
+
+    Instruction(int line) {
+      this.line = line;
+    }
+  }
+
+  /**
+   * Links instructions of a method to their predecessor as the method analyzer of JaCoCo does, which is the same in both versions:
+   * the previous instruction unless the flow can not reach it sequentially, overridden by the source of the last jump to its label.
+   */
+  private static class MethodGraph extends MethodVisitor {
+    private final Map<Integer, int[]> linesByProbe;
+    private final Map<Label, Instruction> instructionByLabel = Maps.newHashMap();
+    private final List<Label> currentLabels = Lists.newArrayList();
+    private final List<Instruction> jumpSources = Lists.newArrayList();
+    private final List<Label> jumpTargets = Lists.newArrayList();
+    private final Map<Integer, Instruction> instructionByProbe = Maps.newHashMap();
+    private int currentLine = ISourceNode.UNKNOWN_LINE;
+    private Instruction lastInstruction;
+
+    MethodGraph(Map<Integer, int[]> linesByProbe) {
+      super(Opcodes.ASM5);
+      this.linesByProbe = linesByProbe;
+    }
+
+    void label(Label label, boolean successor) {
+      currentLabels.add(label);
+      if (!successor) {
+        lastInstruction = null;
+      }
+    }
+
+    void instruction() {
+      Instruction instruction = new Instruction(currentLine);
+      instruction.predecessor = lastInstruction;
+      for (Label label : currentLabels) {
+        instructionByLabel.put(label, instruction);
+      }
+      currentLabels.clear();
+      lastInstruction = instruction;
+    }
+
+    void probe(int probeId) {
+      instructionByProbe.put(probeId, lastInstruction);
+      lastInstruction = null;
+    }
+
+    void instructionWithProbe(int probeId) {
+      instruction();
+      instructionByProbe.put(probeId, lastInstruction);
+    }
+
+    void switchTarget(Label label, int probeId) {
+      if (probeId == LabelInfo.NO_PROBE) {
+        jump(label);
+      } else {
+        instructionByProbe.put(probeId, lastInstruction);
+      }
+    }
+
+    private void jump(Label label) {
+      jumpSources.add(lastInstruction);
+      jumpTargets.add(label);
+    }
+
+    @Override
+    public void visitLineNumber(int line, Label start) {
+      currentLine = line;
+    }
+
+    @Override
+    public void visitInsn(int opcode) {
+      instruction();
+    }
+
+    @Override
+    public void visitIntInsn(int opcode, int operand) {
+      instruction();
+    }
+
+    @Override
+    public void visitVarInsn(int opcode, int var) {
+      instruction();
+    }
+
+    @Override
+    public void visitTypeInsn(int opcode, String type) {
+      instruction();
+    }
+
+    @Override
+    public void visitFieldInsn(int opcode, String owner, String name, String desc) {
+      instruction();
+    }
+
+    @Override
+    public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean itf) {
+      instruction();
+    }
+
+    @Override
+    public void visitInvokeDynamicInsn(String name, String desc, Handle bsm, Object... bsmArgs) {
+      instruction();
+    }
+
+    @Override
+    public void visitJumpInsn(int opcode, Label label) {
+      instruction();
+      jump(label);
+    }
+
+    @Override
+    public void visitLdcInsn(Object cst) {
+      instruction();
+    }
+
+    @Override
+    public void visitIincInsn(int var, int increment) {
+      instruction();
+    }
+
+    @Override
+    public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+      visitSwitchInsn(dflt, labels);
+    }
+
+    @Override
+    public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+      visitSwitchInsn(dflt, labels);
+    }
+
+    private void visitSwitchInsn(Label dflt, Label[] labels) {
+      instruction();
+      jump(dflt);
+      for (Label label : labels) {
+        jump(label);
+      }
+    }
+
+    @Override
+    public void visitMultiANewArrayInsn(String desc, int dims) {
+      instruction();
+    }
+
+    @Override
+    public void visitEnd() {
+      for (int i = 0; i < jumpSources.size(); i++) {
+        instructionByLabel.get(jumpTargets.get(i)).predecessor = jumpSources.get(i);
+      }
+      BitSet lines = new BitSet();
+      int walk = 0;
+      for (Map.Entry<Integer, Instruction> entry : instructionByProbe.entrySet()) {
+        walk++;
+        lines.clear();
+        // predecessors of instructions within loops form cycles
+        for (Instruction instruction = entry.getValue(); instruction != null && instruction.walk != walk; instruction = instruction.predecessor) {
+          instruction.walk = walk;
+          if (instruction.line != ISourceNode.UNKNOWN_LINE) {
+            lines.set(instruction.line);
+          }
+        }
+        linesByProbe.put(entry.getKey(), toArray(lines));
+      }
+    }
+
+    private static int[] toArray(BitSet lines) {
+      if (lines.isEmpty()) {
+        return NO_LINES;
+      }
+      int[] result = new int[lines.cardinality()];
+      int i = 0;
+      for (int line = lines.nextSetBit(0); line >= 0; line = lines.nextSetBit(line + 1)) {
+        result[i++] = line;
+      }
+      return result;
+    }
+  }
+
+  private static class CurrentClassVisitor extends ClassProbesVisitor {
+    private final ClassLines classLines;
+
+    CurrentClassVisitor(ClassLines classLines) {
+      this.classLines = classLines;
+    }
+
+    @Override
+    public void visitSource(String source, String debug) {
+      classLines.sourceFileName = source;
+    }
+
+    @Override
+    public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+      InstrSupport.assertNotInstrumented(name, classLines.className);
+      return super.visitField(access, name, desc, signature, value);
+    }
+
+    @Override
+    public MethodProbesVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+      InstrSupport.assertNotInstrumented(name, classLines.className);
+      if (ClassLines.isFiltered(access, name)) {
+        return null;
+      }
+      final MethodGraph graph = new MethodGraph(classLines.linesByProbe);
+      return new MethodProbesVisitor(graph) {
+        @Override
+        public void visitLabel(Label label) {
+          graph.label(label, LabelInfo.isSuccessor(label));
+        }
+
+        @Override
+        public void visitProbe(int probeId) {
+          graph.probe(probeId);
+        }
+
+        @Override
+        public void visitJumpInsnWithProbe(int opcode, Label label, int probeId, IFrame frame) {
+          graph.instructionWithProbe(probeId);
+        }
+
+        @Override
+        public void visitInsnWithProbe(int opcode, int probeId) {
+          graph.instructionWithProbe(probeId);
+        }
+
+        @Override
+        public void visitTableSwitchInsnWithProbes(int min, int max, Label dflt, Label[] labels, IFrame frame) {
+          visitSwitchInsnWithProbes(dflt, labels);
+        }
+
+        @Override
+        public void visitLookupSwitchInsnWithProbes(Label dflt, int[] keys, Label[] labels, IFrame frame) {
+          visitSwitchInsnWithProbes(dflt, labels);
+        }
+
+        private void visitSwitchInsnWithProbes(Label dflt, Label[] labels) {
+          graph.instruction();
+          graph.switchTarget(dflt, LabelInfo.getProbeId(dflt));
+          for (Label label : labels) {
+            graph.switchTarget(label, LabelInfo.getProbeId(label));
+          }
+        }
+      };
+    }
+
+    @Override
+    public void visitTotalProbeCount(int count) {
+      classLines.totalProbes = count;
+    }
+  }
+
+  private static class PreviousClassVisitor extends org.jacoco.previous.core.internal.flow.ClassProbesVisitor {
+    private final ClassLines classLines;
+
+    PreviousClassVisitor(ClassLines classLines) {
+      this.classLines = classLines;
+    }
+
+    @Override
+    public void visitSource(String source, String debug) {
+      classLines.sourceFileName = source;
+    }
+
+    @Override
+    public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+      org.jacoco.previous.core.internal.instr.InstrSupport.assertNotInstrumented(name, classLines.className);
+      return super.visitField(access, name, desc, signature, value);
+    }
+
+    @Override
+    public org.jacoco.previous.core.internal.flow.MethodProbesVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+      org.jacoco.previous.core.internal.instr.InstrSupport.assertNotInstrumented(name, classLines.className);
+      if (ClassLines.isFiltered(access, name)) {
+        return null;
+      }
+      final MethodGraph graph = new MethodGraph(classLines.linesByProbe);
+      return new org.jacoco.previous.core.internal.flow.MethodProbesVisitor(graph) {
+        @Override
+        public void visitLabel(Label label) {
+          graph.label(label, org.jacoco.previous.core.internal.flow.LabelInfo.isSuccessor(label));
+        }
+
+        @Override
+        public void visitProbe(int probeId) {
+          graph.probe(probeId);
+        }
+
+        @Override
+        public void visitJumpInsnWithProbe(int opcode, Label label, int probeId, org.jacoco.previous.core.internal.flow.IFrame frame) {
+          graph.instructionWithProbe(probeId);
+        }
+
+        @Override
+        public void visitInsnWithProbe(int opcode, int probeId) {
+          graph.instructionWithProbe(probeId);
+        }
+
+        @Override
+        public void visitTableSwitchInsnWithProbes(int min, int max, Label dflt, Label[] labels, org.jacoco.previous.core.internal.flow.IFrame frame) {
+          visitSwitchInsnWithProbes(dflt, labels);
+        }
+
+        @Override
+        public void visitLookupSwitchInsnWithProbes(Label dflt, int[] keys, Label[] labels, org.jacoco.previous.core.internal.flow.IFrame frame) {
+          visitSwitchInsnWithProbes(dflt, labels);
+        }
+
+        private void visitSwitchInsnWithProbes(Label dflt, Label[] labels) {
+          graph.instruction();
+          graph.switchTarget(dflt, org.jacoco.previous.core.internal.flow.LabelInfo.getProbeId(dflt));
+          for (Label label : labels) {
+            graph.switchTarget(label, org.jacoco.previous.core.internal.flow.LabelInfo.getProbeId(label));
+          }
+        }
+      };
+    }
+
+    @Override
+    public void visitTotalProbeCount(int count) {
+      classLines.totalProbes = count;
+    }
+  }
+
+}
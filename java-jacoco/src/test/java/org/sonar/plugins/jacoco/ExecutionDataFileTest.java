@@ -0,0 +1,137 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2010 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.jacoco;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.SessionInfo;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.test.TestUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ExecutionDataFileTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Rule
+  public ExpectedException exception = ExpectedException.none();
+
+  @Test
+  public void read_same_execution_data_as_jacoco() throws Exception {
+    for (String report : new String[] {
+      "JaCoCoSensorTest/jacoco.exec",
+      "JaCoCoSensorTest2/jacoco.exec",
+      "JaCoCoOverallSensorTest/ut.exec",
+      "JaCoCov0_7_4_coverage_per_test/jacoco.exec",
+      "JaCoCov0_7_5_coverage_per_test/jacoco.exec",
+      "JaCoCo_incompatible_merge/jacoco-0.7.4.exec"}) {
+      File file = TestUtils.getResource("/org/sonar/plugins/jacoco/" + report);
+      ExecutionDataVisitor expected = new ExecutionDataVisitor();
+      JacocoReportReader jacocoReportReader = new JacocoReportReader(file).readJacocoReport(expected, expected);
+
+      ExecutionDataFile executionDataFile = ExecutionDataFile.open(file);
+      assertThat(executionDataFile.useCurrentBinaryFormat()).isEqualTo(jacocoReportReader.useCurrentBinaryFormat());
+      assertSameExecutionData(executionDataFile.readExecutionData(1), expected.getMerged());
+      assertThat(executionDataFile.sessionIds()).containsOnly(expected.getSessions().keySet().toArray());
+      for (Map.Entry<String, ExecutionDataStore> session : expected.getSessions().entrySet()) {
+        assertSameExecutionData(executionDataFile.readSession(session.getKey()), session.getValue());
+      }
+    }
+  }
+
+  @Test
+  public void execution_data_is_read_by_chunks_in_parallel() throws Exception {
+    File file = temp.newFile("large.exec");
+    OutputStream out = new FileOutputStream(file);
+    try {
+      ExecutionDataWriter writer = new ExecutionDataWriter(out);
+      for (int session = 0; session < 200; session++) {
+        writer.visitSessionInfo(new SessionInfo("Test test" + (session % 100), session, session));
+        for (int i = 0; i < 200; i++) {
+          boolean[] probes = new boolean[64];
+          probes[(session + i) % 64] = true;
+          writer.visitClassExecution(new ExecutionData(i, "org/example/Class" + i, probes));
+        }
+      }
+    } finally {
+      out.close();
+    }
+    ExecutionDataVisitor expected = new ExecutionDataVisitor();
+    new JacocoReportReader(file).readJacocoReport(expected, expected);
+
+    ExecutionDataFile executionDataFile = ExecutionDataFile.open(file, 64 * 1024);
+    assertSameExecutionData(executionDataFile.readExecutionData(4), expected.getMerged());
+    assertThat(executionDataFile.sessionIds()).hasSize(100);
+    assertSameExecutionData(executionDataFile.readSession("Test test42"), expected.getSessions().get("Test test42"));
+  }
+
+  @Test
+  public void sessions_appended_by_several_jvms() throws Exception {
+    File file = temp.newFile("appended.exec");
+    for (int jvm = 0; jvm < 2; jvm++) {
+      OutputStream out = new FileOutputStream(file, true);
+      try {
+        ExecutionDataWriter writer = new ExecutionDataWriter(out);
+        writer.visitSessionInfo(new SessionInfo("", jvm, jvm));
+        writer.visitClassExecution(new ExecutionData(1, "org/example/Setup", new boolean[] {true}));
+        writer.visitSessionInfo(new SessionInfo("Test test" + jvm, jvm, jvm));
+        writer.visitClassExecution(new ExecutionData(2 + jvm, "org/example/Class" + jvm, new boolean[] {true, false}));
+      } finally {
+        out.close();
+      }
+    }
+    ExecutionDataVisitor expected = new ExecutionDataVisitor();
+    new JacocoReportReader(file).readJacocoReport(expected, expected);
+
+    ExecutionDataFile executionDataFile = ExecutionDataFile.open(file);
+    assertSameExecutionData(executionDataFile.readExecutionData(1), expected.getMerged());
+    assertThat(executionDataFile.sessionIds()).containsOnly("", "Test test0", "Test test1");
+    assertSameExecutionData(executionDataFile.readSession("Test test1"), expected.getSessions().get("Test test1"));
+    assertThat(executionDataFile.readSession("Test test1").getContents()).hasSize(1);
+  }
+
+  @Test
+  public void invalid_file() throws Exception {
+    exception.expect(IOException.class);
+    exception.expectMessage("Invalid execution data file.");
+    ExecutionDataFile.open(temp.newFile("empty.exec"));
+  }
+
+  private static void assertSameExecutionData(ExecutionDataStore actual, ExecutionDataStore expected) {
+    assertThat(actual.getContents()).hasSize(expected.getContents().size());
+    for (ExecutionData data : expected.getContents()) {
+      assertThat(actual.get(data.getId()).getName()).isEqualTo(data.getName());
+      assertThat(actual.get(data.getId()).getProbes()).isEqualTo(data.getProbes());
+    }
+  }
+
+}
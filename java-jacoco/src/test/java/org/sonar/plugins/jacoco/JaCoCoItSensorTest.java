@@ -71,10 +71,11 @@ public class JaCoCoItSensorTest {
   @Before
   public void setUp() {
     configuration = mock(JacocoConfiguration.class);
+    when(configuration.getThreads()).thenReturn(2);
     ResourcePerspectives perspectives = mock(ResourcePerspectives.class);
     ModuleFileSystem fileSystem = mock(ModuleFileSystem.class);
     pathResolver = mock(PathResolver.class);
-    sensor = new JaCoCoItSensor(configuration, perspectives, fileSystem, pathResolver, javaResourceLocator, javaClasspath);
+    sensor = new JaCoCoItSensor(configuration, perspectives, fileSystem, pathResolver, javaResourceLocator, new JacocoCoverageEngine(javaClasspath, configuration));
   }
 
   @Test
@@ -19,18 +19,19 @@
  */
 package org.sonar.plugins.jacoco;
 
+import com.google.common.collect.ImmutableList;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
-import org.junit.rules.TemporaryFolder;
 import org.sonar.test.TestUtils;
 
 import java.io.File;
 
-public class JaCoCoReportMergerTest {
+import static org.fest.assertions.Assertions.assertThat;
 
-  @Rule
-  public TemporaryFolder testFolder = new TemporaryFolder();
+public class JaCoCoReportMergerTest {
 
   @Rule
   public ExpectedException exception = ExpectedException.none();
@@ -51,12 +52,32 @@ public class JaCoCoReportMergerTest {
 
   @Test
   public void merge_same_format_should_not_fail() throws Exception {
-    merge("jacoco-0.7.5.exec", "jacoco-it-0.7.5.exec");
+    ExecutionDataReport merged = merge("jacoco-0.7.5.exec", "jacoco-it-0.7.5.exec");
+    assertThat(merged.useCurrentBinaryFormat()).isTrue();
+    assertThat(merged.executionData().getContents()).isNotEmpty();
+  }
+
+  @Test
+  public void probes_hit_in_any_report_are_hit_in_merged_report() {
+    ExecutionDataStore first = new ExecutionDataStore();
+    first.put(new ExecutionData(1, "A", new boolean[] {true, false, false}));
+    ExecutionDataStore second = new ExecutionDataStore();
+    second.put(new ExecutionData(1, "A", new boolean[] {false, true, false}));
+    second.put(new ExecutionData(2, "B", new boolean[] {true}));
+    ExecutionDataReport merged = JaCoCoReportMerger.mergeReports(ImmutableList.of(report(first), report(second)));
+
+    assertThat(merged.executionData().get(1).getProbes()).isEqualTo(new boolean[] {true, true, false});
+    assertThat(merged.executionData().get(2).getProbes()).isEqualTo(new boolean[] {true});
+    assertThat(first.get(1).getProbes()).isEqualTo(new boolean[] {true, false, false});
+  }
+
+  private static ExecutionDataReport report(ExecutionDataStore executionData) {
+    return new ExecutionDataReport(true, executionData);
   }
 
-  private void merge(String file1, String file2) {
+  private ExecutionDataReport merge(String file1, String file2) {
     File current = TestUtils.getResource("/org/sonar/plugins/jacoco/JaCoCo_incompatible_merge/" + file1);
     File previous = TestUtils.getResource("/org/sonar/plugins/jacoco/JaCoCo_incompatible_merge/" + file2);
-    JaCoCoReportMerger.mergeReports(new File(testFolder.getRoot(), "dummy"), current, previous);
+    return JaCoCoReportMerger.mergeReports(ImmutableList.of(ExecutionDataReport.read(current, false, 1), ExecutionDataReport.read(previous, false, 1)));
   }
 }
\ No newline at end of file
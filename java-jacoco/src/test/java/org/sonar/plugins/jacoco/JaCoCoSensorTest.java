@@ -81,9 +81,10 @@ public class JaCoCoSensorTest {
     project = mock(Project.class);
 
     configuration = mock(JacocoConfiguration.class);
+    when(configuration.getThreads()).thenReturn(2);
     perspectives = mock(ResourcePerspectives.class);
     javaClasspath = mock(JavaClasspath.class);
-    sensor = new JaCoCoSensor(configuration, perspectives, fileSystem, pathResolver, javaResourceLocator, javaClasspath);
+    sensor = new JaCoCoSensor(configuration, perspectives, fileSystem, pathResolver, javaResourceLocator, new JacocoCoverageEngine(javaClasspath, configuration));
   }
 
   @Test
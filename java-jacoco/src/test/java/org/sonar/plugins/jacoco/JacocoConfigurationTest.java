@@ -25,6 +25,7 @@ import org.sonar.api.batch.fs.internal.DefaultFileSystem;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.config.PropertyDefinitions;
 import org.sonar.api.config.Settings;
+import org.sonar.java.ReportThreads;
 
 import static org.fest.assertions.Assertions.assertThat;
 
@@ -66,6 +67,13 @@ public class JacocoConfigurationTest {
     assertThat(jacocoSettings.getItReportPath()).isEqualTo("target/jacoco-it.exec");
   }
 
+  @Test
+  public void threads() {
+    assertThat(jacocoSettings.getThreads()).isEqualTo(Runtime.getRuntime().availableProcessors());
+    settings.setProperty(ReportThreads.REPORT_THREADS_PROPERTY, 3);
+    assertThat(jacocoSettings.getThreads()).isEqualTo(3);
+  }
+
   @Test
   public void shouldReturnItReportPath() {
     settings.setProperty(JacocoConfiguration.IT_REPORT_PATH_PROPERTY, "target/it-jacoco-test.exec");
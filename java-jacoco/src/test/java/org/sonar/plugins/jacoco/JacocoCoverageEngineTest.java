@@ -0,0 +1,108 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2010 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.jacoco;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.java.JavaClasspath;
+import org.sonar.test.TestUtils;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class JacocoCoverageEngineTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File reportsDir;
+  private JavaClasspath javaClasspath;
+  private JacocoCoverageEngine engine;
+
+  @Before
+  public void setUp() throws Exception {
+    reportsDir = TestUtils.getResource(JaCoCoOverallSensorTest.class, ".");
+    Files.copy(TestUtils.getResource("HelloWorld.class.toCopy"), temp.newFile("HelloWorld.class"));
+    javaClasspath = mock(JavaClasspath.class);
+    when(javaClasspath.getBinaryDirs()).thenReturn(ImmutableList.of(temp.getRoot()));
+    JacocoConfiguration configuration = mock(JacocoConfiguration.class);
+    when(configuration.getThreads()).thenReturn(2);
+    engine = new JacocoCoverageEngine(javaClasspath, configuration);
+  }
+
+  @Test
+  public void class_files_are_indexed_once() {
+    assertThat(engine.hasClassFiles()).isTrue();
+    engine.analyze(engine.report(null, false));
+    engine.analyze(engine.report(null, false));
+    verify(javaClasspath, times(1)).getBinaryDirs();
+  }
+
+  @Test
+  public void threads_are_given_by_configuration() {
+    assertThat(engine.threads()).isEqualTo(2);
+  }
+
+  @Test
+  public void reports_are_read_once() {
+    File ut = new File(reportsDir, "ut.exec");
+    ExecutionDataReport report = engine.report(ut, false);
+    assertThat(engine.report(ut, false)).isSameAs(report);
+    assertThat(engine.mergedReport(ut, new File(reportsDir, "it.not.found.exec"))).isSameAs(report);
+
+    ExecutionDataReport reportWithSessions = engine.report(ut, true);
+    assertThat(reportWithSessions.sessionIds()).isNotEmpty();
+    assertThat(engine.report(ut, false).sessionIds()).isEmpty();
+  }
+
+  @Test
+  public void classes_are_analyzed_once_per_distinct_execution_data() {
+    File ut = new File(reportsDir, "ut.exec");
+    File it = new File(reportsDir, "it.exec");
+    IClassCoverage utCoverage = classCoverage(engine.report(ut, false));
+    IClassCoverage itCoverage = classCoverage(engine.report(it, false));
+    IClassCoverage overallCoverage = classCoverage(engine.mergedReport(ut, it));
+
+    assertThat(classCoverage(engine.report(ut, false))).isSameAs(utCoverage);
+    assertThat(itCoverage).isNotSameAs(utCoverage);
+    assertThat(overallCoverage).isNotSameAs(utCoverage);
+    assertThat(overallCoverage.getLineCounter().getCoveredCount())
+      .isGreaterThan(Math.max(utCoverage.getLineCounter().getCoveredCount(), itCoverage.getLineCounter().getCoveredCount()));
+
+    IClassCoverage withoutExecutionData = classCoverage(engine.report(null, false));
+    assertThat(withoutExecutionData.getLineCounter().getCoveredCount()).isEqualTo(0);
+    assertThat(classCoverage(engine.mergedReport(new File(reportsDir, "ut.not.found.exec")))).isSameAs(withoutExecutionData);
+  }
+
+  private IClassCoverage classCoverage(ExecutionDataReport report) {
+    return engine.analyze(report).getClasses().iterator().next();
+  }
+
+}
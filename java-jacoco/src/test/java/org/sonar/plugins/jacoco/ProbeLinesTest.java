@@ -0,0 +1,212 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2010 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.jacoco;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.internal.flow.ClassProbesAdapter;
+import org.jacoco.core.internal.flow.ClassProbesVisitor;
+import org.jacoco.core.internal.flow.MethodProbesVisitor;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.sonar.test.TestUtils;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ProbeLinesTest {
+
+  @Test
+  public void lines_covered_by_probes_are_the_lines_covered_according_to_analyzer() throws Exception {
+    File outputDir = TestUtils.getResource("/org/sonar/plugins/jacoco/JaCoCov0_7_5_coverage_per_test/");
+    byte[] classBytes = Files.toByteArray(new File(outputDir, "example/One.class"));
+    ExecutionDataVisitor executionDataVisitor = new ExecutionDataVisitor();
+    new JacocoReportReader(new File(outputDir, "jacoco.exec")).readJacocoReport(executionDataVisitor, executionDataVisitor);
+
+    ProbeLines probeLines = ProbeLines.analyze(classBytes, true);
+    assertThat(probeLines.packageName()).isEqualTo("example");
+    assertThat(probeLines.sourceFileName()).isEqualTo("One.java");
+
+    assertThat(executionDataVisitor.getSessions()).isNotEmpty();
+    for (ExecutionDataStore session : executionDataVisitor.getSessions().values()) {
+      ExecutionData data = session.get(probeLines.classId());
+      assertThat(coveredLines(probeLines, data)).isEqualTo(coveredLines(classBytes, data));
+    }
+    ExecutionData data = executionDataVisitor.getMerged().get(probeLines.classId());
+    boolean[] allProbes = new boolean[data.getProbes().length];
+    Arrays.fill(allProbes, true);
+    data = new ExecutionData(data.getId(), data.getName(), allProbes);
+    assertThat(coveredLines(probeLines, data)).isEqualTo(coveredLines(classBytes, data));
+  }
+
+  @Test
+  public void class_analyzed_with_previous_version() throws Exception {
+    byte[] classBytes = Files.toByteArray(TestUtils.getResource("/org/sonar/plugins/jacoco/JaCoCoSensorTest2/org/example/App.class.toCopy"));
+    ProbeLines probeLines = ProbeLines.analyze(classBytes, false);
+    assertThat(probeLines.packageName()).isEqualTo("org/example");
+    assertThat(probeLines.sourceFileName()).isEqualTo("App.java");
+  }
+
+  @Test
+  public void lines_of_each_probe_are_the_lines_covered_when_only_this_probe_is_hit() throws Exception {
+    for (Class<?> clazz : new Class<?>[] {Branches.class, ProbeLines.class, AbstractAnalyzer.class, JacocoReportReader.class}) {
+      byte[] classBytes = ByteStreams.toByteArray(clazz.getResourceAsStream(clazz.getName().substring(clazz.getName().lastIndexOf('.') + 1) + ".class"));
+      for (boolean useCurrentBinaryFormat : new boolean[] {true, false}) {
+        ProbeLines probeLines = ProbeLines.analyze(classBytes, useCurrentBinaryFormat);
+        String className = clazz.getName().replace('.', '/');
+        int totalProbes = totalProbes(classBytes);
+        for (int probeId = 0; probeId < totalProbes; probeId++) {
+          boolean[] probes = new boolean[totalProbes];
+          probes[probeId] = true;
+          ExecutionData data = new ExecutionData(probeLines.classId(), className, probes);
+          ExecutionDataStore executionDataStore = new ExecutionDataStore();
+          executionDataStore.put(data);
+          IClassCoverage classCoverage = JacocoReportReader.analyzeClass(classBytes, className, executionDataStore, useCurrentBinaryFormat);
+          assertThat(coveredLines(probeLines, data)).as(className + " probe " + probeId).isEqualTo(coveredLines(classCoverage));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void class_without_probes() throws Exception {
+    assertThat(ProbeLines.analyze(ByteStreams.toByteArray(Runnable.class.getResourceAsStream("Runnable.class")), true)).isNull();
+  }
+
+  private static BitSet coveredLines(ProbeLines probeLines, ExecutionData data) {
+    BitSet lines = new BitSet();
+    probeLines.addCoveredLines(data.getProbes(), lines);
+    return lines;
+  }
+
+  private static BitSet coveredLines(byte[] classBytes, ExecutionData data) throws Exception {
+    ExecutionDataStore executionDataStore = new ExecutionDataStore();
+    executionDataStore.put(data);
+    CoverageBuilder coverageBuilder = new CoverageBuilder();
+    new Analyzer(executionDataStore, coverageBuilder).analyzeClass(classBytes, data.getName());
+    BitSet lines = new BitSet();
+    for (IClassCoverage classCoverage : coverageBuilder.getClasses()) {
+      lines.or(coveredLines(classCoverage));
+    }
+    return lines;
+  }
+
+  private static int totalProbes(byte[] classBytes) {
+    final int[] result = new int[1];
+    new ClassReader(classBytes).accept(new ClassProbesAdapter(new ClassProbesVisitor() {
+      @Override
+      public MethodProbesVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+        return null;
+      }
+
+      @Override
+      public void visitTotalProbeCount(int count) {
+        result[0] = count;
+      }
+    }, false), 0);
+    return result[0];
+  }
+
+  private static BitSet coveredLines(IClassCoverage classCoverage) {
+    BitSet lines = new BitSet();
+    for (int line = classCoverage.getFirstLine(); line <= classCoverage.getLastLine(); line++) {
+      if (classCoverage.getLine(line).getInstructionCounter().getCoveredCount() > 0) {
+        lines.set(line);
+      }
+    }
+    return lines;
+  }
+
+  private static class Branches {
+    int value;
+
+    int loops(int[] values) {
+      int sum = 0;
+      for (int i = 0; i < values.length; i++) {
+        while (values[i] > sum) {
+          sum += values[i] > 10 ? 2 : 1;
+        }
+        if (values[i] < 0) {
+          break;
+        }
+      }
+      do {
+        sum--;
+      } while (sum > 100);
+      return sum;
+    }
+
+    String switches(int i, String s) {
+      switch (i) {
+        case 0:
+        case 1:
+          value++;
+          break;
+        case 2:
+          return "two";
+        default:
+          value--;
+      }
+      switch (i * 1000) {
+        case 1000:
+          value++;
+        case 3000:
+          value += 3;
+          break;
+        default:
+          break;
+      }
+      switch (s) {
+        case "a":
+          return "A";
+        case "b":
+          return "B";
+        default:
+          return s;
+      }
+    }
+
+    int exceptions(Object o) {
+      try {
+        value = o.hashCode();
+        if (value > 0) {
+          throw new IllegalStateException();
+        }
+      } catch (IllegalStateException e) {
+        return -1;
+      } finally {
+        value++;
+      }
+      synchronized (this) {
+        value++;
+      }
+      return o == null ? 0 : value;
+    }
+  }
+
+}
@@ -24,6 +24,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.SensorContext;
@@ -31,14 +32,18 @@ import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
 import org.sonar.java.bytecode.visitor.ResourceMapping;
 import org.sonar.java.filters.SuppressWarningsFilter;
+import org.sonar.java.incremental.AnalysisCache;
+import org.sonar.java.incremental.AnalysisCacheAware;
+import org.sonar.java.incremental.FileAnalysis;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.JavaResourceLocator;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.util.Collection;
 import java.util.Map;
 
-public class DefaultJavaResourceLocator implements JavaResourceLocator {
+public class DefaultJavaResourceLocator implements JavaResourceLocator, AnalysisCacheAware {
 
   private static final Logger LOG = LoggerFactory.getLogger(JavaResourceLocator.class);
 
@@ -51,6 +56,7 @@ public class DefaultJavaResourceLocator implements JavaResourceLocator {
   private final Map<String, Integer> methodStartLines;
   private final ResourceMapping resourceMapping;
   private SensorContext sensorContext;
+  private AnalysisCache analysisCache;
 
   public DefaultJavaResourceLocator(Project project, JavaClasspath javaClasspath, SuppressWarningsFilter suppressWarningsFilter) {
     this.project = project;
@@ -66,6 +72,11 @@ public class DefaultJavaResourceLocator implements JavaResourceLocator {
     this.sensorContext = sensorContext;
   }
 
+  @Override
+  public void setAnalysisCache(@Nullable AnalysisCache analysisCache) {
+    this.analysisCache = analysisCache;
+  }
+
   @Override
   public Resource findResourceByClassName(String className) {
     String name = className.replace('.', '/');
@@ -120,24 +131,39 @@ public class DefaultJavaResourceLocator implements JavaResourceLocator {
 
   @Override
   public void scanFile(JavaFileScannerContext context) {
-    Preconditions.checkNotNull(sensorContext);
     JavaFilesCache javaFilesCache = new JavaFilesCache();
     javaFilesCache.scanFile(context);
-    org.sonar.api.resources.File currentResource = org.sonar.api.resources.File.fromIOFile(context.getFile(), project);
+    addFile(context.getFile(), context.getFileKey(), javaFilesCache.getResourcesCache().keySet(), javaFilesCache.getMethodStartLines(),
+      javaFilesCache.getSuppressWarningLines());
+    FileAnalysis recording = analysisCache == null ? null : analysisCache.recordingFor(context.getFile());
+    if (recording != null) {
+      recording.recordClasses(javaFilesCache.getResourcesCache().keySet(), javaFilesCache.getMethodStartLines(), javaFilesCache.getSuppressWarningLines());
+    }
+  }
+
+  @Override
+  public void replay(File file, FileAnalysis analysis) {
+    addFile(file, file.getAbsolutePath(), analysis.classKeys(), analysis.methodStartLines(), analysis.suppressWarningLines());
+  }
+
+  private void addFile(File file, @Nullable String fileKey, Collection<String> classKeys, Map<String, Integer> fileMethodStartLines,
+    Multimap<Integer, String> suppressWarningLines) {
+    Preconditions.checkNotNull(sensorContext);
+    org.sonar.api.resources.File currentResource = org.sonar.api.resources.File.fromIOFile(file, project);
     if (currentResource == null) {
-      throw new IllegalStateException("resource not found : " + context.getFileKey());
+      throw new IllegalStateException("resource not found : " + fileKey);
     }
-    resourceMapping.addResource(currentResource, context.getFileKey());
-    for (Map.Entry<String, File> classIOFileEntry : javaFilesCache.getResourcesCache().entrySet()) {
-      resourcesByClass.put(classIOFileEntry.getKey(), currentResource);
-      if (context.getFileKey() != null) {
-        sourceFileByClass.put(classIOFileEntry.getKey(), context.getFileKey());
+    resourceMapping.addResource(currentResource, fileKey);
+    for (String classKey : classKeys) {
+      resourcesByClass.put(classKey, currentResource);
+      if (fileKey != null) {
+        sourceFileByClass.put(classKey, fileKey);
       }
     }
-    methodStartLines.putAll(javaFilesCache.getMethodStartLines());
+    methodStartLines.putAll(fileMethodStartLines);
     org.sonar.api.resources.File indexedResource = sensorContext.getResource(currentResource);
-    if (indexedResource != null && javaFilesCache.hasSuppressWarningLines()) {
-      suppressWarningsFilter.addComponent(indexedResource.getEffectiveKey(), javaFilesCache.getSuppressWarningLines());
+    if (indexedResource != null && !suppressWarningLines.isEmpty()) {
+      suppressWarningsFilter.addComponent(indexedResource.getEffectiveKey(), suppressWarningLines);
     }
   }
 }
@@ -19,12 +19,24 @@
  */
 package org.sonar.java;
 
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import java.io.File;
 import java.nio.charset.Charset;
 
 public class JavaConfiguration {
 
+  /**
+   * Default amount of class file bytes kept in memory during an analysis: 64 MB.
+   */
+  public static final long DEFAULT_BYTECODE_CACHE_SIZE = 64L * 1024 * 1024;
+
   private final Charset charset;
   private boolean separateAccessorsFromMethods = true;
+  private long bytecodeCacheSize = DEFAULT_BYTECODE_CACHE_SIZE;
+  private int scanThreads = 1;
+  private File analysisCacheFile;
+  private File classpathIndexFile;
 
   public JavaConfiguration(Charset charset) {
     this.charset = charset;
@@ -42,4 +54,50 @@ public class JavaConfiguration {
     this.separateAccessorsFromMethods = separateAccessorsFromMethods;
   }
 
+  public long getBytecodeCacheSize() {
+    return bytecodeCacheSize;
+  }
+
+  public void setBytecodeCacheSize(long bytecodeCacheSize) {
+    this.bytecodeCacheSize = bytecodeCacheSize;
+  }
+
+  public int getScanThreads() {
+    return scanThreads;
+  }
+
+  /**
+   * @param scanThreads number of threads used to parse files and build their semantic models, as well as to parse class files,
+   * <tt>1</tt> to scan files sequentially
+   */
+  public void setScanThreads(int scanThreads) {
+    this.scanThreads = scanThreads;
+  }
+
+  @CheckForNull
+  public File getAnalysisCacheFile() {
+    return analysisCacheFile;
+  }
+
+  /**
+   * @param analysisCacheFile file in which results of main files are kept between analyses, so that unchanged files are not analyzed again,
+   * <tt>null</tt> to analyze all files
+   */
+  public void setAnalysisCacheFile(@Nullable File analysisCacheFile) {
+    this.analysisCacheFile = analysisCacheFile;
+  }
+
+  @CheckForNull
+  public File getClasspathIndexFile() {
+    return classpathIndexFile;
+  }
+
+  /**
+   * @param classpathIndexFile file in which class files of JAR files are kept between analyses, so that JAR files are only opened when classes
+   * are loaded from them, <tt>null</tt> to open all JAR files of the classpath
+   */
+  public void setClasspathIndexFile(@Nullable File classpathIndexFile) {
+    this.classpathIndexFile = classpathIndexFile;
+  }
+
 }
@@ -23,7 +23,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
-import org.apache.commons.io.FileUtils;
+import com.google.common.collect.Maps;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.design.Dependency;
@@ -31,17 +31,24 @@ import org.sonar.api.resources.Resource;
 import org.sonar.api.utils.TimeProfiler;
 import org.sonar.graph.DirectedGraph;
 import org.sonar.java.ast.AstScanner;
+import org.sonar.java.ast.SourceFileListener;
 import org.sonar.java.ast.visitors.FileLinesVisitor;
 import org.sonar.java.ast.visitors.FileVisitor;
-import org.sonar.java.ast.visitors.SyntaxHighlighterVisitor;
 import org.sonar.java.bytecode.BytecodeScanner;
+import org.sonar.java.bytecode.loader.ClassFileStore;
+import org.sonar.java.bytecode.loader.ClasspathIndexFile;
 import org.sonar.java.bytecode.visitor.DependenciesVisitor;
+import org.sonar.java.incremental.AnalysisCache;
+import org.sonar.java.incremental.AnalysisCacheAware;
+import org.sonar.java.incremental.FileAnalysis;
 import org.sonar.java.model.VisitorsBridge;
 import org.sonar.plugins.java.api.JavaResourceLocator;
 import org.sonar.squidbridge.api.CodeVisitor;
 import org.sonar.squidbridge.api.Query;
 import org.sonar.squidbridge.api.SourceCode;
 import org.sonar.squidbridge.api.SourceCodeSearchEngine;
+import org.sonar.squidbridge.api.SourceFile;
+import org.sonar.squidbridge.api.SourceProject;
 import org.sonar.squidbridge.indexer.SquidIndex;
 
 import javax.annotation.Nullable;
@@ -49,6 +56,7 @@ import java.io.File;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public class JavaSquid implements SourceCodeSearchEngine {
 
@@ -58,7 +66,13 @@ public class JavaSquid implements SourceCodeSearchEngine {
   private final AstScanner astScanner;
   private final AstScanner astScannerForTests;
   private final BytecodeScanner bytecodeScanner;
+  private final ClassFileStore classFileStore;
+  private final ClasspathIndexFile classpathIndexFile;
   private final DirectedGraph<Resource, Dependency> graph = new DirectedGraph<>();
+  private final List<CodeVisitor> checks;
+  private final List<AnalysisCacheAware> analysisCacheAwares = Lists.newArrayList();
+  private AnalysisCache analysisCache;
+  private SourceFileListener sourceFileListener;
 
   private boolean bytecodeScanned = false;
 
@@ -72,6 +86,8 @@ public class JavaSquid implements SourceCodeSearchEngine {
                    JavaResourceLocator javaResourceLocator, CodeVisitor... visitors) {
 
     astScanner = JavaAstScanner.create(conf);
+    classpathIndexFile = conf.getClasspathIndexFile() == null ? null : ClasspathIndexFile.load(conf.getClasspathIndexFile());
+    classFileStore = new ClassFileStore(conf.getBytecodeCacheSize(), classpathIndexFile);
 
     Iterable<CodeVisitor> visitorsToBridge = Iterables.concat(Arrays.asList(javaResourceLocator), Arrays.asList(visitors));
     if(measurer != null) {
@@ -86,11 +102,23 @@ public class JavaSquid implements SourceCodeSearchEngine {
       testClasspath = sonarComponents.getJavaTestClasspath();
       testCheckClasses.addAll(sonarComponents.testCheckClasses());
     }
-    setupAstScanner(astScanner, visitorsToBridge, classpath, conf, sonarComponents);
+    VisitorsBridge visitorsBridge = setupAstScanner(astScanner, visitorsToBridge, classpath, conf, sonarComponents);
+    checks = Arrays.asList(visitors);
+    if (conf.getAnalysisCacheFile() != null) {
+      setupAnalysisCache(conf, visitorsBridge, classpath, Iterables.<Object>concat(Arrays.asList(javaResourceLocator, measurer, sonarComponents), checks));
+    }
+    astScanner.setSourceFileListener(new SourceFileListener() {
+      @Override
+      public void sourceFileScanned(File file, SourceFile sourceFile) {
+        JavaSquid.this.sourceFileScanned(file, sourceFile);
+      }
+    });
     // TODO unchecked cast
     squidIndex = (SquidIndex) astScanner.getIndex();
 
     bytecodeScanner = new BytecodeScanner(squidIndex, javaResourceLocator);
+    bytecodeScanner.setParallelism(conf.getScanThreads());
+    bytecodeScanner.setClassFileStore(classFileStore);
     bytecodeScanner.accept(new DependenciesVisitor(graph));
 
     // External visitors (typically Check ones):
@@ -107,32 +135,109 @@ public class JavaSquid implements SourceCodeSearchEngine {
     setupAstScanner(astScannerForTests, testCheckClasses, testClasspath, conf, sonarComponents);
   }
 
-  private void setupAstScanner(AstScanner astScanner, Iterable<CodeVisitor> visitorsToBridge,
+  private void setupAnalysisCache(JavaConfiguration conf, VisitorsBridge visitorsBridge, List<File> classpath, Iterable<?> components) {
+    analysisCache = AnalysisCache.load(conf.getAnalysisCacheFile(), AnalysisCache.fingerprint(conf, classpath, checks), classpath);
+    visitorsBridge.setAnalysisCache(analysisCache);
+    for (Object component : components) {
+      if (component instanceof AnalysisCacheAware) {
+        ((AnalysisCacheAware) component).setAnalysisCache(analysisCache);
+        analysisCacheAwares.add((AnalysisCacheAware) component);
+      }
+    }
+  }
+
+  private VisitorsBridge setupAstScanner(AstScanner astScanner, Iterable<CodeVisitor> visitorsToBridge,
                                List<File> classpath, JavaConfiguration conf, @Nullable SonarComponents sonarComponents) {
     if(sonarComponents != null) {
       astScanner.accept(new FileLinesVisitor(sonarComponents, conf.getCharset()));
-      astScanner.accept(new SyntaxHighlighterVisitor(sonarComponents, conf.getCharset()));
     }
     VisitorsBridge visitorsBridgeTest = new VisitorsBridge(visitorsToBridge, classpath, sonarComponents);
     visitorsBridgeTest.setCharset(conf.getCharset());
+    visitorsBridgeTest.setClassFileStore(classFileStore);
     visitorsBridgeTest.setAnalyseAccessors(conf.separatesAccessorsFromMethods());
     astScanner.accept(visitorsBridgeTest);
+    return visitorsBridgeTest;
   }
 
 
 
+  /**
+   * @param sourceFileListener notified of each main file once it is scanned or taken from the analysis cache, so that its results can be saved
+   * and released right away. Messages logged afterwards by bytecode checks are kept on the source files until the end of the scan.
+   */
+  public void setSourceFileListener(@Nullable SourceFileListener sourceFileListener) {
+    this.sourceFileListener = sourceFileListener;
+  }
+
+  private void sourceFileScanned(File file, SourceFile sourceFile) {
+    if (analysisCache != null) {
+      FileAnalysis recording = analysisCache.recordingFor(file);
+      if (recording != null) {
+        // recorded before the listener had a chance to save and clear messages of the file
+        recording.recordSourceFile(sourceFile, checks);
+      }
+    }
+    if (sourceFileListener != null) {
+      sourceFileListener.sourceFileScanned(file, sourceFile);
+    }
+  }
+
   public void scan(Iterable<File> sourceFiles, Iterable<File> testFiles, Collection<File> bytecodeFilesOrDirectories) {
-    scanSources(sourceFiles);
-    scanBytecode(bytecodeFilesOrDirectories);
-    scanTests(testFiles);
+    try {
+      scanSources(sourceFiles);
+      scanBytecode(bytecodeFilesOrDirectories);
+      scanTests(testFiles);
+    } finally {
+      // Class files are shared by main and test files scans, release them once both are done
+      classFileStore.close();
+      if (classpathIndexFile != null) {
+        classpathIndexFile.save();
+      }
+    }
   }
 
   private void scanSources(Iterable<File> sourceFiles) {
     TimeProfiler profiler = new TimeProfiler(getClass()).start("Java Main Files AST scan");
-    astScanner.scan(sourceFiles);
+    if (analysisCache == null) {
+      astScanner.scan(sourceFiles);
+    } else {
+      scanSourcesIncrementally(sourceFiles);
+    }
     profiler.stop();
   }
 
+  /**
+   * Only files changed since the previous analysis are scanned, results of other files are replayed from the analysis cache.
+   */
+  private void scanSourcesIncrementally(Iterable<File> sourceFiles) {
+    List<File> changedFiles = Lists.newArrayList();
+    Map<File, FileAnalysis> unchangedFiles = Maps.newLinkedHashMap();
+    for (File file : sourceFiles) {
+      FileAnalysis analysis = analysisCache.unchangedAnalysis(file);
+      if (analysis == null) {
+        changedFiles.add(file);
+      } else {
+        unchangedFiles.put(file, analysis);
+      }
+    }
+    LOG.info("{} source files to analyze, {} unchanged source files taken from analysis cache", changedFiles.size(), unchangedFiles.size());
+    astScanner.scan(changedFiles);
+    SourceProject project = (SourceProject) squidIndex.search("Java Project");
+    for (Map.Entry<File, FileAnalysis> entry : unchangedFiles.entrySet()) {
+      File file = entry.getKey();
+      SourceFile sourceFile = new SourceFile(file.getAbsolutePath(), file.getPath());
+      project.addChild(sourceFile);
+      entry.getValue().replaySourceFile(sourceFile, checks);
+      for (AnalysisCacheAware analysisCacheAware : analysisCacheAwares) {
+        analysisCacheAware.replay(file, entry.getValue());
+      }
+      if (sourceFileListener != null) {
+        sourceFileListener.sourceFileScanned(file, sourceFile);
+      }
+    }
+    analysisCache.save();
+  }
+
   private void scanTests(Iterable<File> testFiles) {
     TimeProfiler profiler = new TimeProfiler(getClass()).start("Java Test Files AST scan");
     astScannerForTests.simpleScan(testFiles);
@@ -157,9 +262,23 @@ public class JavaSquid implements SourceCodeSearchEngine {
       return false;
     }
     for (File bytecodeFilesOrDirectory : bytecodeFilesOrDirectories) {
-      if (bytecodeFilesOrDirectory.exists() &&
-          (bytecodeFilesOrDirectory.isFile() ||
-              !FileUtils.listFiles(bytecodeFilesOrDirectory, new String[]{"class"}, true).isEmpty())) {
+      if (bytecodeFilesOrDirectory.isFile() || containsClassFile(bytecodeFilesOrDirectory)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Stops at the first class file found, rather than listing all the class files of the directory.
+   */
+  private static boolean containsClassFile(File directory) {
+    File[] children = directory.listFiles();
+    if (children == null) {
+      return false;
+    }
+    for (File child : children) {
+      if (child.isDirectory() ? containsClassFile(child) : child.getName().endsWith(".class")) {
         return true;
       }
     }
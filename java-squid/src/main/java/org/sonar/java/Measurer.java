@@ -19,9 +19,7 @@
  */
 package org.sonar.java;
 
-import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
-import com.google.common.io.Files;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.Measure;
@@ -36,19 +34,21 @@ import org.sonar.java.ast.visitors.LinesOfCodeVisitor;
 import org.sonar.java.ast.visitors.PublicApiChecker;
 import org.sonar.java.ast.visitors.StatementVisitor;
 import org.sonar.java.ast.visitors.SubscriptionVisitor;
+import org.sonar.java.incremental.AnalysisCache;
+import org.sonar.java.incremental.AnalysisCacheAware;
+import org.sonar.java.incremental.FileAnalysis;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.tree.ClassTree;
 import org.sonar.plugins.java.api.tree.MethodTree;
 import org.sonar.plugins.java.api.tree.NewClassTree;
 import org.sonar.plugins.java.api.tree.Tree;
 
-import java.io.IOException;
-import java.nio.charset.Charset;
+import javax.annotation.Nullable;
 import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
 
-public class Measurer extends SubscriptionVisitor implements CharsetAwareVisitor {
+public class Measurer extends SubscriptionVisitor implements AnalysisCacheAware {
 
   private static final Number[] LIMITS_COMPLEXITY_METHODS = {1, 2, 4, 6, 8, 10, 12};
   private static final Number[] LIMITS_COMPLEXITY_FILES = {0, 5, 10, 20, 30, 60, 90};
@@ -57,6 +57,8 @@ public class Measurer extends SubscriptionVisitor implements CharsetAwareVisitor
   private final Project project;
   private final boolean separateAccessorsFromMethods;
   private File sonarFile;
+  private AnalysisCache analysisCache;
+  private FileAnalysis recording;
   private int methods;
   private int accessors;
   private int complexityInMethods;
@@ -64,7 +66,6 @@ public class Measurer extends SubscriptionVisitor implements CharsetAwareVisitor
 
   private final Deque<ClassTree> classTrees = new LinkedList<ClassTree>();
   private final AccessorVisitor accessorVisitor;
-  private Charset charset;
   private double classes;
 
   public Measurer(Project project, SensorContext context, boolean separateAccessorsFromMethods) {
@@ -74,6 +75,16 @@ public class Measurer extends SubscriptionVisitor implements CharsetAwareVisitor
     accessorVisitor = new AccessorVisitor();
   }
 
+  @Override
+  public void setAnalysisCache(@Nullable AnalysisCache analysisCache) {
+    this.analysisCache = analysisCache;
+  }
+
+  @Override
+  public void replay(java.io.File file, FileAnalysis analysis) {
+    analysis.replayMeasures(sensorContext, File.fromIOFile(file, project));
+  }
+
   @Override
   public List<Tree.Kind> nodesToVisit() {
     return ImmutableList.of(Tree.Kind.CLASS, Tree.Kind.INTERFACE, Tree.Kind.ENUM, Tree.Kind.ANNOTATION_TYPE,
@@ -85,6 +96,7 @@ public class Measurer extends SubscriptionVisitor implements CharsetAwareVisitor
   @Override
   public void scanFile(JavaFileScannerContext context) {
     sonarFile = File.fromIOFile(context.getFile(), project);
+    recording = analysisCache == null ? null : analysisCache.recordingFor(context.getFile());
     classTrees.clear();
     methods = 0;
     complexityInMethods = 0;
@@ -111,21 +123,16 @@ public class Measurer extends SubscriptionVisitor implements CharsetAwareVisitor
     saveMetricOnFile(CoreMetrics.STATEMENTS, new StatementVisitor().numberOfStatements(context.getTree()));
     saveMetricOnFile(CoreMetrics.NCLOC, new LinesOfCodeVisitor().linesOfCode(context.getTree()));
 
-    sensorContext.saveMeasure(sonarFile, methodComplexityDistribution.build(true).setPersistenceMode(PersistenceMode.MEMORY));
+    saveMeasure(methodComplexityDistribution.build(true).setPersistenceMode(PersistenceMode.MEMORY));
 
     RangeDistributionBuilder fileComplexityDistribution = new RangeDistributionBuilder(CoreMetrics.FILE_COMPLEXITY_DISTRIBUTION, LIMITS_COMPLEXITY_FILES);
-    sensorContext.saveMeasure(sonarFile, fileComplexityDistribution.add(fileComplexity).build(true).setPersistenceMode(PersistenceMode.MEMORY));
+    saveMeasure(fileComplexityDistribution.add(fileComplexity).build(true).setPersistenceMode(PersistenceMode.MEMORY));
     saveLinesMetric();
 
   }
 
   private void saveLinesMetric() {
-    try {
-      String content = Files.toString(context.getFile(), charset);
-      saveMetricOnFile(CoreMetrics.LINES, content.split("(\r)?\n|\r", -1).length);
-    } catch (IOException e) {
-      Throwables.propagate(e);
-    }
+    saveMetricOnFile(CoreMetrics.LINES, context.getFileContent().lines());
   }
 
   @Override
@@ -164,11 +171,13 @@ public class Measurer extends SubscriptionVisitor implements CharsetAwareVisitor
   }
 
   private void saveMetricOnFile(Metric metric, double value) {
-    sensorContext.saveMeasure(sonarFile, new Measure(metric, value));
+    saveMeasure(new Measure(metric, value));
   }
 
-  @Override
-  public void setCharset(Charset charset) {
-    this.charset = charset;
+  private void saveMeasure(Measure measure) {
+    sensorContext.saveMeasure(sonarFile, measure);
+    if (recording != null) {
+      recording.recordMeasure(measure);
+    }
   }
 }
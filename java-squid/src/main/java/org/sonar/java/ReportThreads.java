@@ -0,0 +1,44 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java;
+
+import org.sonar.api.config.Settings;
+
+/**
+ * Number of threads reading the JaCoCo and JUnit reports of a project.
+ */
+public final class ReportThreads {
+
+  public static final String REPORT_THREADS_PROPERTY = "sonar.java.reportThreads";
+
+  private ReportThreads() {
+  }
+
+  /**
+   * @return value of the property when set, the number of available processors otherwise
+   */
+  public static int get(Settings settings) {
+    if (settings.hasKey(REPORT_THREADS_PROPERTY)) {
+      return Math.max(1, settings.getInt(REPORT_THREADS_PROPERTY));
+    }
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+}
@@ -31,16 +31,20 @@ import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
 import org.sonar.api.source.Highlightable;
 import org.sonar.api.source.Symbolizable;
+import org.sonar.java.incremental.AnalysisCache;
+import org.sonar.java.incremental.AnalysisCacheAware;
+import org.sonar.java.incremental.FileAnalysis;
 import org.sonar.plugins.java.api.CheckRegistrar;
 import org.sonar.plugins.java.api.JavaCheck;
 import org.sonar.squidbridge.api.CodeVisitor;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import java.io.File;
 import java.util.Collection;
 import java.util.List;
 
-public class SonarComponents implements BatchExtension {
+public class SonarComponents implements BatchExtension, AnalysisCacheAware {
 
   private final FileLinesContextFactory fileLinesContextFactory;
   private final ResourcePerspectives resourcePerspectives;
@@ -50,6 +54,7 @@ public class SonarComponents implements BatchExtension {
   private final Project project;
   private final List<Checks<JavaCheck>> checks;
   private Checks<JavaCheck> testChecks;
+  private AnalysisCache analysisCache;
 
   public SonarComponents(FileLinesContextFactory fileLinesContextFactory, ResourcePerspectives resourcePerspectives, Project project,
                          JavaClasspath javaClasspath, JavaTestClasspath javaTestClasspath,
@@ -82,15 +87,47 @@ public class SonarComponents implements BatchExtension {
   }
 
   public FileLinesContext fileLinesContextFor(File file) {
-    return fileLinesContextFactory.createFor(resourceFromIOFile(file));
+    FileLinesContext fileLinesContext = fileLinesContextFactory.createFor(resourceFromIOFile(file));
+    FileAnalysis recording = recordingFor(file);
+    return recording == null ? fileLinesContext : recording.record(fileLinesContext);
   }
 
   public Symbolizable symbolizableFor(File file) {
-    return resourcePerspectives.as(Symbolizable.class, resourceFromIOFile(file));
+    Symbolizable symbolizable = resourcePerspectives.as(Symbolizable.class, resourceFromIOFile(file));
+    FileAnalysis recording = recordingFor(file);
+    return recording == null || symbolizable == null ? symbolizable : recording.record(symbolizable);
   }
 
   public Highlightable highlightableFor(File file) {
-    return resourcePerspectives.as(Highlightable.class, resourceFromIOFile(file));
+    Highlightable highlightable = resourcePerspectives.as(Highlightable.class, resourceFromIOFile(file));
+    FileAnalysis recording = recordingFor(file);
+    return recording == null || highlightable == null ? highlightable : recording.record(highlightable);
+  }
+
+  @CheckForNull
+  private FileAnalysis recordingFor(File file) {
+    return analysisCache == null ? null : analysisCache.recordingFor(file);
+  }
+
+  /**
+   * Lines data, highlighting and symbols obtained from this object are recorded into the given cache.
+   */
+  @Override
+  public void setAnalysisCache(@Nullable AnalysisCache analysisCache) {
+    this.analysisCache = analysisCache;
+  }
+
+  @Override
+  public void replay(File file, FileAnalysis analysis) {
+    analysis.replayLines(fileLinesContextFactory.createFor(resourceFromIOFile(file)));
+    Highlightable highlightable = resourcePerspectives.as(Highlightable.class, resourceFromIOFile(file));
+    if (highlightable != null) {
+      analysis.replayHighlighting(highlightable);
+    }
+    Symbolizable symbolizable = resourcePerspectives.as(Symbolizable.class, resourceFromIOFile(file));
+    if (symbolizable != null) {
+      analysis.replaySymbols(symbolizable);
+    }
   }
 
   public List<File> getJavaClasspath() {
@@ -19,7 +19,10 @@
  */
 package org.sonar.java.ast;
 
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.Grammar;
 import com.sonar.sslr.api.RecognitionException;
@@ -28,19 +31,32 @@ import com.sonar.sslr.impl.ast.AstWalker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.java.ast.visitors.VisitorContext;
+import org.sonar.java.parser.sslr.ActionParser2;
+import org.sonar.plugins.java.api.FileContent;
 import org.sonar.squidbridge.AstScannerExceptionHandler;
 import org.sonar.squidbridge.CommentAnalyser;
 import org.sonar.squidbridge.ProgressReport;
 import org.sonar.squidbridge.SquidAstVisitor;
 import org.sonar.squidbridge.api.AnalysisException;
 import org.sonar.squidbridge.api.CodeVisitor;
+import org.sonar.squidbridge.api.SourceCode;
 import org.sonar.squidbridge.api.SourceCodeSearchEngine;
+import org.sonar.squidbridge.api.SourceFile;
 import org.sonar.squidbridge.api.SourceProject;
 import org.sonar.squidbridge.indexer.SquidIndex;
 import org.sonar.sslr.parser.LexerlessGrammar;
 
+import javax.annotation.Nullable;
 import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 public class AstScanner {
@@ -52,6 +68,9 @@ public class AstScanner {
   private final List<AstScannerExceptionHandler> astScannerExceptionHandlers = Lists.newArrayList();
   private final Parser<LexerlessGrammar> parser;
   private CommentAnalyser commentAnalyser;
+  private int threads = 1;
+  private Supplier<? extends Parser<LexerlessGrammar>> parserSupplier;
+  private SourceFileListener sourceFileListener;
 
   public AstScanner(Parser<LexerlessGrammar> parser) {
     this.parser = parser;
@@ -59,11 +78,27 @@ public class AstScanner {
   }
 
   /**
-   * Takes parser and index from another instance of {@link AstScanner}
+   * Takes parser, index and parallelism settings from another instance of {@link AstScanner}
    */
   public AstScanner(AstScanner astScanner) {
     this.parser = astScanner.parser;
     this.index = astScanner.index;
+    this.threads = astScanner.threads;
+    this.parserSupplier = astScanner.parserSupplier;
+  }
+
+  /**
+   * Enables parallel scan: files are parsed and prepared by {@link ParallelizableVisitor}s using the given number of worker threads,
+   * each of them with its own parser. Walks of files are still done one after another in the order of files,
+   * so that result of the scan does not depend on the number of threads.
+   *
+   * @param threads number of worker threads, <tt>1</tt> to scan files sequentially
+   * @param parserSupplier creates parsers for worker threads
+   */
+  public void setParallelism(int threads, Supplier<? extends Parser<LexerlessGrammar>> parserSupplier) {
+    Preconditions.checkArgument(threads > 0, "Number of threads must be positive");
+    this.threads = threads;
+    this.parserSupplier = parserSupplier;
   }
 
   public void scan(Iterable<File> files) {
@@ -92,19 +127,23 @@ public class AstScanner {
     AstWalker astWalker = new AstWalker(visitors);
     ProgressReport progressReport = new ProgressReport("Report about progress of Java AST analyzer", TimeUnit.SECONDS.toMillis(10));
     progressReport.start(Lists.newArrayList(files));
-    for (File file : files) {
-      context.setFile(file);
-      try {
-        AstNode ast = parser.parse(file);
-        astWalker.walkAndVisit(ast);
-        progressReport.nextFile();
-      } catch (RecognitionException e) {
-        LOG.error("Unable to parse source file : " + file.getAbsolutePath());
-        LOG.error(e.getMessage());
-
-        parseErrorWalkAndVisit(e, file);
-      } catch (Exception e) {
-        throw new AnalysisException(getAnalyisExceptionMessage(file), e);
+    if (threads > 1) {
+      parallelScan(files, context, astWalker, progressReport);
+    } else {
+      for (File file : files) {
+        context.setFile(file);
+        try {
+          FileContent content = readContent(parser, file);
+          context.setFileContent(content);
+          AstNode ast = parse(parser, file, content);
+          astWalker.walkAndVisit(ast);
+          progressReport.nextFile();
+        } catch (RecognitionException e) {
+          parseError(e, file);
+        } catch (Exception e) {
+          throw new AnalysisException(getAnalyisExceptionMessage(file), e);
+        }
+        fileScanned(file);
       }
     }
     progressReport.stop();
@@ -114,6 +153,128 @@ public class AstScanner {
     }
   }
 
+  /**
+   * Files are parsed and prepared by worker threads, at most two files per thread ahead of the walk,
+   * so that the number of syntax trees kept in memory stays bounded.
+   */
+  private void parallelScan(Iterable<File> files, VisitorContext context, AstWalker astWalker, ProgressReport progressReport) {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    final ThreadLocal<Parser<LexerlessGrammar>> parsers = new ThreadLocal<Parser<LexerlessGrammar>>() {
+      @Override
+      protected Parser<LexerlessGrammar> initialValue() {
+        return parserSupplier.get();
+      }
+    };
+    try {
+      Iterator<File> filesToPrepare = files.iterator();
+      Deque<PreparedFile> preparedFiles = new ArrayDeque<PreparedFile>();
+      while (filesToPrepare.hasNext() || !preparedFiles.isEmpty()) {
+        while (filesToPrepare.hasNext() && preparedFiles.size() < 2 * threads) {
+          final File file = filesToPrepare.next();
+          preparedFiles.add(new PreparedFile(file, executor.submit(new Callable<Object[]>() {
+            @Override
+            public Object[] call() {
+              return prepare(file, parsers.get());
+            }
+          })));
+        }
+        PreparedFile preparedFile = preparedFiles.remove();
+        walkPreparedFile(preparedFile, context, astWalker);
+        fileScanned(preparedFile.file);
+        progressReport.nextFile();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * @return content of the file, parsed tree of the file or the parse error, followed by the results of preparation of {@link ParallelizableVisitor}s
+   */
+  private Object[] prepare(File file, Parser<LexerlessGrammar> workerParser) {
+    Object[] result = new Object[visitors.size() + 2];
+    FileContent content = readContent(workerParser, file);
+    result[0] = content;
+    AstNode ast;
+    try {
+      ast = parse(workerParser, file, content);
+    } catch (RecognitionException e) {
+      result[1] = e;
+      return result;
+    }
+    result[1] = ast;
+    for (int i = 0; i < visitors.size(); i++) {
+      if (visitors.get(i) instanceof ParallelizableVisitor) {
+        result[i + 2] = ((ParallelizableVisitor) visitors.get(i)).prepareFile(file, ast);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Content of the file is read only once when the parser is able to share it with visitors through {@link VisitorContext#getFileContent()}.
+   */
+  @Nullable
+  private static FileContent readContent(Parser<LexerlessGrammar> parser, File file) {
+    return parser instanceof ActionParser2 ? ((ActionParser2) parser).readContent(file) : null;
+  }
+
+  private static AstNode parse(Parser<LexerlessGrammar> parser, File file, @Nullable FileContent content) {
+    return content == null ? parser.parse(file) : ((ActionParser2) parser).parse(content);
+  }
+
+  private void walkPreparedFile(PreparedFile preparedFile, VisitorContext context, AstWalker astWalker) {
+    File file = preparedFile.file;
+    context.setFile(file);
+    Object[] prepared;
+    try {
+      prepared = Uninterruptibles.getUninterruptibly(preparedFile.future);
+    } catch (ExecutionException e) {
+      throw new AnalysisException(getAnalyisExceptionMessage(file), e.getCause());
+    }
+    context.setFileContent((FileContent) prepared[0]);
+    if (prepared[1] instanceof RecognitionException) {
+      parseError((RecognitionException) prepared[1], file);
+      return;
+    }
+    try {
+      for (int i = 0; i < visitors.size(); i++) {
+        if (visitors.get(i) instanceof ParallelizableVisitor) {
+          ((ParallelizableVisitor) visitors.get(i)).setPreparedFile(prepared[i + 2]);
+        }
+      }
+      astWalker.walkAndVisit((AstNode) prepared[1]);
+    } catch (Exception e) {
+      throw new AnalysisException(getAnalyisExceptionMessage(file), e);
+    }
+  }
+
+  private void fileScanned(File file) {
+    if (sourceFileListener != null) {
+      SourceCode sourceFile = index.search(file.getAbsolutePath());
+      if (sourceFile instanceof SourceFile) {
+        sourceFileListener.sourceFileScanned(file, (SourceFile) sourceFile);
+      }
+    }
+  }
+
+  private static class PreparedFile {
+    private final File file;
+    private final Future<Object[]> future;
+
+    PreparedFile(File file, Future<Object[]> future) {
+      this.file = file;
+      this.future = future;
+    }
+  }
+
+  private void parseError(RecognitionException e, File file) {
+    LOG.error("Unable to parse source file : " + file.getAbsolutePath());
+    LOG.error(e.getMessage());
+
+    parseErrorWalkAndVisit(e, file);
+  }
+
   private void parseErrorWalkAndVisit(RecognitionException e, File file) {
     try {
       // Process the exception
@@ -149,6 +310,13 @@ public class AstScanner {
     return index;
   }
 
+  /**
+   * @param sourceFileListener notified once each file has been visited, <tt>null</tt> to keep results of files only in the index
+   */
+  public void setSourceFileListener(@Nullable SourceFileListener sourceFileListener) {
+    this.sourceFileListener = sourceFileListener;
+  }
+
   public void setCommentAnalyser(CommentAnalyser commentAnalyser) {
     this.commentAnalyser = commentAnalyser;
   }
@@ -0,0 +1,46 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast;
+
+import com.sonar.sslr.api.AstNode;
+
+import javax.annotation.Nullable;
+import java.io.File;
+
+/**
+ * Visitor able to do part of its work on a file before the file is walked.
+ * When {@link AstScanner} runs with several threads, this part is executed by worker threads, concurrently for several files,
+ * while the walk itself is always done by the scanning thread in order of files.
+ */
+public interface ParallelizableVisitor {
+
+  /**
+   * Computes data depending only on the given file and its syntax tree.
+   * Can be invoked concurrently for several files, so can rely neither on the visitor context nor on any state updated during walks.
+   */
+  @Nullable
+  Object prepareFile(File file, AstNode astNode);
+
+  /**
+   * Hands over the result of {@link #prepareFile(File, AstNode)} for the file which is about to be walked.
+   */
+  void setPreparedFile(@Nullable Object preparedFile);
+
+}
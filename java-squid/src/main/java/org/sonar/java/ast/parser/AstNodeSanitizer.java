@@ -22,6 +22,7 @@ package org.sonar.java.ast.parser;
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.Token;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class AstNodeSanitizer {
@@ -53,6 +54,11 @@ public class AstNodeSanitizer {
         }
       }
 
+      if (children instanceof ArrayList) {
+        // Children are all known once the tree is built
+        ((ArrayList<AstNode>) children).trimToSize();
+      }
+
       AstNodeReflector.setToken(astNode, token);
       astNode.setFromIndex(fromIndex);
       astNode.setToIndex(toIndex);
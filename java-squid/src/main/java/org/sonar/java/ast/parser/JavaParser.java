@@ -25,16 +25,29 @@ import java.nio.charset.Charset;
 
 public class JavaParser {
 
+  /**
+   * Building the grammar is costly and its result does not depend on the charset, so it is done only once,
+   * and shared by all the parsers created afterwards.
+   */
+  private static ActionParser2 grammarHolder;
+
   private JavaParser() {
   }
 
   public static ActionParser2 createParser(Charset charset) {
-    return new ActionParser2(
-      charset,
-      JavaLexer.createGrammarBuilder(),
-      JavaGrammar.class,
-      new TreeFactory(),
-      JavaLexer.COMPILATION_UNIT);
+    return new ActionParser2(charset, grammarHolder());
+  }
+
+  private static synchronized ActionParser2 grammarHolder() {
+    if (grammarHolder == null) {
+      grammarHolder = new ActionParser2(
+        Charset.defaultCharset(),
+        JavaLexer.createGrammarBuilder(),
+        JavaGrammar.class,
+        new TreeFactory(),
+        JavaLexer.COMPILATION_UNIT);
+    }
+    return grammarHolder;
   }
 
 }
@@ -429,7 +429,8 @@ public class TreeFactory {
           for (VariableTreeImpl variable : (VariableDeclaratorListTreeImpl) member) {
             builder.add(variable);
           }
-        } else if (member instanceof Tree) {
+        } else if (member instanceof Tree && !(member instanceof SyntaxToken)) {
+          // semicolon between enum constants and declarations is a token
           builder.add((Tree) member);
         }
       }
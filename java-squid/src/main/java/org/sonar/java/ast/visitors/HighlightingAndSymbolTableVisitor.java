@@ -0,0 +1,305 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast.visitors;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.Trivia;
+import org.sonar.api.source.Highlightable;
+import org.sonar.api.source.Symbol;
+import org.sonar.api.source.Symbolizable;
+import org.sonar.java.ast.api.JavaKeyword;
+import org.sonar.java.model.InternalSyntaxToken;
+import org.sonar.java.model.JavaTree;
+import org.sonar.java.resolve.SemanticModel;
+import org.sonar.java.resolve.Symbols;
+import org.sonar.plugins.java.api.FileContent;
+import org.sonar.plugins.java.api.tree.AnnotationTree;
+import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.EnumConstantTree;
+import org.sonar.plugins.java.api.tree.IdentifierTree;
+import org.sonar.plugins.java.api.tree.ImportTree;
+import org.sonar.plugins.java.api.tree.LabeledStatementTree;
+import org.sonar.plugins.java.api.tree.LiteralTree;
+import org.sonar.plugins.java.api.tree.MemberSelectExpressionTree;
+import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.SyntaxToken;
+import org.sonar.plugins.java.api.tree.Tree;
+import org.sonar.plugins.java.api.tree.TypeParameterTree;
+import org.sonar.plugins.java.api.tree.VariableTree;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Computes syntax highlighting and symbol table of a file with a single walk of its resolved syntax tree followed by a single pass over its tokens.
+ * Ranges are collected in int arrays and handed over to {@link Highlightable} and {@link Symbolizable} once the whole file is done,
+ * highlightings being sorted by start offset.
+ */
+public class HighlightingAndSymbolTableVisitor extends BaseTreeVisitor {
+
+  private static final String[] HIGHLIGHTING_TYPES = {"k", "s", "c", "a", "cppd"};
+  private static final int KEYWORD = 0;
+  private static final int STRING = 1;
+  private static final int CONSTANT = 2;
+  private static final int ANNOTATION = 3;
+  private static final int COMMENT = 4;
+
+  private static final Set<String> KEYWORDS = ImmutableSet.copyOf(JavaKeyword.keywordValues());
+
+  private final FileContent content;
+  private final SemanticModel semanticModel;
+
+  /**
+   * Start offset, end offset and index in {@link #HIGHLIGHTING_TYPES} of each highlighting.
+   */
+  private final IntList highlightings = new IntList();
+  /**
+   * Start and end offsets of each symbol.
+   */
+  private final IntList symbols = new IntList();
+  /**
+   * Offset of each reference followed by the index of its symbol.
+   */
+  private final IntList references = new IntList();
+
+  /**
+   * @param semanticModel <tt>null</tt> to compute only syntax highlighting
+   */
+  public HighlightingAndSymbolTableVisitor(FileContent content, @Nullable SemanticModel semanticModel) {
+    this.content = content;
+    this.semanticModel = semanticModel;
+  }
+
+  /**
+   * @param symbolizable <tt>null</tt> when no semantic model was given
+   */
+  public void scanFile(CompilationUnitTree tree, Highlightable highlightable, @Nullable Symbolizable symbolizable) {
+    scan(tree);
+    visitTokens(tree);
+    saveHighlighting(highlightable);
+    if (symbolizable != null) {
+      saveSymbolTable(symbolizable);
+    }
+  }
+
+  private void visitTokens(CompilationUnitTree tree) {
+    //FIXME relying on ASTNode to iterate over tokens.
+    for (Token token : ((JavaTree) tree).getAstNode().getTokens()) {
+      if (token.hasTrivia()) {
+        for (Trivia trivia : token.getTrivia()) {
+          if (trivia.isComment()) {
+            highlight(trivia.getToken().getLine(), trivia.getToken().getColumn(), trivia.getToken().getValue(), COMMENT);
+          }
+        }
+      }
+      if (KEYWORDS.contains(token.getValue())) {
+        highlight(token.getLine(), token.getColumn(), token.getValue(), KEYWORD);
+      }
+    }
+  }
+
+  @Override
+  public void visitLiteral(LiteralTree tree) {
+    int type;
+    if (tree.is(Tree.Kind.STRING_LITERAL, Tree.Kind.CHAR_LITERAL)) {
+      type = STRING;
+    } else if (tree.is(Tree.Kind.INT_LITERAL, Tree.Kind.LONG_LITERAL, Tree.Kind.FLOAT_LITERAL, Tree.Kind.DOUBLE_LITERAL)) {
+      type = CONSTANT;
+    } else {
+      // boolean and null literals are keywords
+      return;
+    }
+    SyntaxToken token = tree.token();
+    highlight(token.line(), token.column(), token.text(), type);
+  }
+
+  @Override
+  public void visitAnnotation(AnnotationTree annotationTree) {
+    highlightings.add(((JavaTree) annotationTree).getFromIndex(), ((JavaTree) annotationTree.annotationType()).getToIndex(), ANNOTATION);
+    super.visitAnnotation(annotationTree);
+  }
+
+  /**
+   * @param line starts from 1
+   * @param column starts from 0
+   */
+  private void highlight(int line, int column, String text, int type) {
+    int start = content.lineStart(line) + column;
+    highlightings.add(start, start + text.length(), type);
+  }
+
+  private void saveHighlighting(Highlightable highlightable) {
+    int count = highlightings.size() / 3;
+    long[] byStart = new long[count];
+    for (int i = 0; i < count; i++) {
+      byStart[i] = ((long) highlightings.get(3 * i) << 32) | i;
+    }
+    Arrays.sort(byStart);
+    Highlightable.HighlightingBuilder builder = highlightable.newHighlighting();
+    for (long startAndIndex : byStart) {
+      int i = 3 * (int) startAndIndex;
+      builder.highlight(highlightings.get(i), highlightings.get(i + 1), HIGHLIGHTING_TYPES[highlightings.get(i + 2)]);
+    }
+    builder.done();
+  }
+
+  private void saveSymbolTable(Symbolizable symbolizable) {
+    Symbolizable.SymbolTableBuilder builder = symbolizable.newSymbolTableBuilder();
+    Symbol[] created = new Symbol[symbols.size() / 2];
+    for (int i = 0; i < created.length; i++) {
+      created[i] = builder.newSymbol(symbols.get(2 * i), symbols.get(2 * i + 1));
+    }
+    for (int i = 0; i < references.size(); i += 2) {
+      builder.newReference(created[references.get(i + 1)], references.get(i));
+    }
+    symbolizable.setSymbolTable(builder.build());
+  }
+
+  @Override
+  public void visitClass(ClassTree tree) {
+    if (semanticModel != null) {
+      IdentifierTree simpleName = tree.simpleName();
+      if (simpleName != null) {
+        createSymbol(simpleName, tree.symbol().usages());
+      }
+      for (TypeParameterTree typeParameterTree : tree.typeParameters()) {
+        createSymbol(typeParameterTree.identifier(), typeParameterTree);
+      }
+    }
+    super.visitClass(tree);
+  }
+
+  @Override
+  public void visitVariable(VariableTree tree) {
+    if (semanticModel != null) {
+      createSymbol(tree.simpleName(), tree.symbol().usages());
+    }
+    super.visitVariable(tree);
+  }
+
+  @Override
+  public void visitEnumConstant(EnumConstantTree tree) {
+    if (semanticModel != null) {
+      createSymbol(tree.simpleName(), tree);
+    }
+    super.visitEnumConstant(tree);
+  }
+
+  @Override
+  public void visitMethod(MethodTree tree) {
+    if (semanticModel != null) {
+      //as long as SONAR-5894 is not fixed, do not provide references to enum constructors
+      if (tree.symbol().returnType() == null && tree.symbol().owner().isEnum()) {
+        createSymbol(tree.simpleName(), Lists.<IdentifierTree>newArrayList());
+      } else {
+        createSymbol(tree.simpleName(), tree.symbol().usages());
+      }
+    }
+    super.visitMethod(tree);
+  }
+
+  @Override
+  public void visitLabeledStatement(LabeledStatementTree tree) {
+    if (semanticModel != null) {
+      createSymbol(tree.label(), tree.symbol().usages());
+    }
+    super.visitLabeledStatement(tree);
+  }
+
+  @Override
+  public void visitImport(ImportTree tree) {
+    if (semanticModel != null) {
+      IdentifierTree identifierTree;
+      if (tree.qualifiedIdentifier().is(Tree.Kind.IDENTIFIER)) {
+        identifierTree = (IdentifierTree) tree.qualifiedIdentifier();
+      } else {
+        identifierTree = ((MemberSelectExpressionTree) tree.qualifiedIdentifier()).identifier();
+      }
+      // Exclude on demands imports
+      if (!"*".equals(identifierTree.name())) {
+        createSymbol(identifierTree, tree);
+      }
+    }
+    super.visitImport(tree);
+  }
+
+  private void createSymbol(IdentifierTree declaration, Tree tree) {
+    org.sonar.plugins.java.api.semantic.Symbol semanticSymbol = semanticModel.getSymbol(tree);
+    if (semanticSymbol == null) {
+      semanticSymbol = Symbols.unknownSymbol;
+    }
+    createSymbol(declaration, semanticSymbol.usages());
+  }
+
+  private void createSymbol(IdentifierTree declaration, List<IdentifierTree> usages) {
+    int symbol = symbols.size() / 2;
+    symbols.add(startOffsetFor(declaration), endOffsetFor(declaration));
+    for (IdentifierTree usage : usages) {
+      references.add(startOffsetFor(usage), symbol);
+    }
+  }
+
+  private static int startOffsetFor(IdentifierTree tree) {
+    return ((InternalSyntaxToken) tree.identifierToken()).getFromIndex();
+  }
+
+  private static int endOffsetFor(IdentifierTree tree) {
+    return ((InternalSyntaxToken) tree.identifierToken()).getFromIndex() + tree.identifierToken().text().length();
+  }
+
+  private static class IntList {
+    private int[] values = new int[64];
+    private int size;
+
+    void add(int a, int b) {
+      ensureCapacity(2);
+      values[size++] = a;
+      values[size++] = b;
+    }
+
+    void add(int a, int b, int c) {
+      ensureCapacity(3);
+      values[size++] = a;
+      values[size++] = b;
+      values[size++] = c;
+    }
+
+    private void ensureCapacity(int more) {
+      if (size + more > values.length) {
+        values = Arrays.copyOf(values, Math.max(2 * values.length, size + more));
+      }
+    }
+
+    int get(int i) {
+      return values[i];
+    }
+
+    int size() {
+      return size;
+    }
+  }
+
+}
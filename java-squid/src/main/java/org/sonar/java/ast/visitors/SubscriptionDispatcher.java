@@ -0,0 +1,172 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast.visitors;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.sonar.sslr.api.Token;
+import org.sonar.java.model.InternalSyntaxToken;
+import org.sonar.java.model.JavaTree;
+import org.sonar.plugins.java.api.JavaFileScanner;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.SyntaxToken;
+import org.sonar.plugins.java.api.tree.SyntaxTrivia;
+import org.sonar.plugins.java.api.tree.Tree;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Executes several {@link SubscriptionVisitor}s with a single walk of the syntax tree and a single pass over its tokens:
+ * each node is only dispatched to the visitors subscribed to its kind.
+ * Each visitor receives exactly the same sequence of calls as when scanning the file on its own.
+ */
+public class SubscriptionDispatcher implements JavaFileScanner {
+
+  private static final SubscriptionVisitor[] NO_VISITORS = new SubscriptionVisitor[0];
+
+  private final List<SubscriptionVisitor> visitors;
+  private final SubscriptionVisitor[][] visitorsByKind = new SubscriptionVisitor[Tree.Kind.values().length][];
+  private SubscriptionVisitor[] tokenVisitors;
+  private SubscriptionVisitor[] triviaVisitors;
+
+  public SubscriptionDispatcher(List<SubscriptionVisitor> visitors) {
+    this.visitors = ImmutableList.copyOf(visitors);
+  }
+
+  /**
+   * @return true if the given scanner is a {@link SubscriptionVisitor} which does not customize the way it scans files,
+   * and can thus be executed by a dispatcher
+   */
+  public static boolean isDispatchable(JavaFileScanner scanner) {
+    if (!(scanner instanceof SubscriptionVisitor)) {
+      return false;
+    }
+    for (Class<?> c = scanner.getClass(); c != SubscriptionVisitor.class; c = c.getSuperclass()) {
+      if (declares(c, "scanFile", JavaFileScannerContext.class)
+        || declares(c, "scanTree", Tree.class)
+        || declares(c, "visitTokens", CompilationUnitTree.class)
+        || declares(c, "isSubscribed", Tree.class)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean declares(Class<?> c, String methodName, Class<?> parameterType) {
+    try {
+      c.getDeclaredMethod(methodName, parameterType);
+      return true;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public void scanFile(JavaFileScannerContext context) {
+    boolean hasNodesToVisit = index();
+    for (SubscriptionVisitor visitor : visitors) {
+      visitor.setContext(context);
+    }
+    if (hasNodesToVisit) {
+      visit(context.getTree());
+    }
+    if (tokenVisitors.length > 0) {
+      visitTokens(context.getTree());
+    }
+  }
+
+  /**
+   * Subscriptions are indexed for each file, as they are for each file when visitors scan files on their own.
+   *
+   * @return true if at least one visitor is subscribed to a kind of node
+   */
+  private boolean index() {
+    List<List<SubscriptionVisitor>> byKind = Lists.newArrayList();
+    for (int i = 0; i < visitorsByKind.length; i++) {
+      byKind.add(Lists.<SubscriptionVisitor>newArrayList());
+    }
+    List<SubscriptionVisitor> tokens = Lists.newArrayList();
+    List<SubscriptionVisitor> trivias = Lists.newArrayList();
+    for (SubscriptionVisitor visitor : visitors) {
+      Collection<Tree.Kind> kinds = EnumSet.noneOf(Tree.Kind.class);
+      kinds.addAll(visitor.nodesToVisit());
+      for (Tree.Kind kind : kinds) {
+        byKind.get(kind.ordinal()).add(visitor);
+      }
+      if (kinds.contains(Tree.Kind.TOKEN) || kinds.contains(Tree.Kind.TRIVIA)) {
+        tokens.add(visitor);
+      }
+      if (kinds.contains(Tree.Kind.TRIVIA)) {
+        trivias.add(visitor);
+      }
+    }
+    boolean hasNodesToVisit = false;
+    for (int i = 0; i < visitorsByKind.length; i++) {
+      List<SubscriptionVisitor> subscribed = byKind.get(i);
+      visitorsByKind[i] = subscribed.isEmpty() ? NO_VISITORS : subscribed.toArray(new SubscriptionVisitor[subscribed.size()]);
+      hasNodesToVisit |= !subscribed.isEmpty();
+    }
+    tokenVisitors = tokens.toArray(new SubscriptionVisitor[tokens.size()]);
+    triviaVisitors = trivias.toArray(new SubscriptionVisitor[trivias.size()]);
+    return hasNodesToVisit;
+  }
+
+  private void visit(Tree tree) {
+    JavaTree javaTree = (JavaTree) tree;
+    Tree.Kind kind = javaTree.getKind();
+    SubscriptionVisitor[] subscribed = kind == null ? NO_VISITORS : visitorsByKind[kind.ordinal()];
+    for (SubscriptionVisitor visitor : subscribed) {
+      visitor.visitNode(tree);
+    }
+    if (!javaTree.isLeaf()) {
+      for (Iterator<Tree> iter = javaTree.childrenIterator(); iter.hasNext(); ) {
+        Tree next = iter.next();
+        if (next != null) {
+          visit(next);
+        }
+      }
+    }
+    for (SubscriptionVisitor visitor : subscribed) {
+      visitor.leaveNode(tree);
+    }
+  }
+
+  private void visitTokens(CompilationUnitTree compilationUnitTree) {
+    //FIXME relying on ASTNode to iterate over tokens.
+    for (Token token : ((JavaTree) compilationUnitTree).getAstNode().getTokens()) {
+      SyntaxToken syntaxToken = new InternalSyntaxToken(token);
+      for (SubscriptionVisitor visitor : tokenVisitors) {
+        visitor.visitToken(syntaxToken);
+      }
+      if (triviaVisitors.length > 0) {
+        for (SyntaxTrivia syntaxTrivia : syntaxToken.trivias()) {
+          for (SubscriptionVisitor visitor : triviaVisitors) {
+            visitor.visitTrivia(syntaxTrivia);
+          }
+        }
+      }
+    }
+  }
+
+}
@@ -31,6 +31,7 @@ import org.sonar.plugins.java.api.tree.SyntaxTrivia;
 import org.sonar.plugins.java.api.tree.Tree;
 
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
 
@@ -59,26 +60,36 @@ public abstract class SubscriptionVisitor implements JavaFileScanner {
     //default behaviour is to do nothing
   }
 
+  /**
+   * Note that when this method is not overridden, {@link org.sonar.java.model.VisitorsBridge} does not invoke it, but
+   * dispatches nodes and tokens to this visitor from a walk shared with other subscription visitors, see {@link SubscriptionDispatcher}.
+   */
   @Override
   public void scanFile(JavaFileScannerContext context) {
-    this.context = context;
-    semanticModel = (SemanticModel) context.getSemanticModel();
+    setContext(context);
     scanTree(context.getTree());
     visitTokens(context.getTree());
   }
 
+  void setContext(JavaFileScannerContext context) {
+    this.context = context;
+    semanticModel = (SemanticModel) context.getSemanticModel();
+  }
+
   protected void scanTree(Tree tree) {
-    nodesToVisit = nodesToVisit();
+    nodesToVisit = kinds(nodesToVisit());
     visit(tree);
   }
 
   protected void visitTokens(CompilationUnitTree compilationUnitTree) {
-    if (nodesToVisit().contains(Tree.Kind.TOKEN) || nodesToVisit().contains(Tree.Kind.TRIVIA)) {
+    Collection<Tree.Kind> kinds = kinds(nodesToVisit());
+    boolean visitTrivias = kinds.contains(Tree.Kind.TRIVIA);
+    if (kinds.contains(Tree.Kind.TOKEN) || visitTrivias) {
       //FIXME relying on ASTNode to iterate over tokens.
       for (Token token : ((JavaTree) compilationUnitTree).getAstNode().getTokens()) {
         SyntaxToken syntaxToken = new InternalSyntaxToken(token);
         visitToken(syntaxToken);
-        if (nodesToVisit().contains(Tree.Kind.TRIVIA)) {
+        if (visitTrivias) {
           for (SyntaxTrivia syntaxTrivia : syntaxToken.trivias()) {
             visitTrivia(syntaxTrivia);
           }
@@ -87,6 +98,12 @@ public abstract class SubscriptionVisitor implements JavaFileScanner {
     }
   }
 
+  private static Collection<Tree.Kind> kinds(Collection<Tree.Kind> nodesToVisit) {
+    EnumSet<Tree.Kind> result = EnumSet.noneOf(Tree.Kind.class);
+    result.addAll(nodesToVisit);
+    return result;
+  }
+
 
   private void visit(Tree tree) {
     boolean isSubscribed = isSubscribed(tree);
@@ -21,6 +21,7 @@ package org.sonar.java.ast.visitors;
 
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.Token;
+import org.sonar.plugins.java.api.FileContent;
 import org.sonar.squidbridge.CommentAnalyser;
 import org.sonar.squidbridge.SquidAstVisitorContext;
 import org.sonar.squidbridge.api.CheckMessage;
@@ -30,7 +31,9 @@ import org.sonar.squidbridge.api.SourceFile;
 import org.sonar.squidbridge.api.SourceProject;
 import org.sonar.sslr.parser.LexerlessGrammar;
 
+import javax.annotation.Nullable;
 import java.io.File;
+import java.nio.charset.Charset;
 import java.util.Stack;
 
 /**
@@ -41,6 +44,7 @@ public class VisitorContext extends SquidAstVisitorContext<LexerlessGrammar> {
   private final Stack<SourceCode> sourceCodeStack = new Stack<SourceCode>();
   private final SourceProject project;
   private File file;
+  private FileContent fileContent;
   private CommentAnalyser commentAnalyser;
 
   public VisitorContext(SourceProject project) {
@@ -83,6 +87,27 @@ public class VisitorContext extends SquidAstVisitorContext<LexerlessGrammar> {
   public void setFile(File file) {
     popTillSourceProject();
     this.file = file;
+    this.fileContent = null;
+  }
+
+  public void setFileContent(@Nullable FileContent fileContent) {
+    this.fileContent = fileContent;
+  }
+
+  /**
+   * @return content of the current file as read by the parser, <tt>null</tt> if the parser does not share it
+   */
+  @Nullable
+  public FileContent getFileContent() {
+    return fileContent;
+  }
+
+  /**
+   * @return content of the current file as read by the parser, or read using the given charset if the parser does not share it
+   */
+  public static FileContent fileContent(SquidAstVisitorContext<?> context, Charset charset) {
+    FileContent content = context instanceof VisitorContext ? ((VisitorContext) context).getFileContent() : null;
+    return content == null ? FileContent.read(context.getFile(), charset) : content;
   }
 
   private void popTillSourceProject() {
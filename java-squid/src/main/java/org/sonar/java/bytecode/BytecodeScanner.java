@@ -19,11 +19,14 @@
  */
 package org.sonar.java.bytecode;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 import org.sonar.java.bytecode.asm.AsmClass;
 import org.sonar.java.bytecode.asm.AsmClassProvider;
 import org.sonar.java.bytecode.asm.AsmClassProvider.DETAIL_LEVEL;
 import org.sonar.java.bytecode.asm.AsmClassProviderImpl;
 import org.sonar.java.bytecode.asm.AsmMethod;
+import org.sonar.java.bytecode.loader.ClassFileStore;
 import org.sonar.java.bytecode.loader.SquidClassLoader;
 import org.sonar.java.bytecode.visitor.BytecodeVisitor;
 import org.sonar.plugins.java.api.JavaResourceLocator;
@@ -32,22 +35,52 @@ import org.sonar.squidbridge.api.CodeScanner;
 import org.sonar.squidbridge.api.CodeVisitor;
 import org.sonar.squidbridge.indexer.SquidIndex;
 
+import javax.annotation.Nullable;
 import java.io.File;
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class BytecodeScanner extends CodeScanner<BytecodeVisitor> {
 
+  private static final int PARSED_CLASSES_PER_THREAD = 16;
+
   private final SquidIndex indexer;
   private JavaResourceLocator javaResourceLocator;
+  private int threads = 1;
+  private ClassFileStore classFileStore;
 
   public BytecodeScanner(SquidIndex indexer, JavaResourceLocator javaResourceLocator) {
     this.indexer = indexer;
     this.javaResourceLocator = javaResourceLocator;
   }
 
+  /**
+   * Enables parallel loading of bytecode: class files are read and parsed using the given number of worker threads,
+   * while the bytecode graph is still built, linked and visited by the scanning thread in order of classes,
+   * so that result of the scan does not depend on the number of threads.
+   *
+   * @param threads number of worker threads, <tt>1</tt> to scan classes sequentially
+   */
+  public void setParallelism(int threads) {
+    Preconditions.checkArgument(threads > 0, "Number of threads must be positive");
+    this.threads = threads;
+  }
+
+  /**
+   * Class files will be read from the given store, so that JAR files and class files are shared with the semantic analysis of source files.
+   */
+  public void setClassFileStore(@Nullable ClassFileStore classFileStore) {
+    this.classFileStore = classFileStore;
+  }
+
   public BytecodeScanner scan(Collection<File> bytecodeFilesOrDirectories) {
-    ClassLoader classLoader = ClassLoaderBuilder.create(bytecodeFilesOrDirectories);
+    ClassLoader classLoader = classFileStore == null ?
+      ClassLoaderBuilder.create(bytecodeFilesOrDirectories) : classFileStore.createClassLoader(Lists.newArrayList(bytecodeFilesOrDirectories));
     scanClasses(javaResourceLocator.classKeys(), new AsmClassProviderImpl(classLoader));
     // TODO unchecked cast
     ((SquidClassLoader) classLoader).close();
@@ -85,8 +118,34 @@ public class BytecodeScanner extends CodeScanner<BytecodeVisitor> {
   }
 
   private void loadByteCodeInformation(Collection<String> keys, AsmClassProvider classProvider) {
-    for (String key : keys) {
-      classProvider.getClass(key, DETAIL_LEVEL.STRUCTURE_AND_CALLS);
+    if (threads > 1 && classProvider instanceof AsmClassProviderImpl) {
+      parallelLoadByteCodeInformation(keys, (AsmClassProviderImpl) classProvider);
+    } else {
+      for (String key : keys) {
+        classProvider.getClass(key, DETAIL_LEVEL.STRUCTURE_AND_CALLS);
+      }
+    }
+  }
+
+  /**
+   * Class files are parsed by worker threads, at most {@link #PARSED_CLASSES_PER_THREAD} classes per thread ahead of the scanning thread,
+   * so that the number of parsed classes kept in memory stays bounded.
+   */
+  private void parallelLoadByteCodeInformation(Collection<String> keys, AsmClassProviderImpl classProvider) {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      Iterator<String> keysToParse = keys.iterator();
+      Deque<String> parsedKeys = new ArrayDeque<String>();
+      while (keysToParse.hasNext() || !parsedKeys.isEmpty()) {
+        while (keysToParse.hasNext() && parsedKeys.size() < PARSED_CLASSES_PER_THREAD * threads) {
+          String key = keysToParse.next();
+          classProvider.parseAhead(key, executor);
+          parsedKeys.add(key);
+        }
+        classProvider.getClass(parsedKeys.remove(), DETAIL_LEVEL.STRUCTURE_AND_CALLS);
+      }
+    } finally {
+      executor.shutdownNow();
     }
   }
 
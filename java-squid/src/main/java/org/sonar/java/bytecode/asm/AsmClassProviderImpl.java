@@ -19,22 +19,35 @@
  */
 package org.sonar.java.bytecode.asm;
 
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.Uninterruptibles;
 import org.apache.commons.io.IOUtils;
 import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 public class AsmClassProviderImpl extends AsmClassProvider {
 
   private static final Logger LOG = LoggerFactory.getLogger(AsmClassProviderImpl.class);
 
   private final ClassLoader classLoader;
+  /**
+   * Accessed only by the thread building the {@link AsmClass} graph.
+   */
   private final Map<String, AsmClass> asmClassCache = new HashMap<String, AsmClass>();
+  private final Map<String, Future<ClassNode>> parsedClasses = new HashMap<String, Future<ClassNode>>();
 
   public AsmClassProviderImpl() {
     this.classLoader = Thread.currentThread().getContextClassLoader();
@@ -66,23 +79,69 @@ public class AsmClassProviderImpl extends AsmClassProvider {
     return asmClass;
   }
 
+  /**
+   * Parses the class file of the given class in a task of the given executor, so that it is ready once the class gets decorated.
+   * Only parsing is done by the executor: {@link AsmClass} graph is built by the thread calling {@link #getClass(String, DETAIL_LEVEL)}.
+   */
+  public void parseAhead(final String internalName, ExecutorService executor) {
+    AsmClass asmClass = asmClassCache.get(internalName);
+    if (asmClass != null && !DETAIL_LEVEL.STRUCTURE_AND_CALLS.isGreaterThan(asmClass.getDetailLevel())) {
+      return;
+    }
+    parsedClasses.put(internalName, executor.submit(new Callable<ClassNode>() {
+      @Override
+      public ClassNode call() throws IOException {
+        ClassNode classNode = new ClassNode(Opcodes.ASM5);
+        read(internalName).accept(classNode, 0);
+        return classNode;
+      }
+    }));
+  }
+
   private void decoracteAsmClassFromBytecode(AsmClass asmClass, DETAIL_LEVEL level) {
-    InputStream input = null;
     try {
-
       AsmClassVisitor classVisitor = new AsmClassVisitor(this, asmClass, level);
-      input = classLoader.getResourceAsStream(asmClass.getInternalName() + ".class");
-      ClassReader asmReader = new ClassReader(input);
-      asmReader.accept(classVisitor, 0);
+      // parsed class is kept until the class is fully decorated
+      Future<ClassNode> parsedClass = level == DETAIL_LEVEL.STRUCTURE_AND_CALLS ? parsedClasses.remove(asmClass.getInternalName()) : parsedClasses.get(asmClass.getInternalName());
+      if (parsedClass == null) {
+        read(asmClass.getInternalName()).accept(classVisitor, 0);
+      } else {
+        getParsedClass(parsedClass).accept(classVisitor);
+      }
     } catch (IOException e) {
       LOG.warn("Class '" + asmClass.getInternalName() + "' is not accessible through the ClassLoader.");
     } catch (SecurityException e) {
       LOG.warn("Class '" + asmClass.getInternalName() + "' is not accessible through the ClassLoader. One signed jar seems to be corrupted.");
     } catch (Exception e) {
       LOG.error("Unable to process bytecode of class '" + asmClass.getInternalName() + "'", e);
+    }
+  }
+
+  private ClassReader read(String internalName) throws IOException {
+    String name = internalName + ".class";
+    if (classLoader instanceof SquidClassLoader) {
+      // bytes are read at once by loaders of SquidClassLoader, no need to go through a stream
+      byte[] bytes = ((SquidClassLoader) classLoader).loadBytes(name);
+      if (bytes == null) {
+        throw new IOException("Class not found");
+      }
+      return new ClassReader(bytes);
+    }
+    InputStream input = classLoader.getResourceAsStream(name);
+    try {
+      return new ClassReader(input);
     } finally {
       IOUtils.closeQuietly(input);
     }
   }
 
+  private static ClassNode getParsedClass(Future<ClassNode> parsedClass) throws IOException {
+    try {
+      return Uninterruptibles.getUninterruptibly(parsedClass);
+    } catch (ExecutionException e) {
+      Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
 }
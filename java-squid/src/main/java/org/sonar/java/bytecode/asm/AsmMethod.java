@@ -52,20 +52,17 @@ public class AsmMethod extends AsmResource {
 
   void addThrowsOfClasses(AsmClass[] asmClasses) {
     for (AsmClass asmClass : asmClasses) {
-      addEdge(new AsmEdge(this, asmClass, SourceCodeEdgeUsage.THROWS));
+      addEdge(asmClass, SourceCodeEdgeUsage.THROWS, 0);
     }
   }
 
   public List<AsmClass> getThrows() {
-    ImmutableList.Builder<AsmClass> builder = ImmutableList.builder();
-
-    for (AsmEdge edge : getOutgoingEdges()) {
-      if (edge.getUsage() == SourceCodeEdgeUsage.THROWS) {
-        builder.add((AsmClass) edge.getTo());
-      }
+    if (!hasEdges(SourceCodeEdgeUsage.THROWS)) {
+      return ImmutableList.of();
     }
-
-    return builder.build();
+    List<AsmClass> throwsClasses = new ArrayList<AsmClass>();
+    addEdgeTargets(SourceCodeEdgeUsage.THROWS, throwsClasses);
+    return ImmutableList.copyOf(throwsClasses);
   }
 
   public String getName() {
@@ -93,21 +90,13 @@ public class AsmMethod extends AsmResource {
 
   public List<AsmField> getCallsToField() {
     List<AsmField> callsToField = new ArrayList<AsmField>();
-    for (AsmEdge usage : getOutgoingEdges()) {
-      if (usage.getUsage() == SourceCodeEdgeUsage.CALLS_FIELD) {
-        callsToField.add((AsmField) usage.getTo());
-      }
-    }
+    addEdgeTargets(SourceCodeEdgeUsage.CALLS_FIELD, callsToField);
     return callsToField;
   }
 
   public List<AsmMethod> getCallsToMethod() {
     List<AsmMethod> callsToMethod = new ArrayList<AsmMethod>();
-    for (AsmEdge usage : getOutgoingEdges()) {
-      if (usage.getUsage() == SourceCodeEdgeUsage.CALLS_METHOD) {
-        callsToMethod.add((AsmMethod) usage.getTo());
-      }
-    }
+    addEdgeTargets(SourceCodeEdgeUsage.CALLS_METHOD, callsToMethod);
     return callsToMethod;
   }
 
@@ -189,15 +178,17 @@ public class AsmMethod extends AsmResource {
 
   private void computeAccessedField() {
     if (!isConstructor()) {
-      for (AsmEdge edge : getOutgoingEdges()) {
-        if (isCallToNonStaticInternalField(edge)) {
-          if (isFieldAccesingDifferentField((AsmField) edge.getTo())) {
+      for (int i = 0; i < getOutgoingEdgesCount(); i++) {
+        AsmResource target = getEdgeTarget(i);
+        SourceCodeEdgeUsage usage = getEdgeUsage(i);
+        if (isCallToNonStaticInternalField(target, usage)) {
+          if (isFieldAccesingDifferentField((AsmField) target)) {
             accessedField = null;
             break;
           }
-          accessedField = (AsmField) edge.getTo();
-        } else if (isCallToNonStaticInternalMethod(edge)) {
-          AsmMethod method = (AsmMethod) edge.getTo();
+          accessedField = (AsmField) target;
+        } else if (isCallToNonStaticInternalMethod(target, usage)) {
+          AsmMethod method = (AsmMethod) target;
           if (isMethodNotAccessorOrAccessingDifferentField(method)) {
             accessedField = null;
             break;
@@ -216,12 +207,12 @@ public class AsmMethod extends AsmResource {
     return accessedField != null && accessedField != field;
   }
 
-  private boolean isCallToNonStaticInternalField(AsmEdge edge) {
-    return edge.getTargetAsmClass() == getParent() && edge.getUsage() == SourceCodeEdgeUsage.CALLS_FIELD && !((AsmField) edge.getTo()).isStatic();
+  private boolean isCallToNonStaticInternalField(AsmResource target, SourceCodeEdgeUsage usage) {
+    return usage == SourceCodeEdgeUsage.CALLS_FIELD && target.getParent() == getParent() && !target.isStatic();
   }
 
-  private boolean isCallToNonStaticInternalMethod(AsmEdge edge) {
-    return edge.getTargetAsmClass() == getParent() && edge.getUsage() == SourceCodeEdgeUsage.CALLS_METHOD && !((AsmMethod) edge.getTo()).isStatic();
+  private boolean isCallToNonStaticInternalMethod(AsmResource target, SourceCodeEdgeUsage usage) {
+    return usage == SourceCodeEdgeUsage.CALLS_METHOD && target.getParent() == getParent() && !target.isStatic();
   }
 
   @Override
@@ -20,6 +20,7 @@
 package org.sonar.java.bytecode.asm;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
@@ -27,10 +28,28 @@ import java.util.Set;
 
 public class AsmResource {
 
+  private static final SourceCodeEdgeUsage[] USAGES = SourceCodeEdgeUsage.values();
+  private static final int INITIAL_EDGES_CAPACITY = 4;
+
   private int accessFlags;
   AsmClass parent;
   boolean used = false;
-  private final List<AsmEdge> outgoingEdges = new ArrayList<AsmEdge>();
+
+  /**
+   * Outgoing edges are kept in insertion order in parallel arrays rather than as {@link AsmEdge} objects,
+   * which are created only when requested through {@link #getOutgoingEdges()}.
+   */
+  private AsmResource[] edgeTargets;
+  private byte[] edgeUsages;
+  /**
+   * Allocated on first edge with a source line number, as most edges of classes and signatures have none.
+   */
+  private int[] edgeLines;
+  private int edgeCount;
+  /**
+   * Bit set of usages of outgoing edges, so that queries for an absent usage do not iterate over edges.
+   */
+  private int edgeUsagesMask;
 
   void setAccessFlags(int accessFlags) {
     this.accessFlags = accessFlags;
@@ -38,40 +57,99 @@ public class AsmResource {
 
   void addUsesOfClasses(AsmClass[] asmClasses) {
     for (AsmClass asmClass : asmClasses) {
-      addEdge(new AsmEdge(this, asmClass, SourceCodeEdgeUsage.USES));
+      addEdge(asmClass, SourceCodeEdgeUsage.USES, 0);
     }
   }
 
   public Set<AsmClass> getDistinctUsedAsmClasses() {
-    Set<AsmClass> distinctUsedAsmClasses = new HashSet<AsmClass>();
-    for (AsmEdge usage : getOutgoingEdges()) {
-      if (usage.getUsage() == SourceCodeEdgeUsage.USES) {
-        distinctUsedAsmClasses.add((AsmClass) usage.getTo());
-      }
-    }
-    return distinctUsedAsmClasses;
+    return getDistinctEdgeTargets(SourceCodeEdgeUsage.USES);
   }
 
   public Set<AsmClass> getImplementedInterfaces() {
-    Set<AsmClass> implementedInterfaces = new HashSet<AsmClass>();
-    for (AsmEdge usage : getOutgoingEdges()) {
-      if (usage.getUsage() == SourceCodeEdgeUsage.IMPLEMENTS) {
-        implementedInterfaces.add((AsmClass) usage.getTo());
+    return getDistinctEdgeTargets(SourceCodeEdgeUsage.IMPLEMENTS);
+  }
+
+  private Set<AsmClass> getDistinctEdgeTargets(SourceCodeEdgeUsage usage) {
+    if (!hasEdges(usage)) {
+      return new HashSet<AsmClass>();
+    }
+    Set<AsmClass> result = new HashSet<AsmClass>();
+    addEdgeTargets(usage, result);
+    return result;
+  }
+
+  boolean hasEdges(SourceCodeEdgeUsage usage) {
+    return (edgeUsagesMask & (1 << usage.ordinal())) != 0;
+  }
+
+  /**
+   * Adds targets of outgoing edges with the given usage to the given collection, in insertion order.
+   */
+  @SuppressWarnings("unchecked")
+  <T extends AsmResource> void addEdgeTargets(SourceCodeEdgeUsage usage, Collection<? super T> result) {
+    byte ordinal = (byte) usage.ordinal();
+    for (int i = 0; i < edgeCount; i++) {
+      if (edgeUsages[i] == ordinal) {
+        result.add((T) edgeTargets[i]);
       }
     }
-    return implementedInterfaces;
+  }
+
+  int getOutgoingEdgesCount() {
+    return edgeCount;
+  }
+
+  AsmResource getEdgeTarget(int index) {
+    return edgeTargets[index];
+  }
+
+  SourceCodeEdgeUsage getEdgeUsage(int index) {
+    return USAGES[edgeUsages[index]];
   }
 
   public void addEdge(AsmEdge edge) {
-    outgoingEdges.add(edge);
+    addEdge(edge.getTo(), edge.getUsage(), edge.getSourceLineNumber());
+  }
+
+  void addEdge(AsmResource to, SourceCodeEdgeUsage usage, int sourceLineNumber) {
+    to.setUsed(true);
+    if (edgeTargets == null) {
+      edgeTargets = new AsmResource[INITIAL_EDGES_CAPACITY];
+      edgeUsages = new byte[INITIAL_EDGES_CAPACITY];
+    } else if (edgeCount == edgeTargets.length) {
+      int capacity = edgeCount * 2;
+      edgeTargets = Arrays.copyOf(edgeTargets, capacity);
+      edgeUsages = Arrays.copyOf(edgeUsages, capacity);
+      if (edgeLines != null) {
+        edgeLines = Arrays.copyOf(edgeLines, capacity);
+      }
+    }
+    if (sourceLineNumber != 0 && edgeLines == null) {
+      edgeLines = new int[edgeTargets.length];
+    }
+    edgeTargets[edgeCount] = to;
+    edgeUsages[edgeCount] = (byte) usage.ordinal();
+    if (edgeLines != null) {
+      edgeLines[edgeCount] = sourceLineNumber;
+    }
+    edgeCount++;
+    edgeUsagesMask |= 1 << usage.ordinal();
   }
 
   public void clearOutogingEdges() {
-    outgoingEdges.clear();
+    edgeTargets = null;
+    edgeUsages = null;
+    edgeLines = null;
+    edgeCount = 0;
+    edgeUsagesMask = 0;
   }
 
   public Collection<AsmEdge> getOutgoingEdges() {
-    return outgoingEdges;
+    List<AsmEdge> result = new ArrayList<AsmEdge>(edgeCount);
+    for (int i = 0; i < edgeCount; i++) {
+      result.add(new AsmEdge(this, edgeTargets[i], USAGES[edgeUsages[i]], edgeLines == null ? 0 : edgeLines[i]));
+    }
+    return result;
   }
 
   public AsmClass getParent() {
@@ -0,0 +1,75 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.loader;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collection;
+
+/**
+ * Loads resources of the JDK, i.e. the ones visible to the bootstrap class loader.
+ */
+class BootstrapLoader implements Loader {
+
+  private static final ClassLoader BOOTSTRAP = new ClassLoader(null) {
+  };
+
+  @Override
+  public URL findResource(String name) {
+    return BOOTSTRAP.getResource(name);
+  }
+
+  @Override
+  public boolean contains(String name) {
+    return findResource(name) != null;
+  }
+
+  @Override
+  public byte[] loadBytes(String name) {
+    InputStream is = BOOTSTRAP.getResourceAsStream(name);
+    if (is == null) {
+      return null;
+    }
+    try {
+      return IOUtils.toByteArray(is);
+    } catch (IOException e) {
+      return null;
+    } finally {
+      IOUtils.closeQuietly(is);
+    }
+  }
+
+  /**
+   * Content of the JDK is not listed, as it is only available through the bootstrap class loader.
+   */
+  @Override
+  public Collection<String> classFileNames() {
+    return null;
+  }
+
+  @Override
+  public void close() {
+    // nothing to close
+  }
+
+}
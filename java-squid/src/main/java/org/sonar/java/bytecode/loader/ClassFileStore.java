@@ -0,0 +1,255 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.loader;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.File;
+import java.net.URL;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Store of class files shared by all class loaders created for an analysis.
+ * Each JAR file or directory is opened only once, whatever the number of class loaders referencing it,
+ * and bytes of loaded class files are kept in memory up to the given limit (least recently used entries are evicted first).
+ * Class loaders created by this store must not outlive it: they are unusable once the store is closed.
+ * <p>
+ * When a {@link ClasspathIndexFile} is given, JAR files indexed by a previous analysis are only opened once a class is loaded from them,
+ * and JAR files which are not yet indexed are added to the index.
+ */
+public class ClassFileStore implements Closeable {
+
+  private final long maxCachedBytes;
+  private final Map<File, Loader> loaders = Maps.newHashMap();
+  private final Loader bootstrapLoader;
+  @Nullable
+  private final ClasspathIndexFile indexFile;
+  private final Map<List<File>, ClasspathIndex> indexes = Maps.newHashMap();
+  private final LinkedHashMap<String, byte[]> cache = new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+  private long cachedBytes = 0;
+  private boolean closed = false;
+
+  /**
+   * @param maxCachedBytes maximal amount of class file bytes kept in memory, <tt>0</tt> to disable caching
+   */
+  public ClassFileStore(long maxCachedBytes) {
+    this(maxCachedBytes, null);
+  }
+
+  /**
+   * @param maxCachedBytes maximal amount of class file bytes kept in memory, <tt>0</tt> to disable caching
+   * @param indexFile index of class files of JAR files, <tt>null</tt> to open all JAR files
+   */
+  public ClassFileStore(long maxCachedBytes, @Nullable ClasspathIndexFile indexFile) {
+    Preconditions.checkArgument(maxCachedBytes >= 0, "Maximal size of cache can't be negative");
+    this.maxCachedBytes = maxCachedBytes;
+    this.bootstrapLoader = new CachingLoader("", new BootstrapLoader(), true);
+    this.indexFile = indexFile;
+  }
+
+  /**
+   * Class loaders created for the same list of files share an index of their class files, which is built on first lookup.
+   *
+   * @param files ordered list of files and directories from which to load classes and resources
+   * @return class loader backed by this store, closing it has no effect on the loaders shared by this store
+   */
+  public synchronized SquidClassLoader createClassLoader(List<File> files) {
+    Preconditions.checkState(!closed, "Store closed");
+    List<Loader> result = Lists.newArrayList();
+    for (File file : files) {
+      Loader loader = loaderFor(file);
+      if (loader != null) {
+        result.add(loader);
+      }
+    }
+    List<File> key = ImmutableList.copyOf(files);
+    ClasspathIndex index = indexes.get(key);
+    if (index == null) {
+      index = new ClasspathIndex(result);
+      indexes.put(key, index);
+    }
+    return new SquidClassLoader(result, bootstrapLoader, index);
+  }
+
+  @Nullable
+  private Loader loaderFor(File file) {
+    File key = file.getAbsoluteFile();
+    if (loaders.containsKey(key)) {
+      return loaders.get(key);
+    }
+    Loader loader = indexFile != null && isJarFile(key) ? indexedLoader(key) : SquidClassLoader.createLoader(key);
+    if (loader != null) {
+      loader = new CachingLoader(key.getPath() + "!/", loader, false);
+    }
+    loaders.put(key, loader);
+    return loader;
+  }
+
+  private static boolean isJarFile(File file) {
+    return file.isFile() && file.getName().endsWith(".jar");
+  }
+
+  @Nullable
+  private Loader indexedLoader(File jarFile) {
+    Set<String> classFileNames = indexFile.classFileNames(jarFile);
+    if (classFileNames != null) {
+      return new IndexedJarLoader(jarFile, classFileNames);
+    }
+    Loader loader = SquidClassLoader.createLoader(jarFile);
+    Collection<String> listed = loader == null ? null : loader.classFileNames();
+    if (listed != null) {
+      indexFile.put(jarFile, listed);
+    }
+    return loader;
+  }
+
+  @Nullable
+  private synchronized byte[] getCached(String key) {
+    return cache.get(key);
+  }
+
+  private synchronized void putCached(String key, byte[] bytes) {
+    if (bytes.length > maxCachedBytes || cache.containsKey(key)) {
+      return;
+    }
+    cache.put(key, bytes);
+    cachedBytes += bytes.length;
+    Iterator<byte[]> iterator = cache.values().iterator();
+    while (cachedBytes > maxCachedBytes) {
+      cachedBytes -= iterator.next().length;
+      iterator.remove();
+    }
+  }
+
+  synchronized long cachedBytes() {
+    return cachedBytes;
+  }
+
+  /**
+   * Closes all the files opened by this store and releases cached bytes.
+   * If store is already closed, then invoking this method has no effect.
+   */
+  @Override
+  public synchronized void close() {
+    for (Loader loader : loaders.values()) {
+      if (loader != null) {
+        ((CachingLoader) loader).delegate.close();
+      }
+    }
+    loaders.clear();
+    indexes.clear();
+    cache.clear();
+    cachedBytes = 0;
+    closed = true;
+  }
+
+  /**
+   * Shared view on a loader, which caches loaded bytes in the store and can not be closed by class loaders.
+   * Names of missing resources are remembered for loaders which are not indexed, i.e. for the JDK.
+   */
+  private class CachingLoader implements Loader {
+
+    private final String keyPrefix;
+    private final Loader delegate;
+    @Nullable
+    private final Set<String> missingResources;
+
+    CachingLoader(String keyPrefix, Loader delegate, boolean cacheMissingResources) {
+      this.keyPrefix = keyPrefix;
+      this.delegate = delegate;
+      this.missingResources = cacheMissingResources ? Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>()) : null;
+    }
+
+    @Override
+    public URL findResource(String name) {
+      if (isMissing(name)) {
+        return null;
+      }
+      URL url = delegate.findResource(name);
+      if (url == null) {
+        setMissing(name);
+      }
+      return url;
+    }
+
+    @Override
+    public boolean contains(String name) {
+      if (isMissing(name)) {
+        return false;
+      }
+      boolean result = delegate.contains(name);
+      if (!result) {
+        setMissing(name);
+      }
+      return result;
+    }
+
+    @Override
+    public byte[] loadBytes(String name) {
+      if (isMissing(name)) {
+        return null;
+      }
+      String key = keyPrefix + name;
+      byte[] bytes = getCached(key);
+      if (bytes == null) {
+        bytes = delegate.loadBytes(name);
+        if (bytes != null) {
+          putCached(key, bytes);
+        } else {
+          setMissing(name);
+        }
+      }
+      return bytes;
+    }
+
+    private boolean isMissing(String name) {
+      return missingResources != null && missingResources.contains(name);
+    }
+
+    private void setMissing(String name) {
+      if (missingResources != null) {
+        missingResources.add(name);
+      }
+    }
+
+    @Override
+    public Collection<String> classFileNames() {
+      return delegate.classFileNames();
+    }
+
+    @Override
+    public void close() {
+      // closed by the store
+    }
+  }
+
+}
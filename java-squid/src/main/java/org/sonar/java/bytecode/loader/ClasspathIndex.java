@@ -0,0 +1,101 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.loader;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of the class files available from a list of loaders: names of class files by package, e.g. <tt>Map$Entry.class</tt> for <tt>java/util</tt>.
+ * Built on first use, so that lookups of missing classes, typically done to resolve star imports, do not have to query each loader.
+ * Index is disabled when one of the loaders is not able to list its class files.
+ */
+class ClasspathIndex {
+
+  private final List<Loader> loaders;
+  private volatile Map<String, Set<String>> classFilesByPackage;
+  private volatile boolean disabled = false;
+
+  ClasspathIndex(List<Loader> loaders) {
+    this.loaders = loaders;
+  }
+
+  /**
+   * @param name name of a resource
+   * @return <tt>false</tt> if the resource is a class file, which is known to be absent from all the loaders
+   */
+  boolean mayContain(String name) {
+    if (disabled || !name.endsWith(".class")) {
+      return true;
+    }
+    Map<String, Set<String>> index = index();
+    if (index == null) {
+      return true;
+    }
+    int separator = name.lastIndexOf('/');
+    Set<String> classFiles = index.get(separator < 0 ? "" : name.substring(0, separator));
+    return classFiles != null && classFiles.contains(name.substring(separator + 1));
+  }
+
+  @Nullable
+  private Map<String, Set<String>> index() {
+    Map<String, Set<String>> result = classFilesByPackage;
+    if (result == null) {
+      synchronized (this) {
+        result = classFilesByPackage;
+        if (result == null && !disabled) {
+          result = build();
+          classFilesByPackage = result;
+          disabled = result == null;
+        }
+      }
+    }
+    return result;
+  }
+
+  @Nullable
+  private Map<String, Set<String>> build() {
+    Map<String, Set<String>> result = Maps.newHashMap();
+    for (Loader loader : loaders) {
+      Collection<String> classFiles = loader.classFileNames();
+      if (classFiles == null) {
+        return null;
+      }
+      for (String classFile : classFiles) {
+        int separator = classFile.lastIndexOf('/');
+        String packageName = separator < 0 ? "" : classFile.substring(0, separator);
+        Set<String> names = result.get(packageName);
+        if (names == null) {
+          names = Sets.newHashSet();
+          result.put(packageName, names);
+        }
+        names.add(classFile.substring(separator + 1));
+      }
+    }
+    return result;
+  }
+
+}
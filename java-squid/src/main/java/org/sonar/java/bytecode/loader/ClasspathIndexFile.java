@@ -0,0 +1,219 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.loader;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.CheckForNull;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Names of the class files of JAR files, kept in a file between analyses, so that JAR files from which no class is loaded are not opened,
+ * see {@link ClassFileStore}. Entries are keyed by absolute path of JAR files, and are only used while size and last modification time
+ * of JAR files are unchanged. Directories are not indexed, as their content typically changes with each build.
+ * <p>
+ * Index only keeps entries of JAR files used during the last analysis.
+ */
+public class ClasspathIndexFile {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ClasspathIndexFile.class);
+
+  private static final int MAGIC = 0x4A434958;
+  private static final int FORMAT_VERSION = 1;
+
+  private final File indexFile;
+  private final Map<String, JarEntry> previousEntries = Maps.newHashMap();
+  private final Map<String, JarEntry> entries = Maps.newLinkedHashMap();
+
+  private ClasspathIndexFile(File indexFile) {
+    this.indexFile = indexFile;
+  }
+
+  /**
+   * Loads the index from the given file. Index is empty when the file does not exist or can not be read.
+   */
+  public static ClasspathIndexFile load(File indexFile) {
+    ClasspathIndexFile index = new ClasspathIndexFile(indexFile);
+    if (indexFile.isFile()) {
+      try {
+        index.read();
+      } catch (IOException e) {
+        LOG.warn("Unable to read classpath index " + indexFile.getAbsolutePath() + ", all JAR files will be opened", e);
+        index.previousEntries.clear();
+      }
+    }
+    return index;
+  }
+
+  /**
+   * @return names of the class files of the given JAR file, for instance <tt>java/util/Map$Entry.class</tt>,
+   * or <tt>null</tt> if the file is not indexed or was changed since it was indexed
+   */
+  @CheckForNull
+  synchronized Set<String> classFileNames(File jarFile) {
+    String key = jarFile.getAbsolutePath();
+    JarEntry entry = entries.get(key);
+    if (entry == null) {
+      entry = previousEntries.remove(key);
+      if (entry == null || entry.size != jarFile.length() || entry.lastModified != jarFile.lastModified()) {
+        return null;
+      }
+      entries.put(key, entry);
+    }
+    return entry.classFileNames;
+  }
+
+  synchronized void put(File jarFile, Collection<String> classFileNames) {
+    entries.put(jarFile.getAbsolutePath(), new JarEntry(jarFile.length(), jarFile.lastModified(), ImmutableSet.copyOf(classFileNames)));
+  }
+
+  /**
+   * Writes entries of the JAR files used during this analysis into the index file.
+   */
+  public synchronized void save() {
+    File tempFile = new File(indexFile.getPath() + ".tmp");
+    try {
+      Files.createParentDirs(indexFile);
+      write(tempFile);
+      if (indexFile.exists() && !indexFile.delete()) {
+        throw new IOException("Unable to delete " + indexFile.getAbsolutePath());
+      }
+      Files.move(tempFile, indexFile);
+    } catch (IOException e) {
+      LOG.warn("Unable to write classpath index " + indexFile.getAbsolutePath(), e);
+      tempFile.delete();
+    }
+  }
+
+  /**
+   * Class files of each JAR file are written grouped by package: name of the package followed by the simple names of its class files.
+   */
+  private void write(File file) throws IOException {
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file))));
+    try {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.writeInt(entries.size());
+      for (Map.Entry<String, JarEntry> entry : entries.entrySet()) {
+        writeString(out, entry.getKey());
+        out.writeLong(entry.getValue().size);
+        out.writeLong(entry.getValue().lastModified);
+        Map<String, List<String>> byPackage = Maps.newLinkedHashMap();
+        for (String classFile : entry.getValue().classFileNames) {
+          int separator = classFile.lastIndexOf('/');
+          String packageName = separator < 0 ? "" : classFile.substring(0, separator);
+          List<String> names = byPackage.get(packageName);
+          if (names == null) {
+            names = Lists.newArrayList();
+            byPackage.put(packageName, names);
+          }
+          names.add(classFile.substring(separator + 1));
+        }
+        out.writeInt(byPackage.size());
+        for (Map.Entry<String, List<String>> packageEntry : byPackage.entrySet()) {
+          writeString(out, packageEntry.getKey());
+          out.writeInt(packageEntry.getValue().size());
+          for (String name : packageEntry.getValue()) {
+            writeString(out, name);
+          }
+        }
+      }
+      out.close();
+    } finally {
+      IOUtils.closeQuietly(out);
+    }
+  }
+
+  private void read() throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(indexFile))));
+    try {
+      if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+        LOG.info("Classpath index was written by a different version, all JAR files will be opened");
+        return;
+      }
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        String key = readString(in);
+        long size = in.readLong();
+        long lastModified = in.readLong();
+        ImmutableSet.Builder<String> classFileNames = ImmutableSet.builder();
+        int packageCount = in.readInt();
+        for (int j = 0; j < packageCount; j++) {
+          String packageName = readString(in);
+          String prefix = packageName.isEmpty() ? "" : (packageName + "/");
+          int nameCount = in.readInt();
+          for (int k = 0; k < nameCount; k++) {
+            classFileNames.add(prefix + readString(in));
+          }
+        }
+        previousEntries.put(key, new JarEntry(size, lastModified, classFileNames.build()));
+      }
+    } finally {
+      IOUtils.closeQuietly(in);
+    }
+  }
+
+  private static void writeString(DataOutput out, String value) throws IOException {
+    byte[] bytes = value.getBytes(Charsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInput in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, Charsets.UTF_8);
+  }
+
+  private static class JarEntry {
+    private final long size;
+    private final long lastModified;
+    private final Set<String> classFileNames;
+
+    JarEntry(long size, long lastModified, Set<String> classFileNames) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.classFileNames = classFileNames;
+    }
+  }
+
+}
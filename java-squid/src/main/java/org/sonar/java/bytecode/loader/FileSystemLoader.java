@@ -19,6 +19,8 @@
  */
 package org.sonar.java.bytecode.loader;
 
+import com.google.common.collect.Lists;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 
 import java.io.File;
@@ -27,6 +29,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Collection;
+import java.util.List;
 
 class FileSystemLoader implements Loader {
 
@@ -55,6 +59,14 @@ class FileSystemLoader implements Loader {
     return null;
   }
 
+  @Override
+  public boolean contains(String name) {
+    if (baseDir == null) {
+      throw new IllegalStateException("Loader closed");
+    }
+    return new File(baseDir, name).isFile();
+  }
+
   @Override
   public byte[] loadBytes(String name) {
     if (baseDir == null) {
@@ -75,6 +87,19 @@ class FileSystemLoader implements Loader {
     }
   }
 
+  @Override
+  public Collection<String> classFileNames() {
+    if (baseDir == null) {
+      throw new IllegalStateException("Loader closed");
+    }
+    List<String> result = Lists.newArrayList();
+    String basePath = baseDir.getAbsolutePath();
+    for (File file : FileUtils.listFiles(baseDir, new String[] {"class"}, true)) {
+      result.add(file.getAbsolutePath().substring(basePath.length() + 1).replace(File.separatorChar, '/'));
+    }
+    return result;
+  }
+
   @Override
   public void close() {
     baseDir = null;
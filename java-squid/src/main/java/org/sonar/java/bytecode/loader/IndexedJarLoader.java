@@ -0,0 +1,113 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.loader;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Loader of a JAR file whose class files are known from a {@link ClasspathIndexFile}: the file is only opened once a resource is loaded from it,
+ * or once a resource other than a class file is looked up.
+ */
+class IndexedJarLoader implements Loader {
+
+  private final File file;
+  private final Set<String> classFileNames;
+  private volatile Loader delegate;
+  private volatile boolean closed = false;
+
+  IndexedJarLoader(File file, Set<String> classFileNames) {
+    this.file = file;
+    this.classFileNames = classFileNames;
+  }
+
+  private boolean isKnownToBeAbsent(String name) {
+    checkOpen();
+    return name.endsWith(".class") && !classFileNames.contains(name);
+  }
+
+  private Loader delegate() {
+    Loader result = delegate;
+    if (result == null) {
+      synchronized (this) {
+        checkOpen();
+        result = delegate;
+        if (result == null) {
+          result = SquidClassLoader.createLoader(file);
+          if (result == null) {
+            throw new IllegalStateException("Unable to open " + file.getAbsolutePath());
+          }
+          delegate = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public URL findResource(String name) {
+    return isKnownToBeAbsent(name) ? null : delegate().findResource(name);
+  }
+
+  @Override
+  public boolean contains(String name) {
+    if (name.endsWith(".class")) {
+      checkOpen();
+      return classFileNames.contains(name);
+    }
+    return delegate().contains(name);
+  }
+
+  @Override
+  public byte[] loadBytes(String name) {
+    return isKnownToBeAbsent(name) ? null : delegate().loadBytes(name);
+  }
+
+  @Override
+  public Collection<String> classFileNames() {
+    checkOpen();
+    return classFileNames;
+  }
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("Loader closed");
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    if (delegate != null) {
+      delegate.close();
+      delegate = null;
+    }
+    closed = true;
+  }
+
+  /**
+   * @return <tt>true</tt> if the JAR file was opened
+   */
+  synchronized boolean isOpened() {
+    return delegate != null;
+  }
+
+}
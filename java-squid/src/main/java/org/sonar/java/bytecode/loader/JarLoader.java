@@ -19,6 +19,7 @@
  */
 package org.sonar.java.bytecode.loader;
 
+import com.google.common.collect.Lists;
 import org.apache.commons.io.IOUtils;
 
 import java.io.File;
@@ -28,6 +29,10 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.zip.ZipEntry;
 
@@ -64,6 +69,11 @@ class JarLoader implements Loader {
     return null;
   }
 
+  @Override
+  public boolean contains(String name) {
+    return jarFile.getEntry(name) != null;
+  }
+
   @Override
   public byte[] loadBytes(String name) {
     InputStream is = null;
@@ -83,6 +93,19 @@ class JarLoader implements Loader {
     }
   }
 
+  @Override
+  public Collection<String> classFileNames() {
+    List<String> result = Lists.newArrayList();
+    Enumeration<JarEntry> entries = jarFile.entries();
+    while (entries.hasMoreElements()) {
+      String name = entries.nextElement().getName();
+      if (name.endsWith(".class")) {
+        result.add(name);
+      }
+    }
+    return result;
+  }
+
   @Override
   public void close() {
     try {
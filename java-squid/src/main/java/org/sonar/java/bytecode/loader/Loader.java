@@ -19,7 +19,9 @@
  */
 package org.sonar.java.bytecode.loader;
 
+import javax.annotation.CheckForNull;
 import java.net.URL;
+import java.util.Collection;
 
 /**
  * Specifies resource loading behavior.
@@ -36,6 +38,15 @@ interface Loader {
    */
   URL findResource(String name);
 
+  /**
+   * Checks existence of the resource with the given name, without creating an <tt>URL</tt> for it.
+   *
+   * @param name resource name
+   * @return <tt>true</tt> if the resource can be found
+   * @throws IllegalStateException if loader has been closed
+   */
+  boolean contains(String name);
+
   /**
    * Loads bytes of the resource with the given name.
    *
@@ -46,6 +57,16 @@ interface Loader {
    */
   byte[] loadBytes(String name);
 
+  /**
+   * Lists the class files available from this loader.
+   *
+   * @return names of class files, for instance <tt>java/util/Map$Entry.class</tt>, or
+   *         <tt>null</tt> if this loader is not able to list them
+   * @throws IllegalStateException if loader has been closed
+   */
+  @CheckForNull
+  Collection<String> classFileNames();
+
   /**
    * Closes this loader, so that it can no longer be used to load new resources.
    * If loader is already closed, then invoking this method has no effect.
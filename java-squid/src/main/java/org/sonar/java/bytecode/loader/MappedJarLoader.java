@@ -0,0 +1,330 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.loader;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Loads resources of a JAR file mapped in memory. Central directory of the file is read once to build an index of its entries,
+ * so that lookups of resources, including checks of their existence, are done in memory.
+ * Stored entries are copied directly from the mapped file, deflated ones are inflated by reused {@link Inflater}s.
+ * <p>
+ * ZIP64 files and files of more than 2 GB are not supported, {@link JarLoader} should be used for them.
+ */
+class MappedJarLoader implements Loader {
+
+  private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+  private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+  private static final int MAX_COMMENT_SIZE = 0xFFFF;
+  private static final int CENTRAL_DIRECTORY_ENTRY_SIGNATURE = 0x02014b50;
+  private static final int CENTRAL_DIRECTORY_ENTRY_SIZE = 46;
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+  private static final int LOCAL_HEADER_SIZE = 30;
+  private static final int STORED = 0;
+  private static final int DEFLATED = 8;
+
+  private final File file;
+  private final URL jarUrl;
+  private volatile MappedByteBuffer buffer;
+  private final Map<String, Entry> entries = Maps.newHashMap();
+  private final Deque<Decompressor> decompressors = new ArrayDeque<Decompressor>();
+
+  /**
+   * @throws IllegalStateException if an I/O error has occurred, or if format of the file is not supported
+   */
+  public MappedJarLoader(File file) {
+    if (file == null) {
+      throw new IllegalArgumentException("file can't be null");
+    }
+    this.file = file;
+    try {
+      RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+      try {
+        FileChannel channel = randomAccessFile.getChannel();
+        if (channel.size() > Integer.MAX_VALUE) {
+          throw new IOException("File too large");
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      } finally {
+        // mapping remains valid after the file is closed
+        randomAccessFile.close();
+      }
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+      readCentralDirectory();
+      jarUrl = new URL("jar", "", -1, file.getAbsolutePath() + "!/");
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to open " + file.getAbsolutePath(), e);
+    } catch (RuntimeException e) {
+      throw new IllegalStateException("Unable to open " + file.getAbsolutePath(), e);
+    }
+  }
+
+  private void readCentralDirectory() throws IOException {
+    int end = findEndOfCentralDirectory();
+    int count = buffer.getShort(end + 10) & 0xFFFF;
+    int offset = buffer.getInt(end + 16);
+    if (count == 0xFFFF || offset == -1) {
+      throw new IOException("ZIP64 format is not supported");
+    }
+    for (int i = 0; i < count; i++) {
+      if (buffer.getInt(offset) != CENTRAL_DIRECTORY_ENTRY_SIGNATURE) {
+        throw new IOException("Invalid central directory");
+      }
+      int method = buffer.getShort(offset + 10) & 0xFFFF;
+      int compressedSize = buffer.getInt(offset + 20);
+      int size = buffer.getInt(offset + 24);
+      int nameLength = buffer.getShort(offset + 28) & 0xFFFF;
+      int extraLength = buffer.getShort(offset + 30) & 0xFFFF;
+      int commentLength = buffer.getShort(offset + 32) & 0xFFFF;
+      int localHeaderOffset = buffer.getInt(offset + 42);
+      if (compressedSize < 0 || size < 0 || localHeaderOffset < 0) {
+        throw new IOException("ZIP64 format is not supported");
+      }
+      entries.put(readName(offset + CENTRAL_DIRECTORY_ENTRY_SIZE, nameLength), new Entry(method, localHeaderOffset, compressedSize, size));
+      offset += CENTRAL_DIRECTORY_ENTRY_SIZE + nameLength + extraLength + commentLength;
+    }
+  }
+
+  private int findEndOfCentralDirectory() throws IOException {
+    int limit = Math.max(0, buffer.limit() - END_OF_CENTRAL_DIRECTORY_SIZE - MAX_COMMENT_SIZE);
+    for (int position = buffer.limit() - END_OF_CENTRAL_DIRECTORY_SIZE; position >= limit; position--) {
+      if (buffer.getInt(position) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+        return position;
+      }
+    }
+    throw new IOException("End of central directory not found");
+  }
+
+  private String readName(int offset, int length) {
+    byte[] bytes = new byte[length];
+    // called through ByteBuffer and Buffer, as methods overridden since Java 9 with covariant return types do not exist on Java 7
+    ByteBuffer view = ((ByteBuffer) buffer).duplicate();
+    ((Buffer) view).position(offset);
+    view.get(bytes);
+    return new String(bytes, Charsets.UTF_8);
+  }
+
+  @Override
+  public URL findResource(String name) {
+    checkOpen();
+    if (!entries.containsKey(name)) {
+      return null;
+    }
+    try {
+      return new URL(jarUrl, name, new EntryHandler(name));
+    } catch (MalformedURLException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public boolean contains(String name) {
+    checkOpen();
+    return entries.containsKey(name);
+  }
+
+  @Override
+  public byte[] loadBytes(String name) {
+    // duplicate does not keep byte order of the original buffer
+    ByteBuffer view = ((ByteBuffer) checkOpen()).duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    Entry entry = entries.get(name);
+    if (entry == null) {
+      return null;
+    }
+    int offset = entry.localHeaderOffset;
+    if (view.getInt(offset) != LOCAL_HEADER_SIGNATURE) {
+      return null;
+    }
+    int dataOffset = offset + LOCAL_HEADER_SIZE + (view.getShort(offset + 26) & 0xFFFF) + (view.getShort(offset + 28) & 0xFFFF);
+    ((Buffer) view).position(dataOffset);
+    byte[] result = new byte[entry.size];
+    if (entry.method == STORED) {
+      view.get(result);
+      return result;
+    } else if (entry.method == DEFLATED) {
+      return inflate(view, entry, result) ? result : null;
+    }
+    return null;
+  }
+
+  private boolean inflate(ByteBuffer view, Entry entry, byte[] result) {
+    Decompressor decompressor = acquireDecompressor();
+    try {
+      // Inflater does not accept ByteBuffer before Java 11, so compressed data is copied to a reused buffer
+      byte[] input = decompressor.input(entry.compressedSize);
+      view.get(input, 0, entry.compressedSize);
+      decompressor.inflater.setInput(input, 0, entry.compressedSize);
+      int length = 0;
+      while (length < result.length) {
+        int inflated = decompressor.inflater.inflate(result, length, result.length - length);
+        if (inflated == 0 && (decompressor.inflater.finished() || decompressor.inflater.needsInput() || decompressor.inflater.needsDictionary())) {
+          return false;
+        }
+        length += inflated;
+      }
+      return true;
+    } catch (DataFormatException e) {
+      return false;
+    } finally {
+      releaseDecompressor(decompressor);
+    }
+  }
+
+  private Decompressor acquireDecompressor() {
+    synchronized (decompressors) {
+      Decompressor decompressor = decompressors.poll();
+      return decompressor == null ? new Decompressor() : decompressor;
+    }
+  }
+
+  private void releaseDecompressor(Decompressor decompressor) {
+    decompressor.inflater.reset();
+    synchronized (decompressors) {
+      if (buffer == null) {
+        decompressor.inflater.end();
+      } else {
+        decompressors.push(decompressor);
+      }
+    }
+  }
+
+  @Override
+  public Collection<String> classFileNames() {
+    checkOpen();
+    List<String> result = Lists.newArrayList();
+    for (String name : entries.keySet()) {
+      if (name.endsWith(".class")) {
+        result.add(name);
+      }
+    }
+    return result;
+  }
+
+  private MappedByteBuffer checkOpen() {
+    MappedByteBuffer result = buffer;
+    if (result == null) {
+      throw new IllegalStateException("Loader closed");
+    }
+    return result;
+  }
+
+  /**
+   * Memory mapping is released by the garbage collector, once this loader is no longer referenced.
+   */
+  @Override
+  public void close() {
+    synchronized (decompressors) {
+      buffer = null;
+      for (Decompressor decompressor : decompressors) {
+        decompressor.inflater.end();
+      }
+      decompressors.clear();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return file.getAbsolutePath();
+  }
+
+  private static class Entry {
+    private final int method;
+    private final int localHeaderOffset;
+    private final int compressedSize;
+    private final int size;
+
+    Entry(int method, int localHeaderOffset, int compressedSize, int size) {
+      this.method = method;
+      this.localHeaderOffset = localHeaderOffset;
+      this.compressedSize = compressedSize;
+      this.size = size;
+    }
+  }
+
+  private static class Decompressor {
+    private final Inflater inflater = new Inflater(true);
+    private byte[] input = new byte[8192];
+
+    byte[] input(int size) {
+      if (input.length < size) {
+        input = new byte[Math.max(size, input.length * 2)];
+      }
+      return input;
+    }
+  }
+
+  private class EntryHandler extends URLStreamHandler {
+
+    private final String name;
+
+    EntryHandler(String name) {
+      this.name = name;
+    }
+
+    @Override
+    protected URLConnection openConnection(URL u) throws IOException {
+      return new URLConnection(u) {
+        @Override
+        public void connect() throws IOException {
+          // nop
+        }
+
+        @Override
+        public int getContentLength() {
+          return entries.get(name).size;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+          byte[] bytes = loadBytes(name);
+          if (bytes == null) {
+            throw new IOException("Unable to read " + name + " from " + file.getAbsolutePath());
+          }
+          return new ByteArrayInputStream(bytes);
+        }
+      };
+    }
+  }
+
+}
@@ -20,13 +20,19 @@
 package org.sonar.java.bytecode.loader;
 
 import com.google.common.collect.Iterators;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -34,7 +40,12 @@ import java.util.List;
  */
 public class SquidClassLoader extends ClassLoader implements Closeable {
 
+  private static final Logger LOG = LoggerFactory.getLogger(SquidClassLoader.class);
+
   private final List<Loader> loaders;
+  private final Loader bootstrapLoader;
+  @Nullable
+  private final ClasspathIndex index;
 
   /**
    * @param files ordered list of files and directories from which to load classes and resources
@@ -43,19 +54,62 @@ public class SquidClassLoader extends ClassLoader implements Closeable {
     super(null);
     loaders = new ArrayList<Loader>();
     for (File file : files) {
-      if (file.exists()) {
-        if (file.isDirectory()) {
-          loaders.add(new FileSystemLoader(file));
-        } else if (file.getName().endsWith(".jar")) {
-          loaders.add(new JarLoader(file));
-        }
+      Loader loader = createLoader(file);
+      if (loader != null) {
+        loaders.add(loader);
+      }
+    }
+    bootstrapLoader = new BootstrapLoader();
+    index = null;
+  }
+
+  /**
+   * @see ClassFileStore#createClassLoader(List)
+   */
+  SquidClassLoader(List<Loader> loaders, Loader bootstrapLoader, @Nullable ClasspathIndex index) {
+    super(null);
+    this.loaders = loaders;
+    this.bootstrapLoader = bootstrapLoader;
+    this.index = index;
+  }
+
+  /**
+   * @return <tt>false</tt> if the given resource is known to be absent from the files of this class loader
+   */
+  private boolean mayContain(String name) {
+    return index == null || index.mayContain(name);
+  }
+
+  @Nullable
+  static Loader createLoader(File file) {
+    if (file.exists()) {
+      if (file.isDirectory()) {
+        return new FileSystemLoader(file);
+      } else if (file.getName().endsWith(".jar")) {
+        return createJarLoader(file);
       }
     }
+    return null;
+  }
+
+  /**
+   * JAR files are mapped in memory, unless their format is not supported by {@link MappedJarLoader}.
+   */
+  private static Loader createJarLoader(File file) {
+    try {
+      return new MappedJarLoader(file);
+    } catch (IllegalStateException e) {
+      LOG.debug("Unable to map " + file.getAbsolutePath() + " in memory", e);
+      return new JarLoader(file);
+    }
   }
 
   @Override
   protected Class findClass(String name) throws ClassNotFoundException {
     String resourceName = name.replace('.', '/') + ".class";
+    if (!mayContain(resourceName)) {
+      throw new ClassNotFoundException(name);
+    }
     for (Loader loader : loaders) {
       byte[] classBytes = loader.loadBytes(resourceName);
       if (classBytes != null) {
@@ -66,8 +120,56 @@ public class SquidClassLoader extends ClassLoader implements Closeable {
     throw new ClassNotFoundException(name);
   }
 
+  /**
+   * Loads bytes of the resource with the given name, following the same lookup order as {@link #getResource(String)}.
+   *
+   * @return an array of <tt>byte</tt>s, or <tt>null</tt> if the resource could not be found
+   */
+  @Nullable
+  public byte[] loadBytes(String name) {
+    byte[] bytes = bootstrapLoader.loadBytes(name);
+    if (bytes != null || !mayContain(name)) {
+      return bytes;
+    }
+    for (Iterator<Loader> iterator = loaders.iterator(); bytes == null && iterator.hasNext(); ) {
+      bytes = iterator.next().loadBytes(name);
+    }
+    return bytes;
+  }
+
+  /**
+   * Checks existence of the resource with the given name, following the same lookup order as {@link #getResource(String)},
+   * but without creating an <tt>URL</tt> for it.
+   */
+  public boolean hasResource(String name) {
+    if (bootstrapLoader.contains(name)) {
+      return true;
+    }
+    if (!mayContain(name)) {
+      return false;
+    }
+    for (Loader loader : loaders) {
+      if (loader.contains(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Resources are read at once by loaders, so stream is created on loaded bytes, rather than by {@link URL#openStream()}.
+   */
+  @Override
+  public InputStream getResourceAsStream(String name) {
+    byte[] bytes = loadBytes(name);
+    return bytes == null ? null : new ByteArrayInputStream(bytes);
+  }
+
   @Override
   public URL findResource(String name) {
+    if (!mayContain(name)) {
+      return null;
+    }
     for (Loader loader : loaders) {
       URL url = loader.findResource(name);
       if (url != null) {
@@ -80,6 +182,9 @@ public class SquidClassLoader extends ClassLoader implements Closeable {
   @Override
   protected Enumeration<URL> findResources(String name) throws IOException {
     List<URL> result = new ArrayList<URL>();
+    if (!mayContain(name)) {
+      return Iterators.asEnumeration(result.iterator());
+    }
     for (Loader loader : loaders) {
       URL url = loader.findResource(name);
       if (url != null) {
@@ -0,0 +1,344 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.incremental;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.check.RuleProperty;
+import org.sonar.java.JavaConfiguration;
+
+import javax.annotation.CheckForNull;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Persistent cache of the results of analysis of main files, which allows to replay them for files unchanged since the previous analysis
+ * instead of parsing them.
+ * <p>
+ * Results of a file are reused when:
+ * <ul>
+ *   <li>the fingerprint of the analysis is the same: configuration, analyzer, active checks with their parameters and JAR files of the classpath,
+ *   see {@link #fingerprint(JavaConfiguration, List, List)}</li>
+ *   <li>content of the file is the same</li>
+ *   <li>class files read from the directories of the classpath to build its semantic model are the same</li>
+ * </ul>
+ * Cache only keeps results of files analyzed or replayed during the last analysis.
+ */
+public class AnalysisCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AnalysisCache.class);
+
+  private static final int MAGIC = 0x4A415643;
+  private static final int FORMAT_VERSION = 1;
+  private static final long ABSENT = 0;
+
+  private final File cacheFile;
+  private final String fingerprint;
+  private final List<File> classpathDirectories = Lists.newArrayList();
+  private final Map<String, FileAnalysis> previousAnalyses = Maps.newHashMap();
+  private final Map<String, FileAnalysis> analyses = Maps.newLinkedHashMap();
+  private final Map<String, Long> classFileHashes = Maps.newHashMap();
+
+  private AnalysisCache(File cacheFile, String fingerprint, List<File> classpath) {
+    this.cacheFile = cacheFile;
+    this.fingerprint = fingerprint;
+    for (File file : classpath) {
+      if (file.isDirectory()) {
+        classpathDirectories.add(file);
+      }
+    }
+  }
+
+  /**
+   * Loads the cache from the given file. Cache is empty when the file does not exist, can not be read, or was written by an analysis
+   * with a different fingerprint.
+   */
+  public static AnalysisCache load(File cacheFile, String fingerprint, List<File> classpath) {
+    AnalysisCache cache = new AnalysisCache(cacheFile, fingerprint, classpath);
+    if (cacheFile.isFile()) {
+      try {
+        cache.read();
+      } catch (IOException e) {
+        LOG.warn("Unable to read analysis cache " + cacheFile.getAbsolutePath() + ", all files will be analyzed", e);
+        cache.previousAnalyses.clear();
+      }
+    }
+    return cache;
+  }
+
+  /**
+   * @return results of the previous analysis of the given file, if it is unchanged, otherwise starts recording of its results and returns <tt>null</tt>
+   */
+  @CheckForNull
+  public FileAnalysis unchangedAnalysis(File file) {
+    String key = file.getAbsolutePath();
+    long contentHash;
+    try {
+      contentHash = hash(Files.toByteArray(file));
+    } catch (IOException e) {
+      LOG.debug("Unable to read " + key, e);
+      return null;
+    }
+    FileAnalysis previous = previousAnalyses.remove(key);
+    if (previous != null && previous.contentHash == contentHash && dependenciesUnchanged(previous)) {
+      analyses.put(key, previous);
+      return previous;
+    }
+    analyses.put(key, new FileAnalysis(contentHash));
+    return null;
+  }
+
+  /**
+   * @return recording of results of the given file, <tt>null</tt> if they are not recorded
+   */
+  @CheckForNull
+  public FileAnalysis recordingFor(File file) {
+    FileAnalysis analysis = analyses.get(file.getAbsolutePath());
+    return analysis == null || analysis.dependencyHashes != null ? null : analysis;
+  }
+
+  private boolean dependenciesUnchanged(FileAnalysis analysis) {
+    for (int i = 0; i < analysis.dependencies.size(); i++) {
+      if (classFileHash(analysis.dependencies.get(i)) != analysis.dependencyHashes[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Class files from JAR files are covered by the fingerprint, so only the ones in directories are considered.
+   */
+  private long classFileHash(String classFile) {
+    Long result = classFileHashes.get(classFile);
+    if (result == null) {
+      result = ABSENT;
+      for (File directory : classpathDirectories) {
+        File file = new File(directory, classFile);
+        if (file.isFile()) {
+          try {
+            result = hash(Files.toByteArray(file));
+          } catch (IOException e) {
+            LOG.debug("Unable to read " + file.getAbsolutePath(), e);
+            result = (long) file.hashCode() ^ file.lastModified();
+          }
+          break;
+        }
+      }
+      classFileHashes.put(classFile, result);
+    }
+    return result;
+  }
+
+  /**
+   * Writes results of completely analyzed files into the cache file.
+   */
+  public void save() {
+    File tempFile = new File(cacheFile.getPath() + ".tmp");
+    try {
+      Files.createParentDirs(cacheFile);
+      write(tempFile);
+      if (cacheFile.exists() && !cacheFile.delete()) {
+        throw new IOException("Unable to delete " + cacheFile.getAbsolutePath());
+      }
+      Files.move(tempFile, cacheFile);
+    } catch (IOException e) {
+      LOG.warn("Unable to write analysis cache " + cacheFile.getAbsolutePath(), e);
+      tempFile.delete();
+    }
+  }
+
+  private void write(File file) throws IOException {
+    Map<String, Integer> classFileIndexes = Maps.newLinkedHashMap();
+    List<Map.Entry<String, FileAnalysis>> entries = Lists.newArrayList();
+    for (Map.Entry<String, FileAnalysis> entry : analyses.entrySet()) {
+      if (entry.getValue().isComplete()) {
+        entries.add(entry);
+        for (String classFile : entry.getValue().dependencies) {
+          if (!classFileIndexes.containsKey(classFile)) {
+            classFileIndexes.put(classFile, classFileIndexes.size());
+          }
+        }
+      }
+    }
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file))));
+    try {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      FileAnalysis.writeString(out, fingerprint);
+      out.writeInt(classFileIndexes.size());
+      for (String classFile : classFileIndexes.keySet()) {
+        FileAnalysis.writeString(out, classFile);
+        out.writeLong(classFileHash(classFile));
+      }
+      out.writeInt(entries.size());
+      for (Map.Entry<String, FileAnalysis> entry : entries) {
+        FileAnalysis analysis = entry.getValue();
+        FileAnalysis.writeString(out, entry.getKey());
+        out.writeLong(analysis.contentHash);
+        out.writeInt(analysis.dependencies.size());
+        for (String classFile : analysis.dependencies) {
+          out.writeInt(classFileIndexes.get(classFile));
+        }
+        analysis.write(out);
+      }
+      out.close();
+    } finally {
+      IOUtils.closeQuietly(out);
+    }
+  }
+
+  private void read() throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(cacheFile))));
+    try {
+      if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !fingerprint.equals(FileAnalysis.readString(in))) {
+        LOG.info("Analysis cache was written by a different analysis, all files will be analyzed");
+        return;
+      }
+      int count = in.readInt();
+      String[] classFiles = new String[count];
+      long[] hashes = new long[count];
+      for (int i = 0; i < count; i++) {
+        classFiles[i] = FileAnalysis.readString(in);
+        hashes[i] = in.readLong();
+      }
+      count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        String key = FileAnalysis.readString(in);
+        long contentHash = in.readLong();
+        int dependencyCount = in.readInt();
+        List<String> dependencies = Lists.newArrayListWithCapacity(dependencyCount);
+        long[] dependencyHashes = new long[dependencyCount];
+        for (int j = 0; j < dependencyCount; j++) {
+          int index = in.readInt();
+          dependencies.add(classFiles[index]);
+          dependencyHashes[j] = hashes[index];
+        }
+        FileAnalysis analysis = FileAnalysis.read(in, contentHash);
+        if (analysis != null) {
+          analysis.dependencies = dependencies;
+          analysis.dependencyHashes = dependencyHashes;
+          previousAnalyses.put(key, analysis);
+        }
+      }
+    } finally {
+      IOUtils.closeQuietly(in);
+    }
+  }
+
+  /**
+   * Computes fingerprint of an analysis, which covers everything that can change results of a file, except its content
+   * and class files from directories of the classpath.
+   *
+   * @param visitors visitors of the analysis, including checks whose parameters are taken into account
+   */
+  public static String fingerprint(JavaConfiguration conf, List<File> classpath, List<?> visitors) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(FORMAT_VERSION).append('\n');
+    sb.append(System.getProperty("java.version")).append('\n');
+    sb.append(conf.getCharset().name()).append('\n');
+    sb.append(conf.separatesAccessorsFromMethods()).append('\n');
+    appendCodeSource(sb, AnalysisCache.class);
+    for (Object visitor : visitors) {
+      sb.append(visitor.getClass().getName());
+      appendRuleProperties(sb, visitor);
+      sb.append('\n');
+      appendCodeSource(sb, visitor.getClass());
+    }
+    for (File file : classpath) {
+      if (file.isFile()) {
+        appendFile(sb, file);
+      }
+    }
+    byte[] digest = md5().digest(sb.toString().getBytes(Charsets.UTF_8));
+    StringBuilder result = new StringBuilder();
+    for (byte b : digest) {
+      result.append(String.format("%02x", b));
+    }
+    return result.toString();
+  }
+
+  private static void appendRuleProperties(StringBuilder sb, Object visitor) {
+    for (Class<?> c = visitor.getClass(); c != null; c = c.getSuperclass()) {
+      for (Field field : c.getDeclaredFields()) {
+        if (field.isAnnotationPresent(RuleProperty.class)) {
+          field.setAccessible(true);
+          try {
+            sb.append(' ').append(field.getName()).append('=').append(field.get(visitor));
+          } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+          }
+        }
+      }
+    }
+  }
+
+  private static void appendCodeSource(StringBuilder sb, Class<?> c) {
+    CodeSource codeSource = c.getProtectionDomain().getCodeSource();
+    if (codeSource != null && codeSource.getLocation() != null && "file".equals(codeSource.getLocation().getProtocol())) {
+      File file = new File(codeSource.getLocation().getPath());
+      if (file.isFile()) {
+        appendFile(sb, file);
+      }
+    }
+  }
+
+  private static void appendFile(StringBuilder sb, File file) {
+    sb.append(file.getAbsolutePath()).append(' ').append(file.length()).append(' ').append(file.lastModified()).append('\n');
+  }
+
+  private static long hash(byte[] bytes) {
+    byte[] digest = md5().digest(bytes);
+    long result = 0;
+    for (int i = 0; i < 8; i++) {
+      result = (result << 8) | (digest[i] & 0xFF);
+    }
+    // Reserve value for absent class files
+    return result == ABSENT ? 1 : result;
+  }
+
+  private static MessageDigest md5() {
+    try {
+      return MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+}
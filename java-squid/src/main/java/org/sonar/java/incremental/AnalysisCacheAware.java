@@ -0,0 +1,41 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.incremental;
+
+import java.io.File;
+
+/**
+ * Component which contributes to the analysis of main files and which is able to record its results into {@link FileAnalysis},
+ * so that they can be replayed for files unchanged since the previous analysis.
+ */
+public interface AnalysisCacheAware {
+
+  /**
+   * Called before the scan of main files, only when incremental analysis is enabled.
+   * Results produced for a file should be recorded into {@link AnalysisCache#recordingFor(File)}, when not <tt>null</tt>.
+   */
+  void setAnalysisCache(AnalysisCache analysisCache);
+
+  /**
+   * Called instead of the scan of a file, which is unchanged since the analysis during which the given results were recorded.
+   */
+  void replay(File file, FileAnalysis analysis);
+
+}
@@ -0,0 +1,601 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.incremental;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+import org.sonar.api.batch.SensorContext;
+import org.sonar.api.component.Component;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.FileLinesContext;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.measures.PersistenceMode;
+import org.sonar.api.resources.Resource;
+import org.sonar.api.source.Highlightable;
+import org.sonar.api.source.Symbol;
+import org.sonar.api.source.Symbolizable;
+import org.sonar.squidbridge.api.CheckMessage;
+import org.sonar.squidbridge.api.SourceFile;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Results of the analysis of a main file, as recorded by {@link AnalysisCache}: issues, NoSonar lines, measures, lines data,
+ * highlighting, symbols and classes of the file. Results are replayed as a whole by {@link AnalysisCacheAware} components.
+ */
+public class FileAnalysis {
+
+  private static final Map<String, Metric> METRICS_BY_KEY = metricsByKey();
+
+  final long contentHash;
+  /**
+   * Class files read from the classpath to build the semantic model of the file.
+   */
+  List<String> dependencies;
+  /**
+   * Hashes of {@link #dependencies} at the time of the analysis, <tt>null</tt> while recording.
+   */
+  long[] dependencyHashes;
+  private boolean cacheable = true;
+
+  private final List<Issue> issues = Lists.newArrayList();
+  private final Set<Integer> noSonarLines = Sets.newTreeSet();
+  private final List<Measure> measures = Lists.newArrayList();
+  /**
+   * Pairs (line, value) by data key.
+   */
+  private final Map<String, IntSequence> linesData = Maps.newLinkedHashMap();
+  /**
+   * Triples (start offset, end offset, index of type in {@link #highlightingTypes}), <tt>null</tt> if highlighting was not done.
+   */
+  private IntSequence highlighting;
+  private final List<String> highlightingTypes = Lists.newArrayList();
+  /**
+   * Pairs (start offset, end offset) of declarations, <tt>null</tt> if symbol table was not set.
+   */
+  private IntSequence symbols;
+  /**
+   * Pairs (index of symbol, offset) of references.
+   */
+  private final IntSequence references = new IntSequence();
+  private final List<String> classKeys = Lists.newArrayList();
+  private final Map<String, Integer> methodStartLines = Maps.newLinkedHashMap();
+  private final Multimap<Integer, String> suppressWarningLines = LinkedHashMultimap.create();
+
+  FileAnalysis(long contentHash) {
+    this.contentHash = contentHash;
+  }
+
+  /**
+   * Prevents results of the file from being cached, for instance when they can not be replayed.
+   */
+  public void invalidate() {
+    cacheable = false;
+  }
+
+  /**
+   * Marks the recording as complete.
+   *
+   * @param classFiles paths of the class files read from the classpath to analyze the file
+   */
+  public void recordDependencies(Collection<String> classFiles) {
+    dependencies = ImmutableList.copyOf(classFiles);
+  }
+
+  /**
+   * @return <tt>true</tt> if the file was completely analyzed and all its results can be replayed
+   */
+  boolean isComplete() {
+    return cacheable && dependencies != null;
+  }
+
+  /**
+   * Records issues and NoSonar lines of the given file.
+   *
+   * @param checks visitors of the analysis, issues raised by other objects are not cacheable
+   */
+  public void recordSourceFile(SourceFile sourceFile, List<?> checks) {
+    noSonarLines.addAll(sourceFile.getNoSonarTagLines());
+    if (!sourceFile.hasCheckMessages()) {
+      return;
+    }
+    for (CheckMessage message : sourceFile.getCheckMessages()) {
+      int check = indexOf(checks, message.getCheck());
+      if (check < 0) {
+        invalidate();
+        return;
+      }
+      Integer line = message.getLine();
+      issues.add(new Issue(check, line == null ? 0 : line, message.formatDefaultMessage(), message.getCost()));
+    }
+  }
+
+  private static int indexOf(List<?> checks, Object check) {
+    for (int i = 0; i < checks.size(); i++) {
+      if (checks.get(i) == check) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  public void replaySourceFile(SourceFile sourceFile, List<?> checks) {
+    sourceFile.addNoSonarTagLines(noSonarLines);
+    for (Issue issue : issues) {
+      CheckMessage message = new CheckMessage(checks.get(issue.check), issue.message);
+      if (issue.line > 0) {
+        message.setLine(issue.line);
+      }
+      if (issue.cost != null) {
+        message.setCost(issue.cost);
+      }
+      sourceFile.log(message);
+    }
+  }
+
+  public void recordMeasure(Measure measure) {
+    if (METRICS_BY_KEY.containsKey(measure.getMetricKey())) {
+      measures.add(measure);
+    } else {
+      invalidate();
+    }
+  }
+
+  public void replayMeasures(SensorContext sensorContext, Resource resource) {
+    for (Measure measure : measures) {
+      sensorContext.saveMeasure(resource, measure);
+    }
+  }
+
+  public FileLinesContext record(FileLinesContext fileLinesContext) {
+    return new RecordingFileLinesContext(fileLinesContext);
+  }
+
+  public void replayLines(FileLinesContext fileLinesContext) {
+    for (Map.Entry<String, IntSequence> entry : linesData.entrySet()) {
+      IntSequence values = entry.getValue();
+      for (int i = 0; i < values.size; i += 2) {
+        fileLinesContext.setIntValue(entry.getKey(), values.get(i), values.get(i + 1));
+      }
+    }
+    fileLinesContext.save();
+  }
+
+  public Highlightable record(Highlightable highlightable) {
+    return new RecordingHighlightable(highlightable);
+  }
+
+  public void replayHighlighting(Highlightable highlightable) {
+    if (highlighting == null) {
+      return;
+    }
+    Highlightable.HighlightingBuilder builder = highlightable.newHighlighting();
+    for (int i = 0; i < highlighting.size; i += 3) {
+      builder.highlight(highlighting.get(i), highlighting.get(i + 1), highlightingTypes.get(highlighting.get(i + 2)));
+    }
+    builder.done();
+  }
+
+  public Symbolizable record(Symbolizable symbolizable) {
+    return new RecordingSymbolizable(symbolizable);
+  }
+
+  public void replaySymbols(Symbolizable symbolizable) {
+    if (symbols == null) {
+      return;
+    }
+    Symbolizable.SymbolTableBuilder builder = symbolizable.newSymbolTableBuilder();
+    Symbol[] created = new Symbol[symbols.size / 2];
+    for (int i = 0; i < created.length; i++) {
+      created[i] = builder.newSymbol(symbols.get(2 * i), symbols.get(2 * i + 1));
+    }
+    for (int i = 0; i < references.size; i += 2) {
+      builder.newReference(created[references.get(i)], references.get(i + 1));
+    }
+    symbolizable.setSymbolTable(builder.build());
+  }
+
+  public void recordClasses(Collection<String> classKeys, Map<String, Integer> methodStartLines, Multimap<Integer, String> suppressWarningLines) {
+    this.classKeys.addAll(classKeys);
+    this.methodStartLines.putAll(methodStartLines);
+    this.suppressWarningLines.putAll(suppressWarningLines);
+  }
+
+  public List<String> classKeys() {
+    return classKeys;
+  }
+
+  public Map<String, Integer> methodStartLines() {
+    return methodStartLines;
+  }
+
+  public Multimap<Integer, String> suppressWarningLines() {
+    return suppressWarningLines;
+  }
+
+  void write(DataOutput out) throws IOException {
+    out.writeInt(issues.size());
+    for (Issue issue : issues) {
+      out.writeInt(issue.check);
+      out.writeInt(issue.line);
+      writeString(out, issue.message);
+      out.writeBoolean(issue.cost != null);
+      if (issue.cost != null) {
+        out.writeDouble(issue.cost);
+      }
+    }
+    out.writeInt(noSonarLines.size());
+    for (Integer line : noSonarLines) {
+      out.writeInt(line);
+    }
+    out.writeInt(measures.size());
+    for (Measure measure : measures) {
+      writeString(out, measure.getMetricKey());
+      writeNullableString(out, measure.getValue() == null ? null : measure.getValue().toString());
+      writeNullableString(out, measure.getData());
+      writeNullableString(out, measure.getPersistenceMode() == null ? null : measure.getPersistenceMode().name());
+    }
+    out.writeInt(linesData.size());
+    for (Map.Entry<String, IntSequence> entry : linesData.entrySet()) {
+      writeString(out, entry.getKey());
+      entry.getValue().write(out);
+    }
+    out.writeBoolean(highlighting != null);
+    if (highlighting != null) {
+      writeStrings(out, highlightingTypes);
+      highlighting.write(out);
+    }
+    out.writeBoolean(symbols != null);
+    if (symbols != null) {
+      symbols.write(out);
+      references.write(out);
+    }
+    writeStrings(out, classKeys);
+    out.writeInt(methodStartLines.size());
+    for (Map.Entry<String, Integer> entry : methodStartLines.entrySet()) {
+      writeString(out, entry.getKey());
+      out.writeInt(entry.getValue());
+    }
+    out.writeInt(suppressWarningLines.size());
+    for (Map.Entry<Integer, String> entry : suppressWarningLines.entries()) {
+      out.writeInt(entry.getKey());
+      writeString(out, entry.getValue());
+    }
+  }
+
+  /**
+   * @return results read from the given input, <tt>null</tt> if they refer to unknown metrics
+   */
+  @CheckForNull
+  static FileAnalysis read(DataInput in, long contentHash) throws IOException {
+    FileAnalysis result = new FileAnalysis(contentHash);
+    int count = in.readInt();
+    for (int i = 0; i < count; i++) {
+      int check = in.readInt();
+      int line = in.readInt();
+      String message = readString(in);
+      Double cost = in.readBoolean() ? in.readDouble() : null;
+      result.issues.add(new Issue(check, line, message, cost));
+    }
+    count = in.readInt();
+    for (int i = 0; i < count; i++) {
+      result.noSonarLines.add(in.readInt());
+    }
+    count = in.readInt();
+    for (int i = 0; i < count; i++) {
+      Metric metric = METRICS_BY_KEY.get(readString(in));
+      String value = readNullableString(in);
+      String data = readNullableString(in);
+      String persistenceMode = readNullableString(in);
+      if (metric == null) {
+        result.invalidate();
+      } else {
+        Measure measure = new Measure(metric);
+        if (value != null) {
+          measure.setValue(Double.valueOf(value));
+        }
+        measure.setData(data);
+        if (persistenceMode != null) {
+          measure.setPersistenceMode(PersistenceMode.valueOf(persistenceMode));
+        }
+        result.measures.add(measure);
+      }
+    }
+    count = in.readInt();
+    for (int i = 0; i < count; i++) {
+      result.linesData.put(readString(in), IntSequence.read(in));
+    }
+    if (in.readBoolean()) {
+      result.highlightingTypes.addAll(readStrings(in));
+      result.highlighting = IntSequence.read(in);
+    }
+    if (in.readBoolean()) {
+      result.symbols = IntSequence.read(in);
+      result.references.addAll(IntSequence.read(in));
+    }
+    result.classKeys.addAll(readStrings(in));
+    count = in.readInt();
+    for (int i = 0; i < count; i++) {
+      result.methodStartLines.put(readString(in), in.readInt());
+    }
+    count = in.readInt();
+    for (int i = 0; i < count; i++) {
+      result.suppressWarningLines.put(in.readInt(), readString(in));
+    }
+    return result.cacheable ? result : null;
+  }
+
+  static void writeString(DataOutput out, String value) throws IOException {
+    byte[] bytes = value.getBytes(Charsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  static String readString(DataInput in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, Charsets.UTF_8);
+  }
+
+  private static void writeNullableString(DataOutput out, @Nullable String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      writeString(out, value);
+    }
+  }
+
+  @CheckForNull
+  private static String readNullableString(DataInput in) throws IOException {
+    return in.readBoolean() ? readString(in) : null;
+  }
+
+  static void writeStrings(DataOutput out, Collection<String> values) throws IOException {
+    out.writeInt(values.size());
+    for (String value : values) {
+      writeString(out, value);
+    }
+  }
+
+  static List<String> readStrings(DataInput in) throws IOException {
+    int count = in.readInt();
+    List<String> result = Lists.newArrayListWithCapacity(count);
+    for (int i = 0; i < count; i++) {
+      result.add(readString(in));
+    }
+    return result;
+  }
+
+  private static Map<String, Metric> metricsByKey() {
+    Map<String, Metric> result = Maps.newHashMap();
+    for (Metric metric : CoreMetrics.getMetrics()) {
+      result.put(metric.getKey(), metric);
+    }
+    return result;
+  }
+
+  private static class Issue {
+    private final int check;
+    private final int line;
+    private final String message;
+    private final Double cost;
+
+    Issue(int check, int line, String message, @Nullable Double cost) {
+      this.check = check;
+      this.line = line;
+      this.message = message;
+      this.cost = cost;
+    }
+  }
+
+  /**
+   * Growable sequence of ints, which avoids boxing of the numerous offsets and line numbers of a file.
+   */
+  private static class IntSequence {
+    private int[] values = new int[16];
+    private int size;
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    void addAll(IntSequence other) {
+      for (int i = 0; i < other.size; i++) {
+        add(other.values[i]);
+      }
+    }
+
+    int get(int index) {
+      return values[index];
+    }
+
+    void write(DataOutput out) throws IOException {
+      out.writeInt(size);
+      for (int i = 0; i < size; i++) {
+        out.writeInt(values[i]);
+      }
+    }
+
+    static IntSequence read(DataInput in) throws IOException {
+      IntSequence result = new IntSequence();
+      int count = in.readInt();
+      result.values = new int[Math.max(count, 1)];
+      for (int i = 0; i < count; i++) {
+        result.values[i] = in.readInt();
+      }
+      result.size = count;
+      return result;
+    }
+  }
+
+  private class RecordingFileLinesContext implements FileLinesContext {
+    private final FileLinesContext delegate;
+
+    RecordingFileLinesContext(FileLinesContext delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void setIntValue(String metricKey, int line, int value) {
+      IntSequence values = linesData.get(metricKey);
+      if (values == null) {
+        values = new IntSequence();
+        linesData.put(metricKey, values);
+      }
+      values.add(line);
+      values.add(value);
+      delegate.setIntValue(metricKey, line, value);
+    }
+
+    @Override
+    public Integer getIntValue(String metricKey, int line) {
+      return delegate.getIntValue(metricKey, line);
+    }
+
+    @Override
+    public void setStringValue(String metricKey, int line, String value) {
+      // Only int values are recorded
+      invalidate();
+      delegate.setStringValue(metricKey, line, value);
+    }
+
+    @Override
+    public String getStringValue(String metricKey, int line) {
+      return delegate.getStringValue(metricKey, line);
+    }
+
+    @Override
+    public void save() {
+      delegate.save();
+    }
+  }
+
+  private class RecordingHighlightable implements Highlightable {
+    private final Highlightable delegate;
+
+    RecordingHighlightable(Highlightable delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public HighlightingBuilder newHighlighting() {
+      final HighlightingBuilder builder = delegate.newHighlighting();
+      highlighting = new IntSequence();
+      highlightingTypes.clear();
+      return new HighlightingBuilder() {
+        @Override
+        public HighlightingBuilder highlight(int startOffset, int endOffset, String typeOfText) {
+          int type = highlightingTypes.indexOf(typeOfText);
+          if (type < 0) {
+            type = highlightingTypes.size();
+            highlightingTypes.add(typeOfText);
+          }
+          highlighting.add(startOffset);
+          highlighting.add(endOffset);
+          highlighting.add(type);
+          builder.highlight(startOffset, endOffset, typeOfText);
+          return this;
+        }
+
+        @Override
+        public void done() {
+          builder.done();
+        }
+      };
+    }
+
+    @Override
+    public Component component() {
+      return delegate.component();
+    }
+  }
+
+  private class RecordingSymbolizable implements Symbolizable {
+    private final Symbolizable delegate;
+
+    RecordingSymbolizable(Symbolizable delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public SymbolTableBuilder newSymbolTableBuilder() {
+      final SymbolTableBuilder builder = delegate.newSymbolTableBuilder();
+      final IntSequence declarations = new IntSequence();
+      final Map<Symbol, Integer> indexes = new IdentityHashMap<Symbol, Integer>();
+      return new SymbolTableBuilder() {
+        @Override
+        public Symbol newSymbol(int fromOffset, int toOffset) {
+          Symbol symbol = builder.newSymbol(fromOffset, toOffset);
+          indexes.put(symbol, indexes.size());
+          declarations.add(fromOffset);
+          declarations.add(toOffset);
+          return symbol;
+        }
+
+        @Override
+        public void newReference(Symbol symbol, int fromOffset) {
+          Integer index = indexes.get(symbol);
+          if (index == null) {
+            invalidate();
+          } else {
+            references.add(index);
+            references.add(fromOffset);
+          }
+          builder.newReference(symbol, fromOffset);
+        }
+
+        @Override
+        public SymbolTable build() {
+          symbols = declarations;
+          return builder.build();
+        }
+      };
+    }
+
+    @Override
+    public void setSymbolTable(SymbolTable symbolTable) {
+      delegate.setSymbolTable(symbolTable);
+    }
+
+    @Override
+    public Component component() {
+      return delegate.component();
+    }
+  }
+
+}
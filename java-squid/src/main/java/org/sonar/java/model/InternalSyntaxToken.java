@@ -31,6 +31,7 @@ import org.sonar.plugins.java.api.tree.SyntaxTrivia;
 import org.sonar.plugins.java.api.tree.Tree;
 import org.sonar.plugins.java.api.tree.TreeVisitor;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -70,8 +71,11 @@ public class InternalSyntaxToken extends JavaTree implements SyntaxToken {
     return trivias;
   }
 
-  private List<SyntaxTrivia> createTrivias(Token token) {
-    List<SyntaxTrivia> result = Lists.newArrayList();
+  private static List<SyntaxTrivia> createTrivias(Token token) {
+    if (!token.hasTrivia()) {
+      return Collections.emptyList();
+    }
+    List<SyntaxTrivia> result = Lists.newArrayListWithCapacity(token.getTrivia().size());
     for (Trivia trivia : token.getTrivia()) {
       result.add(InternalSyntaxTrivia.create(trivia.getToken().getValue(), trivia.getToken().getLine()));
     }
@@ -118,6 +122,9 @@ public class InternalSyntaxToken extends JavaTree implements SyntaxToken {
   }
 
   public static InternalSyntaxToken create(AstNode astNode) {
+    if (astNode instanceof InternalSyntaxToken) {
+      return (InternalSyntaxToken) astNode;
+    }
     Preconditions.checkArgument(astNode.hasToken(), "has no token");
     Preconditions.checkArgument(astNode.getToken() == astNode.getLastToken(), "has several tokens");
     return new InternalSyntaxToken(astNode.getType(), astNode.getToken(), astNode.getFromIndex(), astNode.getToIndex());
@@ -52,6 +52,13 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 
+/**
+ * Still an {@link AstNode}: {@link org.sonar.java.ast.AstScanner} runs the {@link org.sonar.squidbridge.SquidAstVisitor}s
+ * (such as {@link org.sonar.java.ast.visitors.FileVisitor} and {@link org.sonar.java.ast.visitors.FileLinesVisitor}) on this tree,
+ * and {@link org.sonar.java.ast.visitors.SubscriptionVisitor} reads tokens from it, so these consumers have to be ported
+ * to the syntax tree before the inheritance can be removed.
+ * Tokens are already built once, as {@link InternalSyntaxToken} leaves shared by both trees.
+ */
 public abstract class JavaTree extends AstNode implements Tree {
 
   private static final AstNodeType NULL_NODE = new AstNodeType() {
@@ -64,6 +71,7 @@ public abstract class JavaTree extends AstNode implements Tree {
   };
 
   private final AstNode astNode;
+  private JavaTree parent;
 
   public JavaTree(AstNodeType type) {
     super(type, type.toString(), null);
@@ -125,6 +133,19 @@ public abstract class JavaTree extends AstNode implements Tree {
     return astNode;
   }
 
+  /**
+   * @return tree of which this tree is one of the {@link #childrenIterator() children}, as linked by the semantic model,
+   * which might differ from {@link #getParent()} for legacy nodes
+   */
+  @Nullable
+  public JavaTree parent() {
+    return parent;
+  }
+
+  public void setParent(@Nullable JavaTree parent) {
+    this.parent = parent;
+  }
+
   public int getLine() {
     return astNode.getTokenLine();
   }
@@ -29,9 +29,18 @@ import org.slf4j.LoggerFactory;
 import org.sonar.api.utils.AnnotationUtils;
 import org.sonar.java.CharsetAwareVisitor;
 import org.sonar.java.SonarComponents;
+import org.sonar.java.ast.ParallelizableVisitor;
 import org.sonar.java.ast.visitors.ComplexityVisitor;
-import org.sonar.java.ast.visitors.SonarSymbolTableVisitor;
+import org.sonar.java.ast.visitors.HighlightingAndSymbolTableVisitor;
+import org.sonar.java.ast.visitors.SubscriptionDispatcher;
+import org.sonar.java.ast.visitors.SubscriptionVisitor;
+import org.sonar.java.ast.visitors.VisitorContext;
+import org.sonar.java.bytecode.loader.ClassFileStore;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+import org.sonar.java.incremental.AnalysisCache;
+import org.sonar.java.incremental.FileAnalysis;
 import org.sonar.java.resolve.SemanticModel;
+import org.sonar.plugins.java.api.FileContent;
 import org.sonar.plugins.java.api.JavaCheck;
 import org.sonar.plugins.java.api.JavaFileScanner;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
@@ -51,19 +60,28 @@ import java.io.File;
 import java.lang.annotation.Annotation;
 import java.nio.charset.Charset;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.regex.Pattern;
 
-public class VisitorsBridge extends SquidAstVisitor<LexerlessGrammar> implements CharsetAwareVisitor {
+public class VisitorsBridge extends SquidAstVisitor<LexerlessGrammar> implements CharsetAwareVisitor, ParallelizableVisitor {
 
   private static final Logger LOG = LoggerFactory.getLogger(VisitorsBridge.class);
 
   private final List<JavaFileScanner> scanners;
+  private final List<JavaFileScanner> executedScanners;
   private final SonarComponents sonarComponents;
   private SemanticModel semanticModel;
   private List<File> projectClasspath;
   private boolean analyseAccessors;
+  private SquidClassLoader classLoader;
+  private boolean filePrepared = false;
+  private Object preparedFile;
+  private AnalysisCache analysisCache;
+  private long methodResolutionCacheHits = 0;
+  private long methodResolutionCacheMisses = 0;
+  private Charset charset;
 
   @VisibleForTesting
   public VisitorsBridge(JavaFileScanner visitor) {
@@ -83,16 +101,56 @@ public class VisitorsBridge extends SquidAstVisitor<LexerlessGrammar> implements
       }
     }
     this.scanners = scannersBuilder.build();
+    this.executedScanners = dispatchSubscriptions(scanners);
     this.sonarComponents = sonarComponents;
     this.projectClasspath = projectClasspath;
   }
 
+  /**
+   * Subscription visitors are executed all together by a {@link SubscriptionDispatcher}, at the position of the first of them,
+   * so that they share a single walk of each file.
+   */
+  private static List<JavaFileScanner> dispatchSubscriptions(List<JavaFileScanner> scanners) {
+    List<SubscriptionVisitor> subscriptionVisitors = Lists.newArrayList();
+    for (JavaFileScanner scanner : scanners) {
+      if (SubscriptionDispatcher.isDispatchable(scanner)) {
+        subscriptionVisitors.add((SubscriptionVisitor) scanner);
+      }
+    }
+    ImmutableList.Builder<JavaFileScanner> result = ImmutableList.builder();
+    boolean dispatcherAdded = false;
+    for (JavaFileScanner scanner : scanners) {
+      if (!SubscriptionDispatcher.isDispatchable(scanner)) {
+        result.add(scanner);
+      } else if (!dispatcherAdded) {
+        result.add(new SubscriptionDispatcher(subscriptionVisitors));
+        dispatcherAdded = true;
+      }
+    }
+    return result.build();
+  }
+
   public void setAnalyseAccessors(boolean analyseAccessors) {
     this.analyseAccessors = analyseAccessors;
   }
 
+  /**
+   * Bytecode of the project classpath will be read from the given store, instead of opening classpath for each file.
+   */
+  public void setClassFileStore(@Nullable ClassFileStore classFileStore) {
+    this.classLoader = classFileStore == null ? null : classFileStore.createClassLoader(projectClasspath);
+  }
+
+  /**
+   * Class files read to build semantic models of files are recorded into the given cache, as dependencies of those files.
+   */
+  public void setAnalysisCache(@Nullable AnalysisCache analysisCache) {
+    this.analysisCache = analysisCache;
+  }
+
   @Override
   public void setCharset(Charset charset) {
+    this.charset = charset;
     for (JavaFileScanner scanner : scanners) {
       if (scanner instanceof CharsetAwareVisitor) {
         ((CharsetAwareVisitor) scanner).setCharset(charset);
@@ -100,35 +158,89 @@ public class VisitorsBridge extends SquidAstVisitor<LexerlessGrammar> implements
     }
   }
 
+  /**
+   * Builds semantic model of the file.
+   *
+   * @return the semantic model, <tt>null</tt> if file does not require one, or exception raised during its construction
+   */
+  @Override
+  @Nullable
+  public Object prepareFile(File file, AstNode astNode) {
+    CompilationUnitTree tree = (CompilationUnitTree) astNode;
+    if (isNotJavaLangOrSerializable(file.getPath())) {
+      try {
+        return createSemanticModel(tree);
+      } catch (Exception e) {
+        return e;
+      }
+    }
+    SemanticModel.handleMissingTypes(tree);
+    return null;
+  }
+
+  @Override
+  public void setPreparedFile(@Nullable Object preparedFile) {
+    this.filePrepared = true;
+    this.preparedFile = preparedFile;
+  }
+
   @Override
   public void visitFile(@Nullable AstNode astNode) {
     semanticModel = null;
+    Object prepared = filePrepared ? preparedFile : null;
+    filePrepared = false;
+    preparedFile = null;
     if (astNode != null) {
       CompilationUnitTree tree = (CompilationUnitTree) astNode;
-      if (isNotJavaLangOrSerializable()) {
-        try {
-          semanticModel = SemanticModel.createFor(tree, getProjectClasspath());
-        } catch (Exception e) {
-          LOG.error("Unable to create symbol table for : " + getContext().getFile().getAbsolutePath(), e);
-          return;
-        }
-        createSonarSymbolTable(tree);
+      FileContent fileContent = VisitorContext.fileContent(getContext(), charset);
+      if (prepared == null && isNotJavaLangOrSerializable(getContext().peekSourceCode().getName())) {
+        prepared = prepareFile(getContext().getFile(), astNode);
+      }
+      if (prepared instanceof Exception) {
+        LOG.error("Unable to create symbol table for : " + getContext().getFile().getAbsolutePath(), (Exception) prepared);
+        saveHighlightingAndSymbolTable(tree, fileContent);
+        return;
+      } else if (prepared != null) {
+        semanticModel = (SemanticModel) prepared;
+        methodResolutionCacheHits += semanticModel.methodResolutionCacheHits();
+        methodResolutionCacheMisses += semanticModel.methodResolutionCacheMisses();
       } else {
         SemanticModel.handleMissingTypes(tree);
       }
-      JavaFileScannerContext context = new DefaultJavaFileScannerContext(tree, (SourceFile) getContext().peekSourceCode(), getContext().getFile(), semanticModel, analyseAccessors);
-      for (JavaFileScanner scanner : scanners) {
+      saveHighlightingAndSymbolTable(tree, fileContent);
+      JavaFileScannerContext context = new DefaultJavaFileScannerContext(tree, (SourceFile) getContext().peekSourceCode(), getContext().getFile(),
+        fileContent, semanticModel, analyseAccessors);
+      for (JavaFileScanner scanner : executedScanners) {
         scanner.scanFile(context);
       }
       if (semanticModel != null) {
         // Close class loader after all the checks.
         semanticModel.done();
       }
+      recordDependencies();
+      // model of the file is not needed anymore, do not keep it until the next file
+      semanticModel = null;
     }
   }
 
-  private boolean isNotJavaLangOrSerializable() {
-    String[] path = getContext().peekSourceCode().getName().split(Pattern.quote(File.separator));
+  @Override
+  public void destroy() {
+    if (methodResolutionCacheHits + methodResolutionCacheMisses > 0) {
+      LOG.debug("Method resolution cache: {} hits, {} misses", methodResolutionCacheHits, methodResolutionCacheMisses);
+    }
+    methodResolutionCacheHits = 0;
+    methodResolutionCacheMisses = 0;
+  }
+
+  private void recordDependencies() {
+    FileAnalysis recording = analysisCache == null ? null : analysisCache.recordingFor(getContext().getFile());
+    if (recording != null) {
+      recording.recordDependencies(semanticModel == null ? Collections.<String>emptySet() : semanticModel.requestedClassFiles());
+    }
+  }
+
+  private static boolean isNotJavaLangOrSerializable(String fileName) {
+    String[] path = fileName.split(Pattern.quote(File.separator));
     boolean isJavaLang = path.length > 3 && "java".equals(path[path.length - 3]) && "lang".equals(path[path.length - 2]);
     boolean isJavaLangAnnotation = path.length > 4 && "Annotation.java".equals(path[path.length - 1]) && "java".equals(path[path.length - 4])
         && "lang".equals(path[path.length - 3]) && "annotation".equals(path[path.length - 2]);
@@ -136,14 +248,25 @@ public class VisitorsBridge extends SquidAstVisitor<LexerlessGrammar> implements
     return !(isJavaLang || isJavaLangAnnotation || isSerializable);
   }
 
+  private SemanticModel createSemanticModel(CompilationUnitTree tree) {
+    if (classLoader == null) {
+      return SemanticModel.createFor(tree, getProjectClasspath());
+    }
+    return SemanticModel.createFor(tree, classLoader);
+  }
+
   private List<File> getProjectClasspath() {
     return projectClasspath;
   }
 
-  private void createSonarSymbolTable(CompilationUnitTree tree) {
+  /**
+   * Symbol table is only saved when the semantic model of the file is available.
+   */
+  private void saveHighlightingAndSymbolTable(CompilationUnitTree tree, FileContent fileContent) {
     if (sonarComponents != null) {
-      SonarSymbolTableVisitor symVisitor = new SonarSymbolTableVisitor(sonarComponents.symbolizableFor(getContext().getFile()), semanticModel);
-      symVisitor.visitCompilationUnit(tree);
+      File file = getContext().getFile();
+      HighlightingAndSymbolTableVisitor visitor = new HighlightingAndSymbolTableVisitor(fileContent, semanticModel);
+      visitor.scanFile(tree, sonarComponents.highlightableFor(file), semanticModel == null ? null : sonarComponents.symbolizableFor(file));
     }
   }
 
@@ -155,11 +278,14 @@ public class VisitorsBridge extends SquidAstVisitor<LexerlessGrammar> implements
     private final SemanticModel semanticModel;
     private final ComplexityVisitor complexityVisitor;
     private final File file;
+    private final FileContent fileContent;
 
-    public DefaultJavaFileScannerContext(CompilationUnitTree tree, SourceFile sourceFile, File file, SemanticModel semanticModel, boolean analyseAccessors) {
+    public DefaultJavaFileScannerContext(CompilationUnitTree tree, SourceFile sourceFile, File file, FileContent fileContent,
+      SemanticModel semanticModel, boolean analyseAccessors) {
       this.tree = tree;
       this.sourceFile = sourceFile;
       this.file = file;
+      this.fileContent = fileContent;
       this.semanticModel = semanticModel;
       this.complexityVisitor = new ComplexityVisitor(analyseAccessors);
     }
@@ -231,6 +357,11 @@ public class VisitorsBridge extends SquidAstVisitor<LexerlessGrammar> implements
       return file;
     }
 
+    @Override
+    public FileContent getFileContent() {
+      return fileContent;
+    }
+
     @Override
     public int getComplexity(Tree tree) {
       return complexityVisitor.scan(tree);
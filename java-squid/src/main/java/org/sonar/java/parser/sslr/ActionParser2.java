@@ -23,8 +23,8 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
-import com.google.common.io.Files;
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.Grammar;
 import com.sonar.sslr.api.RecognitionException;
@@ -34,7 +34,10 @@ import com.sonar.sslr.impl.matcher.RuleDefinition;
 import net.sf.cglib.proxy.Enhancer;
 import net.sf.cglib.proxy.MethodInterceptor;
 import net.sf.cglib.proxy.MethodProxy;
+import net.sf.cglib.reflect.FastClass;
+import net.sf.cglib.reflect.FastMethod;
 import org.sonar.java.ast.parser.AstNodeSanitizer;
+import org.sonar.plugins.java.api.FileContent;
 import org.sonar.sslr.grammar.GrammarRuleKey;
 import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
 import org.sonar.sslr.internal.matchers.InputBuffer;
@@ -49,13 +52,13 @@ import org.sonar.sslr.parser.ParsingResult;
 
 import javax.annotation.Nullable;
 import java.io.File;
-import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.nio.charset.Charset;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class ActionParser2 extends Parser {
@@ -63,6 +66,7 @@ public class ActionParser2 extends Parser {
   private final Charset charset;
 
   private final AstNodeSanitizer astNodeSanitzer = new AstNodeSanitizer();
+  private final Object treeFactory;
   private final GrammarBuilderInterceptor grammarBuilderInterceptor;
   private final SyntaxTreeCreator<AstNode> syntaxTreeCreator;
   private final GrammarRuleKey rootRule;
@@ -102,6 +106,9 @@ public class ActionParser2 extends Parser {
       }
     }
 
+    grammarBuilderInterceptor.bindRules(treeFactory.getClass());
+
+    this.treeFactory = treeFactory;
     this.syntaxTreeCreator = new SyntaxTreeCreator<AstNode>(treeFactory, grammarBuilderInterceptor);
 
     b.setRootRule(rootRule);
@@ -110,6 +117,23 @@ public class ActionParser2 extends Parser {
     this.parseRunner = new ParseRunner(this.grammar.getRootRule());
   }
 
+  /**
+   * Creates a parser which shares with the given one its grammar and the mapping between rules and actions,
+   * both being immutable once built. Only the state of a parse is specific to each parser,
+   * so this is much cheaper than building the grammar again.
+   */
+  public ActionParser2(Charset charset, ActionParser2 parser) {
+    super(null);
+
+    this.charset = charset;
+    this.treeFactory = parser.treeFactory;
+    this.grammarBuilderInterceptor = parser.grammarBuilderInterceptor;
+    this.syntaxTreeCreator = new SyntaxTreeCreator<AstNode>(treeFactory, grammarBuilderInterceptor);
+    this.rootRule = parser.rootRule;
+    this.grammar = parser.grammar;
+    this.parseRunner = parser.parseRunner;
+  }
+
   @Override
   public AstNode parse(List tokens) {
     throw new UnsupportedOperationException();
@@ -117,11 +141,18 @@ public class ActionParser2 extends Parser {
 
   @Override
   public AstNode parse(File file) {
-    try {
-      return parse(new Input(Files.toString(file, charset).toCharArray(), file.toURI()));
-    } catch (IOException e) {
-      throw Throwables.propagate(e);
-    }
+    return parse(readContent(file));
+  }
+
+  public FileContent readContent(File file) {
+    return FileContent.read(file, charset);
+  }
+
+  /**
+   * Parses content already read, so that it can be shared with other consumers of the file.
+   */
+  public AstNode parse(FileContent content) {
+    return parse(new Input(content));
   }
 
   @Override
@@ -172,6 +203,7 @@ public class ActionParser2 extends Parser {
     private final Set<GrammarRuleKey> optionals = Sets.newHashSet();
     private final Set<GrammarRuleKey> oneOrMores = Sets.newHashSet();
     private final Set<GrammarRuleKey> zeroOrMores = Sets.newHashSet();
+    private final Map<Object, RuleBinding> bindings = Maps.newIdentityHashMap();
 
     private Method buildingMethod = null;
     private GrammarRuleKey ruleKey = null;
@@ -331,6 +363,76 @@ public class ActionParser2 extends Parser {
       return zeroOrMores.contains(ruleKey);
     }
 
+    /**
+     * Binds each rule key to the way its parse nodes are converted, and each action to a generated invoker,
+     * so that building a syntax tree requires neither reflection nor several lookups per node.
+     * A rule key of several kinds is bound to the first of them in the order of {@link RuleBinding.Kind}.
+     * Must be called once all the rules have been defined.
+     */
+    public void bindRules(Class<?> treeFactoryClass) {
+      FastClass fastClass = FastClass.create(treeFactoryClass);
+      for (GrammarRuleKey key : mapping.values()) {
+        bind(key, RuleBinding.DELEGATE);
+      }
+      for (GrammarRuleKey key : optionals) {
+        bind(key, RuleBinding.OPTIONAL);
+      }
+      for (GrammarRuleKey key : oneOrMores) {
+        bind(key, RuleBinding.ONE_OR_MORE);
+      }
+      for (GrammarRuleKey key : zeroOrMores) {
+        bind(key, RuleBinding.ZERO_OR_MORE);
+      }
+      for (Map.Entry<Method, GrammarRuleKey> entry : actions.entrySet()) {
+        if (!bindings.containsKey(entry.getValue())) {
+          bindings.put(entry.getValue(), new RuleBinding(RuleBinding.Kind.ACTION, fastClass.getMethod(entry.getKey())));
+        }
+      }
+    }
+
+    private void bind(GrammarRuleKey key, RuleBinding binding) {
+      if (!bindings.containsKey(key)) {
+        bindings.put(key, binding);
+      }
+    }
+
+    /**
+     * @return the binding of the given rule key, or <tt>null</tt> if nodes of this rule are converted into plain {@link AstNode}
+     */
+    @Nullable
+    public RuleBinding bindingForRuleKey(Object ruleKey) {
+      return bindings.get(ruleKey);
+    }
+
+  }
+
+  public static final class RuleBinding {
+
+    public enum Kind {
+      DELEGATE, OPTIONAL, ONE_OR_MORE, ZERO_OR_MORE, ACTION
+    }
+
+    private static final RuleBinding DELEGATE = new RuleBinding(Kind.DELEGATE, null);
+    private static final RuleBinding OPTIONAL = new RuleBinding(Kind.OPTIONAL, null);
+    private static final RuleBinding ONE_OR_MORE = new RuleBinding(Kind.ONE_OR_MORE, null);
+    private static final RuleBinding ZERO_OR_MORE = new RuleBinding(Kind.ZERO_OR_MORE, null);
+
+    private final Kind kind;
+    private final FastMethod action;
+
+    private RuleBinding(Kind kind, @Nullable FastMethod action) {
+      this.kind = kind;
+      this.action = action;
+    }
+
+    public Kind kind() {
+      return kind;
+    }
+
+    public Object invokeAction(Object treeFactory, Object[] args) throws InvocationTargetException {
+      return action.invoke(treeFactory, args);
+    }
+
   }
 
   public static class ActionMethodInterceptor implements MethodInterceptor {
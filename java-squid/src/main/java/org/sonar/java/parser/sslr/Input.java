@@ -19,12 +19,11 @@
  */
 package org.sonar.java.parser.sslr;
 
-import com.google.common.collect.Lists;
+import org.sonar.plugins.java.api.FileContent;
 
 import java.io.File;
 import java.net.URI;
 import java.util.Arrays;
-import java.util.List;
 
 public class Input {
 
@@ -38,19 +37,35 @@ public class Input {
     this(input, FAKE_URI);
   }
 
+  /**
+   * Reuses the offsets of lines computed by the given content.
+   */
+  public Input(FileContent content) {
+    this.input = content.chars();
+    this.uri = content.file().toURI();
+    this.newLineIndexes = new int[content.lines() - 1];
+    for (int i = 0; i < newLineIndexes.length; i++) {
+      newLineIndexes[i] = content.lineStart(i + 2);
+    }
+  }
+
   public Input(char[] input, URI uri) {
     this.input = input;
     this.uri = uri;
 
-    List<Integer> newLineIndexesBuilder = Lists.newArrayList();
+    int newLines = 0;
     for (int i = 0; i < input.length; i++) {
       if (isNewLine(input, i)) {
-        newLineIndexesBuilder.add(i + 1);
+        newLines++;
       }
     }
-    this.newLineIndexes = new int[newLineIndexesBuilder.size()];
-    for (int i = 0; i < newLineIndexes.length; i++) {
-      this.newLineIndexes[i] = newLineIndexesBuilder.get(i);
+    this.newLineIndexes = new int[newLines];
+    int j = 0;
+    for (int i = 0; i < input.length; i++) {
+      if (isNewLine(input, i)) {
+        newLineIndexes[j] = i + 1;
+        j++;
+      }
     }
   }
 
@@ -63,11 +78,7 @@ public class Input {
   }
 
   public String substring(int from, int to) {
-    StringBuilder sb = new StringBuilder();
-    for (int i = from; i < to; i++) {
-      sb.append(input[i]);
-    }
-    return sb.toString();
+    return new String(input, from, to - from);
   }
 
   public int[] lineAndColumnAt(int index) {
@@ -77,12 +88,18 @@ public class Input {
     return result;
   }
 
-  private int lineAt(int index) {
+  /**
+   * @return line, starting at 1, of the character at the given index
+   */
+  int lineAt(int index) {
     int i = Arrays.binarySearch(newLineIndexes, index);
     return i >= 0 ? (i + 2) : -i;
   }
 
-  private int lineStartIndex(int line) {
+  /**
+   * @return index of the first character of the given line
+   */
+  int lineStartIndex(int line) {
     return line == 1 ? 0 : newLineIndexes[line - 2];
   }
 
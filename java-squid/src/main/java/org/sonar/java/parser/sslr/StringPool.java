@@ -0,0 +1,109 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.parser.sslr;
+
+/**
+ * Pool of token values, so that identifiers, keywords and operators occurring many times in the files
+ * parsed by a same parser share a single string, which is looked up without any temporary allocation.
+ * Not thread-safe: each parser has its own pool.
+ */
+class StringPool {
+
+  /**
+   * Longer values (typically comments and string literals) are unlikely to repeat and are not pooled.
+   */
+  static final int MAX_POOLED_LENGTH = 32;
+  static final int MAX_POOLED_VALUES = 1 << 16;
+
+  private String[] table = new String[1 << 10];
+  private int size = 0;
+
+  String get(char[] chars, int from, int to) {
+    int length = to - from;
+    if (length > MAX_POOLED_LENGTH) {
+      return new String(chars, from, length);
+    }
+
+    int hash = hash(chars, from, to);
+    int mask = table.length - 1;
+    int i = hash & mask;
+    String value = table[i];
+    while (value != null) {
+      if (value.hashCode() == hash && matches(value, chars, from, length)) {
+        return value;
+      }
+      i = (i + 1) & mask;
+      value = table[i];
+    }
+
+    value = new String(chars, from, length);
+    if (size < MAX_POOLED_VALUES) {
+      table[i] = value;
+      size++;
+      if (size * 2 > table.length) {
+        rehash();
+      }
+    }
+    return value;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Same hash as {@link String#hashCode()}, which is cached by pooled strings.
+   */
+  private static int hash(char[] chars, int from, int to) {
+    int hash = 0;
+    for (int i = from; i < to; i++) {
+      hash = 31 * hash + chars[i];
+    }
+    return hash;
+  }
+
+  private static boolean matches(String value, char[] chars, int from, int length) {
+    if (value.length() != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (value.charAt(i) != chars[from + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void rehash() {
+    String[] newTable = new String[table.length * 2];
+    int mask = newTable.length - 1;
+    for (String value : table) {
+      if (value != null) {
+        int i = value.hashCode() & mask;
+        while (newTable[i] != null) {
+          i = (i + 1) & mask;
+        }
+        newTable[i] = value;
+      }
+    }
+    table = newTable;
+  }
+
+}
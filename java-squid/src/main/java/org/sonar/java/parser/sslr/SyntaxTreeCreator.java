@@ -28,15 +28,18 @@ import com.sonar.sslr.api.Token;
 import com.sonar.sslr.api.TokenType;
 import com.sonar.sslr.api.Trivia;
 import com.sonar.sslr.api.Trivia.TriviaKind;
+import org.sonar.java.model.InternalSyntaxToken;
+import org.sonar.java.model.JavaTree;
 import org.sonar.java.parser.sslr.ActionParser2.GrammarBuilderInterceptor;
-import org.sonar.sslr.grammar.GrammarRuleKey;
+import org.sonar.java.parser.sslr.ActionParser2.RuleBinding;
 import org.sonar.sslr.internal.grammar.MutableParsingRule;
 import org.sonar.sslr.internal.matchers.ParseNode;
 import org.sonar.sslr.internal.vm.TokenExpression;
 import org.sonar.sslr.internal.vm.TriviaExpression;
 
+import javax.annotation.Nullable;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -71,6 +74,7 @@ public class SyntaxTreeCreator<T> {
 
   private final Token.Builder tokenBuilder = Token.builder();
   private final List<Trivia> trivias = Lists.newArrayList();
+  private final StringPool tokenValues = new StringPool();
 
   private Input input;
 
@@ -95,70 +99,116 @@ public class SyntaxTreeCreator<T> {
 
   private Object visitNonTerminal(ParseNode node) {
     MutableParsingRule rule = (MutableParsingRule) node.getMatcher();
-    GrammarRuleKey ruleKey = rule.getRuleKey();
+    RuleBinding binding = mapping.bindingForRuleKey(rule.getRuleKey());
+    List<ParseNode> children = node.getChildren();
 
-    if (mapping.hasMethodForRuleKey(ruleKey)) {
-      // TODO Drop useless intermediate nodes
-      Preconditions.checkState(node.getChildren().size() == 1);
-      return visit(node.getChildren().get(0));
+    if (binding == null) {
+      return newAstNode(node, rule, convertChildrenToList(children));
     }
 
-    if (mapping.isOptionalRule(ruleKey)) {
-      Preconditions.checkState(node.getChildren().size() <= 1);
-      if (node.getChildren().isEmpty()) {
-        return Optional.absent();
-      } else {
-        return Optional.of(visit(node.getChildren().get(0)));
-      }
+    switch (binding.kind()) {
+      case DELEGATE:
+        // TODO Drop useless intermediate nodes
+        Preconditions.checkState(children.size() == 1);
+        return visit(children.get(0));
+      case OPTIONAL:
+        Preconditions.checkState(children.size() <= 1);
+        if (children.isEmpty()) {
+          return Optional.absent();
+        } else {
+          return Optional.of(visit(children.get(0)));
+        }
+      case ONE_OR_MORE:
+        return convertChildrenToList(children);
+      case ZERO_OR_MORE:
+        List<Object> convertedChildren = convertChildrenToList(children);
+        return convertedChildren.isEmpty() ? Optional.absent() : Optional.of(convertedChildren);
+      case ACTION:
+        try {
+          return binding.invokeAction(treeFactory, convertChildren(children));
+        } catch (InvocationTargetException e) {
+          throw Throwables.propagate(e);
+        }
+      default:
+        throw new IllegalStateException("Unexpected rule binding: " + binding.kind());
     }
+  }
 
-    List<ParseNode> children = node.getChildren();
-    List<Object> convertedChildren = Lists.newArrayList();
-    for (ParseNode child : children) {
-      Object result = visit(child);
-      if (result != null) {
-        convertedChildren.add(result);
-      }
+  private AstNode newAstNode(ParseNode node, MutableParsingRule rule, List<Object> convertedChildren) {
+    AstNode tokenNode = singleTerminal(convertedChildren);
+    if (tokenNode != null) {
+      // Rules matching a single token, such as keywords and punctuators, become a leaf shared by the syntax tree and the legacy AST
+      return new InternalSyntaxToken(rule.getRealAstNodeType(), tokenNode.getToken(), tokenNode.getFromIndex(), tokenNode.getToIndex());
     }
 
-    if (mapping.isOneOrMoreRule(ruleKey)) {
-      return Lists.newArrayList(convertedChildren);
-    }
+    Token token = null;
 
-    if (mapping.isZeroOrMoreRule(ruleKey)) {
-      return convertedChildren.isEmpty() ? Optional.absent() : Optional.of(Lists.newArrayList(convertedChildren));
+    for (Object child : convertedChildren) {
+      if (child instanceof AstNode && ((AstNode) child).hasToken()) {
+        token = ((AstNode) child).getToken();
+        break;
+      }
+    }
+    AstNode astNode = new AstNode(rule.getRealAstNodeType(), rule.getName(), token);
+    for (Object child : convertedChildren) {
+      astNode.addChild((AstNode) child);
     }
 
-    Method method = mapping.actionForRuleKey(ruleKey);
-    if (method == null) {
-      Token token = null;
+    astNode.setFromIndex(node.getStartIndex());
+    astNode.setToIndex(node.getEndIndex());
 
-      for (Object child : convertedChildren) {
-        if (child instanceof AstNode && ((AstNode) child).hasToken()) {
-          token = ((AstNode) child).getToken();
-          break;
-        }
+    return astNode;
+  }
+
+  /**
+   * @return the only terminal among the given children when all others are empty nodes, such as the spacing following a token,
+   * <tt>null</tt> otherwise
+   */
+  @Nullable
+  private static AstNode singleTerminal(List<Object> convertedChildren) {
+    AstNode terminal = null;
+    for (Object child : convertedChildren) {
+      AstNode astNode = (AstNode) child;
+      if (astNode.hasChildren() || astNode instanceof JavaTree) {
+        return null;
       }
-      AstNode astNode = new AstNode(rule.getRealAstNodeType(), rule.getName(), token);
-      for (Object child : convertedChildren) {
-        astNode.addChild((AstNode) child);
+      if (astNode.hasToken()) {
+        if (terminal != null) {
+          return null;
+        }
+        terminal = astNode;
       }
+    }
+    return terminal;
+  }
 
-      astNode.setFromIndex(node.getStartIndex());
-      astNode.setToIndex(node.getEndIndex());
-
-      return astNode;
+  /**
+   * Converts children directly into the array of arguments of an action, trivia being skipped.
+   */
+  private Object[] convertChildren(List<ParseNode> children) {
+    int size = children.size();
+    Object[] result = new Object[size];
+    int count = 0;
+    for (int i = 0; i < size; i++) {
+      Object convertedChild = visit(children.get(i));
+      if (convertedChild != null) {
+        result[count] = convertedChild;
+        count++;
+      }
     }
+    return count == size ? result : Arrays.copyOf(result, count);
+  }
 
-    try {
-      return method.invoke(treeFactory, convertedChildren.toArray(new Object[convertedChildren.size()]));
-    } catch (IllegalAccessException e) {
-      throw Throwables.propagate(e);
-    } catch (IllegalArgumentException e) {
-      throw Throwables.propagate(e);
-    } catch (InvocationTargetException e) {
-      throw Throwables.propagate(e);
+  private List<Object> convertChildrenToList(List<ParseNode> children) {
+    int size = children.size();
+    List<Object> result = Lists.newArrayListWithCapacity(size);
+    for (int i = 0; i < size; i++) {
+      Object convertedChild = visit(children.get(i));
+      if (convertedChild != null) {
+        result.add(convertedChild);
+      }
     }
+    return result;
   }
 
   private AstNode visitTerminal(ParseNode node) {
@@ -198,11 +248,12 @@ public class SyntaxTreeCreator<T> {
 
   private void updateTokenPositionAndValue(ParseNode node) {
     tokenBuilder.setGeneratedCode(false);
-    int[] lineAndColumn = input.lineAndColumnAt(node.getStartIndex());
-    tokenBuilder.setLine(lineAndColumn[0]);
-    tokenBuilder.setColumn(lineAndColumn[1] - 1);
+    int startIndex = node.getStartIndex();
+    int line = input.lineAt(startIndex);
+    tokenBuilder.setLine(line);
+    tokenBuilder.setColumn(startIndex - input.lineStartIndex(line));
     tokenBuilder.setURI(input.uri());
-    String value = input.substring(node.getStartIndex(), node.getEndIndex());
+    String value = tokenValues.get(input.input(), startIndex, node.getEndIndex());
     tokenBuilder.setValueAndOriginalValue(value);
   }
 
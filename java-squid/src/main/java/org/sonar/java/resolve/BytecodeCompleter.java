@@ -21,23 +21,22 @@ package org.sonar.java.resolve;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
-import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
-import com.google.common.io.Closeables;
 import org.apache.commons.lang.StringUtils;
 import org.objectweb.asm.ClassReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.java.bytecode.ClassLoaderBuilder;
+import org.sonar.java.bytecode.loader.ClassFileStore;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
 
 import javax.annotation.Nullable;
-import java.io.Closeable;
 import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class BytecodeCompleter implements JavaSymbol.Completer {
 
@@ -48,6 +47,8 @@ public class BytecodeCompleter implements JavaSymbol.Completer {
       Flags.STATIC | Flags.FINAL | Flags.SYNCHRONIZED | Flags.VOLATILE | Flags.TRANSIENT | Flags.VARARGS | Flags.NATIVE |
       Flags.ABSTRACT | Flags.STRICTFP | Flags.DEPRECATED;
 
+  private static final int PARSING_OPTIONS = ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES | ClassReader.SKIP_DEBUG;
+
   private Symbols symbols;
   private final List<File> projectClasspath;
   private final ParametrizedTypeCache parametrizedTypeCache;
@@ -57,14 +58,29 @@ public class BytecodeCompleter implements JavaSymbol.Completer {
    */
   private final Map<String, JavaSymbol.TypeJavaSymbol> classes = new HashMap<String, JavaSymbol.TypeJavaSymbol>();
   private final Map<String, JavaSymbol.PackageJavaSymbol> packages = new HashMap<String, JavaSymbol.PackageJavaSymbol>();
+  private final Set<String> requestedClassFiles = new HashSet<String>();
+  /**
+   * Full names of classes which were not found, star imports typically lead to numerous lookups of such names.
+   */
+  private final Set<String> missingClasses = new HashSet<String>();
 
-  private ClassLoader classLoader;
+  private SquidClassLoader classLoader;
+  private boolean sharedClassLoader = false;
 
   public BytecodeCompleter(List<File> projectClasspath, ParametrizedTypeCache parametrizedTypeCache) {
     this.projectClasspath = projectClasspath;
     this.parametrizedTypeCache = parametrizedTypeCache;
   }
 
+  /**
+   * @param classLoader class loader shared with other completers, typically created by a {@link ClassFileStore}
+   */
+  public BytecodeCompleter(SquidClassLoader classLoader, ParametrizedTypeCache parametrizedTypeCache) {
+    this(ImmutableList.<File>of(), parametrizedTypeCache);
+    this.classLoader = classLoader;
+    this.sharedClassLoader = true;
+  }
+
   public void init(Symbols symbols) {
     this.symbols = symbols;
   }
@@ -87,33 +103,50 @@ public class BytecodeCompleter implements JavaSymbol.Completer {
     JavaSymbol.TypeJavaSymbol classSymbol = getClassSymbol(bytecodeName);
     Preconditions.checkState(classSymbol == symbol);
 
-    InputStream inputStream = null;
-    ClassReader classReader = null;
-    try {
-      inputStream = inputStreamFor(bytecodeName);
-      if(inputStream != null) {
-        classReader = new ClassReader(inputStream);
-      }
-    } catch (IOException e) {
-      throw Throwables.propagate(e);
-    } finally {
-      Closeables.closeQuietly(inputStream);
+    byte[] bytes = bytesFor(bytecodeName);
+    if (bytes != null) {
+      ClassReader classReader = new ClassReader(bytes);
+      classReader.accept(new BytecodeVisitor(this, symbols, classSymbol, parametrizedTypeCache, false), PARSING_OPTIONS);
+      classSymbol.membersCompleter = new MembersCompleter(classReader);
+    }
+  }
+
+  /**
+   * Reads fields and methods of a class once they are looked up, as most of the classes of libraries are only needed for their header,
+   * which is read by {@link #complete(JavaSymbol)}.
+   */
+  private class MembersCompleter implements JavaSymbol.Completer {
+
+    private final ClassReader classReader;
+
+    MembersCompleter(ClassReader classReader) {
+      this.classReader = classReader;
     }
-    if (classReader != null) {
-      classReader.accept(
-          new BytecodeVisitor(this, symbols, (JavaSymbol.TypeJavaSymbol) symbol, parametrizedTypeCache),
-          ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES | ClassReader.SKIP_DEBUG);
+
+    @Override
+    public void complete(JavaSymbol symbol) {
+      classReader.accept(new BytecodeVisitor(BytecodeCompleter.this, symbols, (JavaSymbol.TypeJavaSymbol) symbol, parametrizedTypeCache, true), PARSING_OPTIONS);
     }
+
   }
 
   @Nullable
-  private InputStream inputStreamFor(String fullname) {
-    return getClassLoader().getResourceAsStream(Convert.bytecodeName(fullname) + ".class");
+  private byte[] bytesFor(String fullname) {
+    String classFile = Convert.bytecodeName(fullname) + ".class";
+    requestedClassFiles.add(classFile);
+    return getClassLoader().loadBytes(classFile);
   }
 
-  private ClassLoader getClassLoader() {
+  /**
+   * @return paths of all the class files requested so far, including the ones which were not found
+   */
+  public Set<String> requestedClassFiles() {
+    return requestedClassFiles;
+  }
+
+  private SquidClassLoader getClassLoader() {
     if (classLoader == null) {
-      classLoader = ClassLoaderBuilder.create(projectClasspath);
+      classLoader = (SquidClassLoader) ClassLoaderBuilder.create(projectClasspath);
     }
     return classLoader;
   }
@@ -160,7 +193,7 @@ public class BytecodeCompleter implements JavaSymbol.Completer {
       symbol.typeParameters = new Scope(symbol);
 
       // (Godin): IOException will happen without this condition in case of missing class:
-      if (getClassLoader().getResource(Convert.bytecodeName(flatName) + ".class") != null) {
+      if (getClassLoader().hasResource(Convert.bytecodeName(flatName) + ".class")) {
         symbol.completer = this;
       } else {
         LOG.error("Class not found: " + bytecodeName);
@@ -190,27 +223,19 @@ public class BytecodeCompleter implements JavaSymbol.Completer {
     if (symbol != null) {
       return symbol;
     }
+    if (missingClasses.contains(fullname)) {
+      return new Resolve.JavaSymbolNotFound();
+    }
 
     // TODO(Godin): pull out conversion of name from the next method to avoid unnecessary conversion afterwards:
-    InputStream inputStream = inputStreamFor(fullname);
+    byte[] bytes = bytesFor(fullname);
     String bytecodeName = Convert.bytecodeName(fullname);
 
-    if (inputStream == null) {
+    if (bytes == null || !new ClassReader(bytes).getClassName().equals(bytecodeName)) {
+      missingClasses.add(fullname);
       return new Resolve.JavaSymbolNotFound();
     }
 
-    try {
-      ClassReader classReader = new ClassReader(inputStream);
-      String className = classReader.getClassName();
-      if (!className.equals(bytecodeName)) {
-        return new Resolve.JavaSymbolNotFound();
-      }
-    } catch (IOException e) {
-      throw Throwables.propagate(e);
-    } finally {
-      Closeables.closeQuietly(inputStream);
-    }
-
     return getClassSymbol(fullname);
   }
 
@@ -227,8 +252,8 @@ public class BytecodeCompleter implements JavaSymbol.Completer {
   }
 
   public void done() {
-    if (classLoader != null && classLoader instanceof Closeable) {
-      Closeables.closeQuietly((Closeable) classLoader);
+    if (classLoader != null && !sharedClassLoader) {
+      classLoader.close();
     }
   }
 
@@ -43,17 +43,23 @@ public class BytecodeVisitor extends ClassVisitor {
   private final JavaSymbol.TypeJavaSymbol classSymbol;
   private final ParametrizedTypeCache parametrizedTypeCache;
   private BytecodeCompleter bytecodeCompleter;
+  /**
+   * Whether only fields and methods of the class are read, or only its header: supertypes, flags, type parameters, annotations and inner classes.
+   */
+  private final boolean readMembers;
   /**
    * Name of current class in a format as it appears in bytecode, i.e. "org/example/MyClass$InnerClass".
    */
   private String className;
 
-  BytecodeVisitor(BytecodeCompleter bytecodeCompleter, Symbols symbols, JavaSymbol.TypeJavaSymbol classSymbol, ParametrizedTypeCache parametrizedTypeCache) {
+  BytecodeVisitor(BytecodeCompleter bytecodeCompleter, Symbols symbols, JavaSymbol.TypeJavaSymbol classSymbol, ParametrizedTypeCache parametrizedTypeCache,
+    boolean readMembers) {
     super(Opcodes.ASM5);
     this.bytecodeCompleter = bytecodeCompleter;
     this.symbols = symbols;
     this.classSymbol = classSymbol;
     this.parametrizedTypeCache = parametrizedTypeCache;
+    this.readMembers = readMembers;
   }
 
   private JavaSymbol.TypeJavaSymbol getClassSymbol(String bytecodeName) {
@@ -69,6 +75,9 @@ public class BytecodeVisitor extends ClassVisitor {
     Preconditions.checkState(name.endsWith(classSymbol.name), "Name : '" + name + "' should ends with " + classSymbol.name);
     Preconditions.checkState(!BytecodeCompleter.isSynthetic(flags), name + " is synthetic");
     className = name;
+    if (readMembers) {
+      return;
+    }
     if (signature != null) {
       SignatureReader signatureReader = new SignatureReader(signature);
       signatureReader.accept(new TypeParameterDeclaration(classSymbol));
@@ -116,6 +125,9 @@ public class BytecodeVisitor extends ClassVisitor {
 
   @Override
   public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+    if (readMembers) {
+      return null;
+    }
     JavaType annotationType = convertAsmType(org.objectweb.asm.Type.getType(desc));
     AnnotationInstanceResolve annotationInstance = new AnnotationInstanceResolve(annotationType.getSymbol());
     classSymbol.metadata().addAnnotation(annotationInstance);
@@ -135,7 +147,7 @@ public class BytecodeVisitor extends ClassVisitor {
 
   @Override
   public void visitInnerClass(String name, @Nullable String outerName, @Nullable String innerName, int flags) {
-    if (!BytecodeCompleter.isSynthetic(flags)) {
+    if (!readMembers && !BytecodeCompleter.isSynthetic(flags)) {
       // TODO what about flags?
       if (innerName == null) {
         // anonymous class
@@ -181,7 +193,7 @@ public class BytecodeVisitor extends ClassVisitor {
   public FieldVisitor visitField(int flags, String name, String desc, @Nullable String signature, @Nullable Object value) {
     Preconditions.checkNotNull(name);
     Preconditions.checkNotNull(desc);
-    if (!BytecodeCompleter.isSynthetic(flags)) {
+    if (readMembers && !BytecodeCompleter.isSynthetic(flags)) {
       //Flags from asm lib are defined in Opcodes class and map to flags defined in Flags class
       final JavaSymbol.VariableJavaSymbol symbol = new JavaSymbol.VariableJavaSymbol(bytecodeCompleter.filterBytecodeFlags(flags),
           name, convertAsmType(org.objectweb.asm.Type.getType(desc)), classSymbol);
@@ -201,7 +213,7 @@ public class BytecodeVisitor extends ClassVisitor {
   public MethodVisitor visitMethod(int flags, String name, String desc, @Nullable String signature, @Nullable String[] exceptions) {
     Preconditions.checkNotNull(name);
     Preconditions.checkNotNull(desc);
-    if (!BytecodeCompleter.isSynthetic(flags)) {
+    if (readMembers && !BytecodeCompleter.isSynthetic(flags)) {
       Preconditions.checkState((flags & Opcodes.ACC_BRIDGE) == 0, "bridge method not marked as synthetic in class " + className);
       // TODO(Godin): according to JVMS 4.7.24 - parameter can be marked as synthetic
       JavaType.MethodJavaType type = new JavaType.MethodJavaType(
@@ -284,7 +296,7 @@ public class BytecodeVisitor extends ClassVisitor {
    */
   @Override
   public void visitEnd() {
-    if (classSymbol.owner == null) {
+    if (!readMembers && classSymbol.owner == null) {
       String flatName = className.replace('/', '.');
       classSymbol.name = flatName.substring(flatName.lastIndexOf('.') + 1);
       classSymbol.owner = bytecodeCompleter.enterPackage(flatName);
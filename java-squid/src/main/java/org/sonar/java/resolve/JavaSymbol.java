@@ -62,6 +62,11 @@ public class JavaSymbol implements Symbol {
 
   Completer completer;
 
+  /**
+   * Whether {@link #completer} is being executed, i.e. content of this symbol is not yet fully known.
+   */
+  private boolean completing;
+
   JavaType type;
 
   private List<IdentifierTree> usages;
@@ -101,10 +106,19 @@ public class JavaSymbol implements Symbol {
     if (completer != null) {
       Completer c = completer;
       completer = null;
-      c.complete(this);
+      completing = true;
+      try {
+        c.complete(this);
+      } finally {
+        completing = false;
+      }
     }
   }
 
+  boolean isCompleting() {
+    return completing;
+  }
+
   /**
    * The outermost class which indirectly owns this symbol.
    */
@@ -283,10 +297,21 @@ public class JavaSymbol implements Symbol {
   public static class TypeJavaSymbol extends JavaSymbol implements TypeSymbol {
 
     Scope members;
+    /**
+     * Completes {@link #members} of a class read from bytecode on their first lookup, while {@link #completer} only completes its header.
+     */
+    Completer membersCompleter;
     Scope typeParameters;
     List<JavaType.TypeVariableJavaType> typeVariableTypes;
     ClassTree declaration;
 
+    /**
+     * Memoized results of {@link #superTypes()} and {@link #erasedSuperTypes()},
+     * kept only once all the types of the hierarchy are completed, as hierarchy can not change afterwards.
+     */
+    private Set<JavaType.ClassJavaType> superTypes;
+    private Set<JavaType> erasedSuperTypes;
+
     public TypeJavaSymbol(int flags, String name, JavaSymbol owner) {
       super(TYP, flags, name, owner);
       this.type = new JavaType.ClassJavaType(this);
@@ -310,6 +335,11 @@ public class JavaSymbol implements Symbol {
 
     public Scope members() {
       complete();
+      if (membersCompleter != null) {
+        Completer c = membersCompleter;
+        membersCompleter = null;
+        c.complete(this);
+      }
       return members;
     }
 
@@ -331,6 +361,55 @@ public class JavaSymbol implements Symbol {
      * @return list of classTypes.
      */
     public Set<JavaType.ClassJavaType> superTypes() {
+      Set<JavaType.ClassJavaType> result = superTypes;
+      if (result == null) {
+        result = computeSuperTypes();
+        if (isHierarchyCompleted(result)) {
+          superTypes = result;
+        }
+      }
+      return result;
+    }
+
+    /**
+     * Erasures of {@link #superTypes()}, so that subtyping between classes is checked with a single lookup.
+     */
+    Set<JavaType> erasedSuperTypes() {
+      Set<JavaType> result = erasedSuperTypes;
+      if (result == null) {
+        ImmutableSet.Builder<JavaType> builder = ImmutableSet.builder();
+        for (JavaType.ClassJavaType classType : superTypes()) {
+          builder.add(classType.erasure());
+        }
+        result = builder.build();
+        if (superTypes != null) {
+          erasedSuperTypes = result;
+        }
+      }
+      return result;
+    }
+
+    /**
+     * Forgets memoized supertypes, to be used when supertype or interfaces of this class are set after its completion.
+     */
+    void resetSuperTypes() {
+      superTypes = null;
+      erasedSuperTypes = null;
+    }
+
+    private boolean isHierarchyCompleted(Set<JavaType.ClassJavaType> types) {
+      if (isCompleting()) {
+        return false;
+      }
+      for (JavaType.ClassJavaType classType : types) {
+        if (classType.getSymbol().isCompleting()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private Set<JavaType.ClassJavaType> computeSuperTypes() {
       ImmutableSet.Builder<JavaType.ClassJavaType> types = ImmutableSet.builder();
       JavaType.ClassJavaType superClassType = (JavaType.ClassJavaType) this.superClass();
       types.addAll(this.interfacesOfType());
@@ -20,7 +20,9 @@
 package org.sonar.java.resolve;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
 
 import javax.annotation.Nullable;
 import java.util.List;
@@ -47,6 +49,13 @@ public class Resolve {
   private final Types types = new Types();
   private final Symbols symbols;
 
+  /**
+   * Results of method resolutions, as the same method is often invoked several times in a file with the same types of arguments.
+   */
+  private final Map<MethodLookup, Resolution> methodResolutions = Maps.newHashMap();
+  private int methodResolutionCacheHits = 0;
+  private int methodResolutionCacheMisses = 0;
+
   public Resolve(Symbols symbols, BytecodeCompleter bytecodeCompleter, ParametrizedTypeCache parametrizedTypeCache) {
     this.symbols = symbols;
     this.bytecodeCompleter = bytecodeCompleter;
@@ -375,10 +384,32 @@ public class Resolve {
   }
 
   public Resolution findMethod(Env env, JavaType site, String name, List<JavaType> argTypes) {
-    return findMethod(env, site, name, argTypes, ImmutableList.<JavaType>of(), false);
+    return findMethod(env, site, name, argTypes, ImmutableList.<JavaType>of());
   }
+
+  /**
+   * Result depends only on the given parameters and on the class and package of the environment, so it is computed once for each of their combinations.
+   * This includes phase with autoboxing, which is executed as part of the computation.
+   */
   public Resolution findMethod(Env env, JavaType site, String name, List<JavaType> argTypes, List<JavaType> typeParams) {
-    return findMethod(env, site, name, argTypes, typeParams, false);
+    MethodLookup lookup = new MethodLookup(env, site, name, argTypes, typeParams);
+    Resolution resolution = methodResolutions.get(lookup);
+    if (resolution == null) {
+      methodResolutionCacheMisses++;
+      resolution = findMethod(env, site, name, argTypes, typeParams, false);
+      methodResolutions.put(lookup, resolution);
+    } else {
+      methodResolutionCacheHits++;
+    }
+    return resolution;
+  }
+
+  int methodResolutionCacheHits() {
+    return methodResolutionCacheHits;
+  }
+
+  int methodResolutionCacheMisses() {
+    return methodResolutionCacheMisses;
   }
 
   private Resolution findMethod(Env env, JavaType site, String name, List<JavaType> argTypes, List<JavaType> typeParams, boolean autoboxing) {
@@ -708,6 +739,50 @@ public class Resolve {
     }
   }
 
+  private static class MethodLookup {
+    @Nullable
+    private final JavaSymbol.TypeJavaSymbol enclosingClass;
+    private final JavaSymbol.PackageJavaSymbol packge;
+    private final JavaType site;
+    private final String name;
+    private final List<JavaType> argTypes;
+    private final List<JavaType> typeParams;
+    private final int hashCode;
+
+    MethodLookup(Env env, JavaType site, String name, List<JavaType> argTypes, List<JavaType> typeParams) {
+      this.enclosingClass = env.enclosingClass;
+      this.packge = env.packge;
+      this.site = site;
+      this.name = name;
+      this.argTypes = ImmutableList.copyOf(argTypes);
+      this.typeParams = ImmutableList.copyOf(typeParams);
+      this.hashCode = Objects.hashCode(enclosingClass, packge, site, name, this.argTypes, this.typeParams);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof MethodLookup)) {
+        return false;
+      }
+      MethodLookup other = (MethodLookup) obj;
+      return hashCode == other.hashCode
+        && enclosingClass == other.enclosingClass
+        && packge == other.packge
+        && site.equals(other.site)
+        && name.equals(other.name)
+        && argTypes.equals(other.argTypes)
+        && typeParams.equals(other.typeParams);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
   static class Env {
     /**
      * The next enclosing environment.
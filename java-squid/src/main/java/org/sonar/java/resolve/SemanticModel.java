@@ -21,11 +21,9 @@ package org.sonar.java.resolve;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
-import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
 import org.sonar.java.model.AbstractTypedTree;
 import org.sonar.java.model.JavaTree;
 import org.sonar.plugins.java.api.semantic.Symbol;
@@ -41,30 +39,54 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class SemanticModel {
 
-  private final BiMap<Tree, Symbol> symbolsTree = HashBiMap.create();
-  private Multimap<Symbol, IdentifierTree> usagesTree = HashMultimap.create();
+  /**
+   * Trees, symbols and environments do not override {@link Object#equals(Object)}, identity maps avoid allocating an entry per mapping.
+   */
+  private final Map<Tree, Symbol> symbolsTree = Maps.newIdentityHashMap();
+  private final Map<Symbol, Tree> treesSymbol = Maps.newIdentityHashMap();
+  /**
+   * Usages themselves are kept by symbols, see {@link Symbol#usages()}.
+   */
+  private final Set<Symbol> usedSymbols = Sets.newIdentityHashSet();
 
-  private final Map<Symbol, Resolve.Env> symbolEnvs = Maps.newHashMap();
-  private final BiMap<Tree, Resolve.Env> envs = HashBiMap.create();
-  private final Map<Tree, Tree> parentLink = Maps.newHashMap();
+  private final Map<Symbol, Resolve.Env> symbolEnvs = Maps.newIdentityHashMap();
+  private final Map<Tree, Resolve.Env> envs = Maps.newIdentityHashMap();
+  private final Map<Resolve.Env, Tree> envsTree = Maps.newIdentityHashMap();
   private BytecodeCompleter bytecodeCompleter;
+  private int methodResolutionCacheHits;
+  private int methodResolutionCacheMisses;
 
   public static SemanticModel createFor(CompilationUnitTree tree, List<File> projectClasspath) {
     ParametrizedTypeCache parametrizedTypeCache = new ParametrizedTypeCache();
-    BytecodeCompleter bytecodeCompleter = new BytecodeCompleter(projectClasspath, parametrizedTypeCache);
+    return createFor(tree, new BytecodeCompleter(projectClasspath, parametrizedTypeCache), parametrizedTypeCache);
+  }
+
+  /**
+   * Creates semantic model reading bytecode through the given class loader, which is not closed by {@link #done()}
+   * and can thus be shared by all the files of an analysis.
+   */
+  public static SemanticModel createFor(CompilationUnitTree tree, SquidClassLoader classLoader) {
+    ParametrizedTypeCache parametrizedTypeCache = new ParametrizedTypeCache();
+    return createFor(tree, new BytecodeCompleter(classLoader, parametrizedTypeCache), parametrizedTypeCache);
+  }
+
+  private static SemanticModel createFor(CompilationUnitTree tree, BytecodeCompleter bytecodeCompleter, ParametrizedTypeCache parametrizedTypeCache) {
     Symbols symbols = new Symbols(bytecodeCompleter);
     SemanticModel semanticModel = new SemanticModel();
     semanticModel.bytecodeCompleter = bytecodeCompleter;
-    semanticModel.createParentLink((JavaTree) tree);
+    createParentLink((JavaTree) tree);
     try {
       Resolve resolve = new Resolve(symbols, bytecodeCompleter, parametrizedTypeCache);
       TypeAndReferenceSolver typeAndReferenceSolver = new TypeAndReferenceSolver(semanticModel, symbols, resolve, parametrizedTypeCache);
       new FirstPass(semanticModel, symbols, resolve, parametrizedTypeCache, typeAndReferenceSolver).visitCompilationUnit(tree);
       typeAndReferenceSolver.visitCompilationUnit(tree);
       new LabelsVisitor(semanticModel).visitCompilationUnit(tree);
+      semanticModel.methodResolutionCacheHits = resolve.methodResolutionCacheHits();
+      semanticModel.methodResolutionCacheMisses = resolve.methodResolutionCacheMisses();
     } finally {
       handleMissingTypes(tree);
     }
@@ -75,6 +97,28 @@ public class SemanticModel {
     bytecodeCompleter.done();
   }
 
+  /**
+   * @return paths of the class files read from the classpath to build this model, including the ones which were not found,
+   * i.e. the bytecode this model depends on
+   */
+  public Set<String> requestedClassFiles() {
+    return bytecodeCompleter.requestedClassFiles();
+  }
+
+  /**
+   * @return number of method resolutions done while building this model which were answered by the cache of previous resolutions
+   */
+  public int methodResolutionCacheHits() {
+    return methodResolutionCacheHits;
+  }
+
+  /**
+   * @return number of method resolutions done while building this model which had to be computed
+   */
+  public int methodResolutionCacheMisses() {
+    return methodResolutionCacheMisses;
+  }
+
   /**
    * Handles missing types in Syntax Tree to prevent NPE in subsequent steps of analysis.
    */
@@ -98,12 +142,12 @@ public class SemanticModel {
   SemanticModel() {
   }
 
-  private void createParentLink(JavaTree tree) {
+  private static void createParentLink(JavaTree tree) {
     if (!tree.isLeaf()) {
       for (Iterator<Tree> iter = tree.childrenIterator(); iter.hasNext(); ) {
         Tree next = iter.next();
         if (next != null) {
-          parentLink.put(next, tree);
+          ((JavaTree) next).setParent(tree);
           createParentLink((JavaTree) next);
         }
       }
@@ -120,10 +164,11 @@ public class SemanticModel {
 
   public void associateEnv(Tree tree, Resolve.Env env) {
     envs.put(tree, env);
+    envsTree.put(env, tree);
   }
 
   public Tree getTree(Resolve.Env env) {
-    return envs.inverse().get(env);
+    return envsTree.get(env);
   }
 
   public Resolve.Env getEnv(Tree tree) {
@@ -131,7 +176,7 @@ public class SemanticModel {
     Resolve.Env result = null;
     while (result == null && javaTree != null) {
       result = envs.get(javaTree);
-      javaTree = (JavaTree) parentLink.get(javaTree);
+      javaTree = javaTree.parent();
     }
     return result;
   }
@@ -143,6 +188,7 @@ public class SemanticModel {
   public void associateSymbol(Tree tree, Symbol symbol) {
     Preconditions.checkNotNull(symbol);
     symbolsTree.put(tree, symbol);
+    treesSymbol.put(symbol, tree);
   }
 
   @Nullable
@@ -152,12 +198,12 @@ public class SemanticModel {
 
   @Nullable
   public Tree getTree(Symbol symbol) {
-    return symbolsTree.inverse().get(symbol);
+    return treesSymbol.get(symbol);
   }
 
 
   public void associateReference(IdentifierTree tree, Symbol symbol) {
-    usagesTree.put(symbol, tree);
+    usedSymbols.add(symbol);
   }
 
   @VisibleForTesting
@@ -167,7 +213,7 @@ public class SemanticModel {
 
   @VisibleForTesting
   Collection<Symbol> getSymbolUsed() {
-    return usagesTree.keySet();
+    return usedSymbols;
   }
 
 }
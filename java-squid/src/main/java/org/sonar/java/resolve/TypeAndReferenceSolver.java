@@ -457,6 +457,7 @@ public class TypeAndReferenceSolver extends BaseTreeVisitor {
         anonymousClassType.supertype = type;
         anonymousClassType.interfaces = ImmutableList.of();
       }
+      anonymousClassType.getSymbol().resetSuperTypes();
       scan(classBody);
       registerType(tree, anonymousClassType);
     } else {
@@ -547,8 +548,10 @@ public class TypeAndReferenceSolver extends BaseTreeVisitor {
     scan(newClassTree.arguments());
     ClassTree classBody = newClassTree.classBody();
     if(classBody != null) {
+      JavaType.ClassJavaType classBodyType = (JavaType.ClassJavaType) classBody.symbol().type();
+      classBodyType.supertype = getType(newClassTree.identifier());
+      classBodyType.getSymbol().resetSuperTypes();
       scan(classBody);
-      ((JavaType.ClassJavaType) classBody.symbol().type()).supertype = getType(newClassTree.identifier());
     }
     resolveConstructorSymbol(tree.simpleName(), semanticModel.getEnv(tree), getParameterTypes(newClassTree.arguments()));
   }
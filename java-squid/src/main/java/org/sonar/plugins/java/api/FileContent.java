@@ -0,0 +1,138 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.java.api;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Throwables;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * Decoded content of a source file along with the offsets of its lines, read once per file and shared
+ * by the parser and all the visitors of the file.
+ * Lines are separated by <tt>\n</tt>, <tt>\r\n</tt> or <tt>\r</tt> and numbered from 1.
+ */
+@Beta
+public final class FileContent {
+
+  private final File file;
+  private final char[] chars;
+  private final int[] lineStarts;
+
+  private FileContent(File file, char[] chars) {
+    this.file = file;
+    this.chars = chars;
+
+    int lines = 1;
+    for (int i = 0; i < chars.length; i++) {
+      if (isNewLine(chars, i)) {
+        lines++;
+      }
+    }
+    this.lineStarts = new int[lines];
+    int line = 1;
+    for (int i = 0; i < chars.length; i++) {
+      if (isNewLine(chars, i)) {
+        lineStarts[line] = i + 1;
+        line++;
+      }
+    }
+  }
+
+  public static FileContent read(File file, Charset charset) {
+    try {
+      return new FileContent(file, Files.toString(file, charset).toCharArray());
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  public File file() {
+    return file;
+  }
+
+  /**
+   * Content of the file, which must not be modified.
+   */
+  public char[] chars() {
+    return chars;
+  }
+
+  /**
+   * @return number of lines, the last one being empty when the file is empty or ends with a line terminator
+   */
+  public int lines() {
+    return lineStarts.length;
+  }
+
+  /**
+   * @return offset of the first character of the given line
+   */
+  public int lineStart(int line) {
+    return lineStarts[line - 1];
+  }
+
+  /**
+   * @return offset following the last character of the given line, line terminator excluded
+   */
+  public int lineEnd(int line) {
+    if (line == lineStarts.length) {
+      return chars.length;
+    }
+    int end = lineStarts[line] - 1;
+    if (end > 0 && chars[end] == '\n' && chars[end - 1] == '\r') {
+      end--;
+    }
+    return end;
+  }
+
+  public int lineLength(int line) {
+    return lineEnd(line) - lineStart(line);
+  }
+
+  /**
+   * @return the given line, line terminator excluded
+   */
+  public String line(int line) {
+    int start = lineStart(line);
+    return new String(chars, start, lineEnd(line) - start);
+  }
+
+  /**
+   * Same as {@link #lines()}, but without the last line when it is empty: this is the number of lines
+   * returned by {@link Files#readLines(File, Charset)}.
+   */
+  public int linesIgnoringTrailingEmptyLine() {
+    int lines = lines();
+    return lineLength(lines) == 0 ? (lines - 1) : lines;
+  }
+
+  /**
+   * New lines are: \n, \r\n (in which case true is returned for the \n) and \r alone.
+   */
+  private static boolean isNewLine(char[] input, int i) {
+    return input[i] == '\n' ||
+      (input[i] == '\r' && (i + 1 == input.length || input[i + 1] != '\n'));
+  }
+
+}
@@ -54,6 +54,11 @@ public interface JavaFileScannerContext {
 
   File getFile();
 
+  /**
+   * Content of the file, read once and shared by the parser and all the scanners of the file.
+   */
+  FileContent getFileContent();
+
   int getComplexity(Tree tree);
 
   int getMethodComplexity(ClassTree enclosingClass, MethodTree methodTree);
@@ -0,0 +1,31 @@
+class MethodResolutionCache {
+  void f(int i) {}
+  void f(Object o) {}
+  void g(Long l) {}
+  void h(String... s) {}
+  void g(Integer i) {}
+
+  void test() {
+    f(1);
+    f(1);
+    f("");
+    f("");
+    g(1L);
+    g(1L);
+    h();
+    h();
+    h("");
+    h("");
+    h("", "");
+    h("", "");
+  }
+
+  class Inner {
+    void f(String s) {}
+
+    void test() {
+      f("");
+      MethodResolutionCache.this.f("");
+    }
+  }
+}
@@ -19,10 +19,24 @@
  */
 package org.sonar.java;
 
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import org.apache.commons.io.FileUtils;
 import org.junit.Test;
+import org.sonar.java.ast.AstScanner;
+import org.sonar.java.model.VisitorsBridge;
+import org.sonar.plugins.java.api.JavaFileScanner;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
+import org.sonar.plugins.java.api.tree.IdentifierTree;
+import org.sonar.squidbridge.api.CheckMessage;
+import org.sonar.squidbridge.api.SourceCode;
 import org.sonar.squidbridge.api.SourceFile;
+import org.sonar.squidbridge.indexer.QueryByType;
 
 import java.io.File;
+import java.util.Collections;
+import java.util.List;
 
 import static org.fest.assertions.Assertions.assertThat;
 
@@ -41,4 +55,47 @@ public class JavaAstScannerTest {
     assertThat(file.getNoSonarTagLines()).contains(8);
   }
 
+  @Test
+  public void parallel_scan_should_give_same_results_as_sequential_scan() {
+    List<File> files = Lists.newArrayList(FileUtils.listFiles(new File("src/test/files/metrics"), new String[] {"java"}, true));
+    List<String> expected = scan(files, 1);
+    assertThat(expected).isNotEmpty();
+    assertThat(scan(files, 4)).isEqualTo(expected);
+  }
+
+  private static List<String> scan(List<File> files, int threads) {
+    JavaConfiguration conf = new JavaConfiguration(Charsets.UTF_8);
+    conf.setScanThreads(threads);
+    AstScanner scanner = JavaAstScanner.create(conf, new VisitorsBridge(new ResolvedIdentifiersCounter()));
+    scanner.scan(files);
+    List<String> result = Lists.newArrayList();
+    for (SourceCode sourceCode : scanner.getIndex().search(new QueryByType(SourceFile.class))) {
+      for (CheckMessage message : sourceCode.getCheckMessages()) {
+        result.add(sourceCode.getKey() + ":" + message.getDefaultMessage());
+      }
+    }
+    Collections.sort(result);
+    return result;
+  }
+
+  private static class ResolvedIdentifiersCounter extends BaseTreeVisitor implements JavaFileScanner {
+
+    private int count;
+
+    @Override
+    public void scanFile(JavaFileScannerContext context) {
+      count = 0;
+      scan(context.getTree());
+      context.addIssueOnFile(this, count + " resolved identifiers");
+    }
+
+    @Override
+    public void visitIdentifier(IdentifierTree tree) {
+      if (!tree.symbol().isUnknown()) {
+        count++;
+      }
+      super.visitIdentifier(tree);
+    }
+  }
+
 }
@@ -0,0 +1,39 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java;
+
+import org.junit.Test;
+import org.sonar.api.config.Settings;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ReportThreadsTest {
+
+  @Test
+  public void threads() {
+    Settings settings = new Settings();
+    assertThat(ReportThreads.get(settings)).isEqualTo(Runtime.getRuntime().availableProcessors());
+    settings.setProperty(ReportThreads.REPORT_THREADS_PROPERTY, 3);
+    assertThat(ReportThreads.get(settings)).isEqualTo(3);
+    settings.setProperty(ReportThreads.REPORT_THREADS_PROPERTY, 0);
+    assertThat(ReportThreads.get(settings)).isEqualTo(1);
+  }
+
+}
@@ -20,25 +20,42 @@
 package org.sonar.java.ast;
 
 import com.google.common.base.Charsets;
+import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.impl.Parser;
 import org.hamcrest.BaseMatcher;
 import org.hamcrest.Description;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.Mockito;
+import org.sonar.java.JavaAstScanner;
+import org.sonar.java.JavaConfiguration;
+import org.sonar.java.ast.parser.JavaParser;
+import org.sonar.java.ast.visitors.FileVisitor;
+import org.sonar.java.model.VisitorsBridge;
+import org.sonar.plugins.java.api.FileContent;
+import org.sonar.plugins.java.api.JavaFileScanner;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.squidbridge.AstScannerExceptionHandler;
 import org.sonar.squidbridge.SquidAstVisitor;
 import org.sonar.squidbridge.api.AnalysisException;
+import org.sonar.squidbridge.api.CheckMessage;
+import org.sonar.squidbridge.api.SourceFile;
 import org.sonar.sslr.grammar.GrammarRuleKey;
 import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
 import org.sonar.sslr.parser.LexerlessGrammar;
 import org.sonar.sslr.parser.ParserAdapter;
 
+import javax.annotation.Nullable;
 import java.io.File;
+import java.util.List;
 
+import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 
@@ -118,6 +135,134 @@ public class AstScannerTest {
     scanner.scan(ImmutableList.of(new File("src/test/resources/AstScannerNoParseError.txt")));
   }
 
+  @Test
+  public void parallel_scan_should_walk_files_in_order_with_prepared_data() {
+    AstScanner scanner = new AstScanner(fakeParser());
+    scanner.setParallelism(3, new Supplier<Parser<LexerlessGrammar>>() {
+      @Override
+      public Parser<LexerlessGrammar> get() {
+        return fakeParser();
+      }
+    });
+    PreparingVisitor visitor = new PreparingVisitor();
+    scanner.withSquidAstVisitor(visitor);
+
+    List<File> files = Lists.newArrayList();
+    for (int i = 0; i < 10; i++) {
+      files.add(new File("src/test/resources/AstScannerNoParseError.txt"));
+      files.add(new File("src/test/resources/AstScannerParseError.txt"));
+    }
+    scanner.scan(files);
+
+    assertThat(visitor.visited).hasSize(20);
+    for (int i = 0; i < 20; i += 2) {
+      assertThat(visitor.visited.get(i)).isEqualTo("prepared AstScannerNoParseError.txt");
+      assertThat(visitor.visited.get(i + 1)).isEqualTo("parse error");
+    }
+  }
+
+  @Test
+  public void parallel_scan_should_propagate_visitor_exception() {
+    AstScanner scanner = new AstScanner(fakeParser());
+    scanner.setParallelism(2, new Supplier<Parser<LexerlessGrammar>>() {
+      @Override
+      public Parser<LexerlessGrammar> get() {
+        return fakeParser();
+      }
+    });
+    scanner.withSquidAstVisitor(new SquidAstVisitor<LexerlessGrammar>() {
+
+      @Override
+      public void visitFile(AstNode node) {
+        throw new NullPointerException("foo");
+      }
+
+    });
+
+    thrown.expect(AnalysisException.class);
+    thrown.expectMessage("SonarQube is unable to analyze file");
+    scanner.scan(ImmutableList.of(new File("src/test/resources/AstScannerNoParseError.txt")));
+  }
+
+  @Test
+  public void source_file_listener_should_be_notified_once_all_visitors_are_done_with_file() {
+    AstScanner scanner = JavaAstScanner.create(new JavaConfiguration(Charsets.UTF_8));
+    scanner.withSquidAstVisitor(new SquidAstVisitor<LexerlessGrammar>() {
+
+      @Override
+      public void leaveFile(@Nullable AstNode astNode) {
+        getContext().peekSourceCode().log(new CheckMessage(this, "message"));
+      }
+
+    });
+    final List<String> scanned = Lists.newArrayList();
+    scanner.setSourceFileListener(new SourceFileListener() {
+      @Override
+      public void sourceFileScanned(File file, SourceFile sourceFile) {
+        scanned.add(file.getName() + " " + sourceFile.getCheckMessages().size());
+      }
+    });
+
+    scanner.scan(ImmutableList.of(new File("src/test/files/metrics/Comments.java"), new File("src/test/files/metrics/Classes.java")));
+
+    assertThat(scanned).containsExactly("Comments.java 1", "Classes.java 1");
+  }
+
+  @Test
+  public void file_content_should_be_read_for_scanners_when_parser_does_not_share_it() throws Exception {
+    final Parser<LexerlessGrammar> javaParser = JavaParser.createParser(Charsets.UTF_8);
+    AstScanner scanner = new AstScanner(new Parser<LexerlessGrammar>(null) {
+      @Override
+      public AstNode parse(File file) {
+        return javaParser.parse(file);
+      }
+    });
+    scanner.withSquidAstVisitor(new FileVisitor());
+    final List<FileContent> contents = Lists.newArrayList();
+    VisitorsBridge visitorsBridge = new VisitorsBridge(new JavaFileScanner() {
+      @Override
+      public void scanFile(JavaFileScannerContext context) {
+        contents.add(context.getFileContent());
+      }
+    });
+    visitorsBridge.setCharset(Charsets.UTF_8);
+    scanner.withSquidAstVisitor(visitorsBridge);
+
+    File file = new File("src/test/files/metrics/Comments.java");
+    scanner.scan(ImmutableList.of(file));
+
+    assertThat(contents).hasSize(1);
+    assertThat(contents.get(0).file()).isEqualTo(file);
+    assertThat(new String(contents.get(0).chars())).isEqualTo(Files.toString(file, Charsets.UTF_8));
+  }
+
+  private static ParserAdapter<LexerlessGrammar> fakeParser() {
+    return new ParserAdapter<LexerlessGrammar>(Charsets.UTF_8, FakeGrammar.builder().build());
+  }
+
+  private static class PreparingVisitor extends SquidAstVisitor<LexerlessGrammar> implements ParallelizableVisitor {
+
+    private final List<String> visited = Lists.newArrayList();
+    private Object preparedFile;
+
+    @Override
+    public Object prepareFile(File file, AstNode astNode) {
+      return "prepared " + file.getName();
+    }
+
+    @Override
+    public void setPreparedFile(@Nullable Object preparedFile) {
+      this.preparedFile = preparedFile;
+    }
+
+    @Override
+    public void visitFile(@Nullable AstNode astNode) {
+      visited.add(astNode == null ? "parse error" : (String) preparedFile);
+      preparedFile = null;
+    }
+
+  }
+
   private static class FakeAuditListener extends SquidAstVisitor<LexerlessGrammar> implements AstScannerExceptionHandler {
 
     @Override
@@ -0,0 +1,53 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast.parser;
+
+import com.google.common.base.Charsets;
+import com.sonar.sslr.api.AstNode;
+import org.junit.Test;
+import org.sonar.java.parser.sslr.ActionParser2;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class JavaParserTest {
+
+  @Test
+  public void parsers_should_share_grammar() {
+    ActionParser2 parser = JavaParser.createParser(Charsets.UTF_8);
+    ActionParser2 otherParser = JavaParser.createParser(Charsets.ISO_8859_1);
+
+    assertThat(otherParser).isNotSameAs(parser);
+    assertThat(otherParser.getGrammar()).isSameAs(parser.getGrammar());
+    assertThat(otherParser.rootRule()).isSameAs(parser.rootRule());
+  }
+
+  @Test
+  public void parsers_should_build_distinct_trees() {
+    AstNode tree = JavaParser.createParser(Charsets.UTF_8).parse("class A {}");
+    AstNode otherTree = JavaParser.createParser(Charsets.UTF_8).parse("class B {}");
+
+    assertThat(tree).isInstanceOf(CompilationUnitTree.class);
+    assertThat(otherTree).isNotSameAs(tree);
+    assertThat(((CompilationUnitTree) tree).types()).hasSize(1);
+    assertThat(otherTree.getTokenValue()).isEqualTo("class");
+  }
+
+}
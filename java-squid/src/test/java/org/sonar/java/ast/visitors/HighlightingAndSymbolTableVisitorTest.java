@@ -20,6 +20,8 @@
 package org.sonar.java.ast.visitors;
 
 import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.io.Files;
 import org.junit.Before;
 import org.junit.Rule;
@@ -27,13 +29,16 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 import org.sonar.api.source.Highlightable;
+import org.sonar.api.source.Symbol;
+import org.sonar.api.source.Symbolizable;
 import org.sonar.java.JavaAstScanner;
 import org.sonar.java.SonarComponents;
+import org.sonar.java.model.VisitorsBridge;
 
 import java.io.File;
 import java.util.List;
 
-public class SyntaxHighlighterVisitorTest {
+public class HighlightingAndSymbolTableVisitorTest {
 
   @Rule
   public TemporaryFolder temp = new TemporaryFolder();
@@ -41,8 +46,10 @@ public class SyntaxHighlighterVisitorTest {
   private final SonarComponents sonarComponents = Mockito.mock(SonarComponents.class);
   private final Highlightable highlightable = Mockito.mock(Highlightable.class);
   private final Highlightable.HighlightingBuilder highlighting = Mockito.mock(Highlightable.HighlightingBuilder.class);
+  private final Symbolizable symbolizable = Mockito.mock(Symbolizable.class);
+  private final Symbolizable.SymbolTableBuilder symboltableBuilder = Mockito.mock(Symbolizable.SymbolTableBuilder.class);
 
-  private final SyntaxHighlighterVisitor syntaxHighlighterVisitor = new SyntaxHighlighterVisitor(sonarComponents, Charsets.UTF_8);
+  private final VisitorsBridge visitorsBridge = new VisitorsBridge(ImmutableList.of(), Lists.<File>newArrayList(), sonarComponents);
 
   private List<String> lines;
   private String eol;
@@ -51,15 +58,36 @@ public class SyntaxHighlighterVisitorTest {
   public void setUp() {
     Mockito.when(sonarComponents.highlightableFor(Mockito.any(File.class))).thenReturn(highlightable);
     Mockito.when(highlightable.newHighlighting()).thenReturn(highlighting);
+    Mockito.when(sonarComponents.symbolizableFor(Mockito.any(File.class))).thenReturn(symbolizable);
+    Mockito.when(symbolizable.newSymbolTableBuilder()).thenReturn(symboltableBuilder);
   }
 
   @Test
   public void parse_error() throws Exception {
     File file = temp.newFile();
     Files.write("ParseError", file, Charsets.UTF_8);
-    JavaAstScanner.scanSingleFile(file, syntaxHighlighterVisitor);
+    JavaAstScanner.scanSingleFile(file, visitorsBridge);
 
-    Mockito.verifyZeroInteractions(highlightable);
+    Mockito.verifyZeroInteractions(highlightable, symbolizable);
+  }
+
+  @Test
+  public void keywords_are_highlighted_without_following_spacing() throws Exception {
+    this.eol = "\n";
+    File file = temp.newFile();
+    Files.write("class A {\n  int   a;\n  public  /* comment */ static int b;\n}\n", file, Charsets.UTF_8);
+
+    JavaAstScanner.scanSingleFile(file, visitorsBridge);
+
+    lines = Files.readLines(file, Charsets.UTF_8);
+    Mockito.verify(highlighting).highlight(offset(1, 1), offset(1, 6), "k");
+    Mockito.verify(highlighting).highlight(offset(2, 3), offset(2, 6), "k");
+    Mockito.verify(highlighting).highlight(offset(3, 3), offset(3, 9), "k");
+    Mockito.verify(highlighting).highlight(offset(3, 11), offset(3, 24), "cppd");
+    Mockito.verify(highlighting).highlight(offset(3, 25), offset(3, 31), "k");
+    Mockito.verify(highlighting).highlight(offset(3, 32), offset(3, 35), "k");
+    Mockito.verify(highlighting).done();
+    Mockito.verifyNoMoreInteractions(highlighting);
   }
 
   // TODO Factorize duplicated methods, but still allow double click on failures to jump to the right line
@@ -70,7 +98,7 @@ public class SyntaxHighlighterVisitorTest {
     File file = temp.newFile();
     Files.write(Files.toString(new File("src/test/files/highlighter/Example.java"), Charsets.UTF_8).replaceAll("\\r\\n", "\n").replaceAll("\\n", eol), file, Charsets.UTF_8);
 
-    JavaAstScanner.scanSingleFile(file, syntaxHighlighterVisitor);
+    JavaAstScanner.scanSingleFile(file, visitorsBridge);
 
     lines = Files.readLines(file, Charsets.UTF_8);
     Mockito.verify(highlighting).highlight(offset(1, 1), offset(3, 4), "cppd");
@@ -78,11 +106,11 @@ public class SyntaxHighlighterVisitorTest {
     Mockito.verify(highlighting).highlight(offset(8, 1), offset(8, 18), "a");
     Mockito.verify(highlighting).highlight(offset(8, 19), offset(8, 27), "s");
     Mockito.verify(highlighting).highlight(offset(9, 1), offset(9, 6), "k");
-    Mockito.verify(highlighting).highlight(offset(11, 3), offset(11, 7), "k");
+    Mockito.verify(highlighting).highlight(offset(11, 3), offset(11, 6), "k");
     Mockito.verify(highlighting).highlight(offset(12, 5), offset(12, 11), "k");
     Mockito.verify(highlighting).highlight(offset(12, 12), offset(12, 14), "c");
-    Mockito.verify(highlighting).highlight(offset(17, 2), offset(17, 12), "k");
-    Mockito.verify(highlighting).highlight(offset(18, 21), offset(18, 29), "k");
+    Mockito.verify(highlighting).highlight(offset(17, 2), offset(17, 11), "k");
+    Mockito.verify(highlighting).highlight(offset(18, 21), offset(18, 28), "k");
     Mockito.verify(highlighting).highlight(offset(18, 29), offset(18, 30), "c");
     Mockito.verify(highlighting).done();
     Mockito.verifyNoMoreInteractions(highlighting);
@@ -94,7 +122,7 @@ public class SyntaxHighlighterVisitorTest {
     File file = temp.newFile();
     Files.write(Files.toString(new File("src/test/files/highlighter/Example.java"), Charsets.UTF_8).replaceAll("\\r\\n", "\n").replaceAll("\\n", eol), file, Charsets.UTF_8);
 
-    JavaAstScanner.scanSingleFile(file, syntaxHighlighterVisitor);
+    JavaAstScanner.scanSingleFile(file, visitorsBridge);
 
     lines = Files.readLines(file, Charsets.UTF_8);
     Mockito.verify(highlighting).highlight(offset(1, 1), offset(3, 4), "cppd");
@@ -102,11 +130,11 @@ public class SyntaxHighlighterVisitorTest {
     Mockito.verify(highlighting).highlight(offset(8, 1), offset(8, 18), "a");
     Mockito.verify(highlighting).highlight(offset(8, 19), offset(8, 27), "s");
     Mockito.verify(highlighting).highlight(offset(9, 1), offset(9, 6), "k");
-    Mockito.verify(highlighting).highlight(offset(11, 3), offset(11, 7), "k");
+    Mockito.verify(highlighting).highlight(offset(11, 3), offset(11, 6), "k");
     Mockito.verify(highlighting).highlight(offset(12, 5), offset(12, 11), "k");
     Mockito.verify(highlighting).highlight(offset(12, 12), offset(12, 14), "c");
-    Mockito.verify(highlighting).highlight(offset(17, 2), offset(17, 12), "k");
-    Mockito.verify(highlighting).highlight(offset(18, 21), offset(18, 29), "k");
+    Mockito.verify(highlighting).highlight(offset(17, 2), offset(17, 11), "k");
+    Mockito.verify(highlighting).highlight(offset(18, 21), offset(18, 28), "k");
     Mockito.verify(highlighting).highlight(offset(18, 29), offset(18, 30), "c");
     Mockito.verify(highlighting).done();
     Mockito.verifyNoMoreInteractions(highlighting);
@@ -118,7 +146,7 @@ public class SyntaxHighlighterVisitorTest {
     File file = temp.newFile();
     Files.write(Files.toString(new File("src/test/files/highlighter/Example.java"), Charsets.UTF_8).replaceAll("\\r\\n", "\n").replaceAll("\\n", eol), file, Charsets.UTF_8);
 
-    JavaAstScanner.scanSingleFile(file, syntaxHighlighterVisitor);
+    JavaAstScanner.scanSingleFile(file, visitorsBridge);
 
     lines = Files.readLines(file, Charsets.UTF_8);
     Mockito.verify(highlighting).highlight(offset(1, 1), offset(3, 4), "cppd");
@@ -126,16 +154,53 @@ public class SyntaxHighlighterVisitorTest {
     Mockito.verify(highlighting).highlight(offset(8, 1), offset(8, 18), "a");
     Mockito.verify(highlighting).highlight(offset(8, 19), offset(8, 27), "s");
     Mockito.verify(highlighting).highlight(offset(9, 1), offset(9, 6), "k");
-    Mockito.verify(highlighting).highlight(offset(11, 3), offset(11, 7), "k");
+    Mockito.verify(highlighting).highlight(offset(11, 3), offset(11, 6), "k");
     Mockito.verify(highlighting).highlight(offset(12, 5), offset(12, 11), "k");
     Mockito.verify(highlighting).highlight(offset(12, 12), offset(12, 14), "c");
-    Mockito.verify(highlighting).highlight(offset(17, 2), offset(17, 12), "k");
-    Mockito.verify(highlighting).highlight(offset(18, 21), offset(18, 29), "k");
+    Mockito.verify(highlighting).highlight(offset(17, 2), offset(17, 11), "k");
+    Mockito.verify(highlighting).highlight(offset(18, 21), offset(18, 28), "k");
     Mockito.verify(highlighting).highlight(offset(18, 29), offset(18, 30), "c");
     Mockito.verify(highlighting).done();
     Mockito.verifyNoMoreInteractions(highlighting);
   }
 
+  @Test
+  public void sonar_symbol_table() throws Exception {
+    File file = new File("src/test/files/highlighter/SonarSymTable.java");
+    this.eol = "\n";
+    lines = Files.readLines(file, Charsets.UTF_8);
+    JavaAstScanner.scanSingleFile(file, visitorsBridge);
+
+    // import List
+    Mockito.verify(symboltableBuilder).newSymbol(offset(1, 18), offset(1, 22));
+    Mockito.verify(symboltableBuilder).newReference(Mockito.any(Symbol.class), Mockito.eq(offset(5, 3)));
+    Mockito.verify(symboltableBuilder).newReference(Mockito.any(Symbol.class), Mockito.eq(offset(6, 11)));
+    // Example class declaration
+    Mockito.verify(symboltableBuilder).newSymbol(offset(4, 7), offset(4, 14));
+    Mockito.verify(symboltableBuilder).newSymbol(offset(4, 15), offset(4, 16));
+    // list field
+    Mockito.verify(symboltableBuilder).newSymbol(offset(5, 16), offset(5, 20));
+    Mockito.verify(symboltableBuilder).newReference(Mockito.any(Symbol.class), Mockito.eq(offset(7, 10)));
+    // Example constructor
+    Mockito.verify(symboltableBuilder).newSymbol(offset(6, 3), offset(6, 10));
+    // list local var
+    Mockito.verify(symboltableBuilder).newSymbol(offset(6, 24), offset(6, 28));
+    Mockito.verify(symboltableBuilder).newReference(Mockito.any(Symbol.class), Mockito.eq(offset(7, 17)));
+    // method
+    Mockito.verify(symboltableBuilder).newSymbol(offset(9, 7), offset(9, 13));
+    //label
+    Mockito.verify(symboltableBuilder).newSymbol(offset(10, 5), offset(10, 10));
+    //Enum
+    Mockito.verify(symboltableBuilder).newSymbol(offset(13, 8), offset(13, 26));
+    Mockito.verify(symboltableBuilder).newSymbol(offset(14, 5), offset(14, 12));
+    //Do not reference constructor of enum as it can leads to failure in analysis as long as SONAR-5894 is not fixed
+    //verify(symboltableBuilder).newReference(Mockito.any(Symbol.class), Mockito.eq(offset(14, 5)));
+    Mockito.verify(symboltableBuilder).newSymbol(offset(15, 5), offset(15, 23));
+    Mockito.verify(symboltableBuilder).build();
+    Mockito.verify(symbolizable).setSymbolTable(Mockito.any(Symbolizable.SymbolTable.class));
+    Mockito.verifyNoMoreInteractions(symboltableBuilder);
+  }
+
   private int offset(int line, int column) {
     int result = 0;
     for (int i = 0; i < line - 1; i++) {
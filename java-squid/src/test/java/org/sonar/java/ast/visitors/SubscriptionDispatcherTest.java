@@ -0,0 +1,126 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.ast.visitors;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.sonar.java.ast.parser.JavaParser;
+import org.sonar.java.model.JavaTree;
+import org.sonar.java.model.VisitorsBridge;
+import org.sonar.plugins.java.api.FileContent;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.SyntaxToken;
+import org.sonar.plugins.java.api.tree.SyntaxTrivia;
+import org.sonar.plugins.java.api.tree.Tree;
+
+import java.io.File;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SubscriptionDispatcherTest {
+
+  @Test
+  public void visitors_should_receive_same_calls_as_when_scanning_alone() {
+    File file = new File("src/test/files/metrics/Comments.java");
+    CompilationUnitTree tree = (CompilationUnitTree) JavaParser.createParser(Charsets.UTF_8).parse(file);
+    JavaFileScannerContext context = new VisitorsBridge.DefaultJavaFileScannerContext(tree, null, file, FileContent.read(file, Charsets.UTF_8), null, false);
+
+    RecordingVisitor methodsAndTokens = new RecordingVisitor(Tree.Kind.METHOD, Tree.Kind.IDENTIFIER, Tree.Kind.TOKEN);
+    RecordingVisitor classesAndTrivias = new RecordingVisitor(Tree.Kind.CLASS, Tree.Kind.TRIVIA);
+    RecordingVisitor nothing = new RecordingVisitor();
+    methodsAndTokens.scanFile(context);
+    classesAndTrivias.scanFile(context);
+    nothing.scanFile(context);
+
+    RecordingVisitor dispatchedMethodsAndTokens = new RecordingVisitor(Tree.Kind.METHOD, Tree.Kind.IDENTIFIER, Tree.Kind.TOKEN);
+    RecordingVisitor dispatchedClassesAndTrivias = new RecordingVisitor(Tree.Kind.CLASS, Tree.Kind.TRIVIA);
+    RecordingVisitor dispatchedNothing = new RecordingVisitor();
+    new SubscriptionDispatcher(ImmutableList.<SubscriptionVisitor>of(dispatchedMethodsAndTokens, dispatchedClassesAndTrivias, dispatchedNothing))
+      .scanFile(context);
+
+    assertThat(methodsAndTokens.events).isNotEmpty();
+    assertThat(classesAndTrivias.events).isNotEmpty();
+    assertThat(dispatchedMethodsAndTokens.events).isEqualTo(methodsAndTokens.events);
+    assertThat(dispatchedClassesAndTrivias.events).isEqualTo(classesAndTrivias.events);
+    assertThat(dispatchedNothing.events).isEmpty();
+    assertThat(dispatchedMethodsAndTokens.context).isSameAs(context);
+  }
+
+  @Test
+  public void only_subscription_visitors_with_default_scan_are_dispatchable() {
+    assertThat(SubscriptionDispatcher.isDispatchable(new RecordingVisitor())).isTrue();
+    assertThat(SubscriptionDispatcher.isDispatchable(new RecordingVisitor() {
+    })).isTrue();
+    assertThat(SubscriptionDispatcher.isDispatchable(new RecordingVisitor() {
+      @Override
+      public void scanFile(JavaFileScannerContext context) {
+        super.scanFile(context);
+      }
+    })).isFalse();
+    assertThat(SubscriptionDispatcher.isDispatchable(new RecordingVisitor() {
+      @Override
+      protected void scanTree(Tree tree) {
+        super.scanTree(tree);
+      }
+    })).isFalse();
+    assertThat(SubscriptionDispatcher.isDispatchable(new LinesOfCodeVisitor())).isTrue();
+    assertThat(SubscriptionDispatcher.isDispatchable(new ComplexityVisitor(true))).isTrue();
+  }
+
+  private static class RecordingVisitor extends SubscriptionVisitor {
+
+    private final List<Tree.Kind> kinds;
+    private final List<String> events = Lists.newArrayList();
+
+    RecordingVisitor(Tree.Kind... kinds) {
+      this.kinds = ImmutableList.copyOf(kinds);
+    }
+
+    @Override
+    public List<Tree.Kind> nodesToVisit() {
+      return kinds;
+    }
+
+    @Override
+    public void visitNode(Tree tree) {
+      events.add("visit " + ((JavaTree) tree).getKind() + " " + System.identityHashCode(tree));
+    }
+
+    @Override
+    public void leaveNode(Tree tree) {
+      events.add("leave " + ((JavaTree) tree).getKind() + " " + System.identityHashCode(tree));
+    }
+
+    @Override
+    public void visitToken(SyntaxToken syntaxToken) {
+      events.add("token " + syntaxToken.text() + " " + syntaxToken.line() + ":" + syntaxToken.column());
+    }
+
+    @Override
+    public void visitTrivia(SyntaxTrivia syntaxTrivia) {
+      events.add("trivia " + syntaxTrivia.comment() + " " + syntaxTrivia.startLine());
+    }
+  }
+
+}
@@ -20,15 +20,25 @@
 package org.sonar.java.bytecode;
 
 import com.google.common.collect.Lists;
+import org.apache.commons.io.FileUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.sonar.java.bytecode.asm.AsmClass;
 import org.sonar.java.bytecode.asm.AsmClassProvider;
+import org.sonar.java.bytecode.asm.AsmClassProviderImpl;
+import org.sonar.java.bytecode.asm.AsmEdge;
+import org.sonar.java.bytecode.asm.AsmMethod;
+import org.sonar.java.bytecode.asm.AsmResource;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
 import org.sonar.java.bytecode.visitor.BytecodeVisitor;
 import org.sonar.plugins.java.api.JavaResourceLocator;
 import org.sonar.squidbridge.indexer.SquidIndex;
 
+import java.io.File;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
@@ -55,6 +65,60 @@ public class BytecodeScannerTest {
 
   }
 
+  @Test
+  public void parallel_scan_gives_same_result_as_sequential_scan() throws Exception {
+    File bin = new File("src/test/files/bytecode/bin");
+    List<String> classes = Lists.newArrayList();
+    for (File file : FileUtils.listFiles(bin, new String[] {"class"}, true)) {
+      String path = file.getPath().substring(bin.getPath().length() + 1).replace(File.separatorChar, '/');
+      classes.add(path.substring(0, path.length() - ".class".length()));
+    }
+    classes.add("missing/Class");
+
+    assertThat(scanWithThreads(bin, classes, 4)).isEqualTo(scanWithThreads(bin, classes, 1));
+  }
+
+  private static List<String> scanWithThreads(File bin, List<String> classes, int threads) {
+    BytecodeScanner bytecodeScanner = new BytecodeScanner(null, null);
+    bytecodeScanner.setParallelism(threads);
+    EdgesCollector collector = new EdgesCollector();
+    bytecodeScanner.accept(collector);
+    SquidClassLoader classLoader = (SquidClassLoader) ClassLoaderBuilder.create(bin);
+    bytecodeScanner.scanClasses(classes, new AsmClassProviderImpl(classLoader));
+    classLoader.close();
+    assertThat(collector.edges).isNotEmpty();
+    return collector.edges;
+  }
+
+  @Test
+  public void number_of_threads_must_be_positive() {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Number of threads must be positive");
+    new BytecodeScanner(null, null).setParallelism(0);
+  }
+
+  private static class EdgesCollector extends BytecodeVisitor {
+    private final List<String> edges = Lists.newArrayList();
+
+    @Override
+    public void visitMethod(AsmMethod asmMethod) {
+      String linkage = asmMethod.getImplementationLinkage() == null ? "" : name(asmMethod.getImplementationLinkage());
+      edges.add(name(asmMethod) + " " + asmMethod.isAccessor() + " " + linkage);
+    }
+
+    @Override
+    public void visitEdge(AsmEdge asmEdge) {
+      edges.add(name(asmEdge.getFrom()) + " " + asmEdge.getUsage() + " " + name(asmEdge.getTo()) + ":" + asmEdge.getSourceLineNumber());
+    }
+
+    private static String name(AsmResource resource) {
+      if (resource instanceof AsmClass) {
+        return ((AsmClass) resource).getInternalName();
+      }
+      return resource.getParent().getInternalName() + "#" + resource;
+    }
+  }
+
   private static class Visitor extends BytecodeVisitor {
     @Override
     public void visitClass(AsmClass asmClass) {
@@ -19,11 +19,13 @@
  */
 package org.sonar.java.bytecode.asm;
 
+import com.google.common.collect.Lists;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.sonar.java.bytecode.ClassLoaderBuilder;
 
 import java.io.File;
+import java.util.List;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -52,6 +54,39 @@ public class AsmMethodTest {
     assertThat(method.getThrows()).containsExactly(class1, class2);
   }
 
+  @Test
+  public void outgoing_edges_keep_order_and_line_numbers() {
+    AsmMethod method = new AsmMethod(stringClass, "length()I");
+    AsmField field = new AsmField(stringClass, "count");
+    AsmMethod calledMethod = new AsmMethod(stringClass, "isEmpty()Z");
+    method.addUsesOfClasses(new AsmClass[] {numberClass});
+    for (int i = 0; i < 10; i++) {
+      method.addEdge(field, SourceCodeEdgeUsage.CALLS_FIELD, 10 + i);
+    }
+    method.addEdge(calledMethod, SourceCodeEdgeUsage.CALLS_METHOD, 42);
+
+    assertThat(numberClass.isUsed()).isTrue();
+    assertThat(method.getCallsToField()).hasSize(10);
+    assertThat(method.getCallsToMethod()).containsExactly(calledMethod);
+    assertThat(method.getDistinctUsedAsmClasses()).containsOnly(numberClass);
+    assertThat(method.getThrows()).isEmpty();
+
+    List<AsmEdge> edges = Lists.newArrayList(method.getOutgoingEdges());
+    assertThat(edges).hasSize(12);
+    assertThat(edges.get(0).getTo()).isSameAs(numberClass);
+    assertThat(edges.get(0).getUsage()).isEqualTo(SourceCodeEdgeUsage.USES);
+    assertThat(edges.get(0).getSourceLineNumber()).isEqualTo(0);
+    assertThat(edges.get(1).getFrom()).isSameAs(method);
+    assertThat(edges.get(1).getTargetAsmClass()).isSameAs(stringClass);
+    assertThat(edges.get(10).getSourceLineNumber()).isEqualTo(19);
+    assertThat(edges.get(11).getUsage()).isEqualTo(SourceCodeEdgeUsage.CALLS_METHOD);
+    assertThat(edges.get(11).getSourceLineNumber()).isEqualTo(42);
+
+    method.clearOutogingEdges();
+    assertThat(method.getOutgoingEdges()).isEmpty();
+    assertThat(method.getCallsToField()).isEmpty();
+  }
+
   @Test
   public void testAsmMethod() {
     AsmMethod method = new AsmMethod(new AsmClass("java/lang/String"), "toString()Ljava/lang/String;");
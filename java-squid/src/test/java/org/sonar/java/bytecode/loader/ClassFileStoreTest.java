@@ -0,0 +1,105 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.loader;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ClassFileStoreTest {
+
+  private static final File JAR = new File("src/test/files/bytecode/lib/hello.jar");
+  private static final File DIR = new File("src/test/files/bytecode/bin/");
+
+  private ClassFileStore store;
+
+  @After
+  public void tearDown() {
+    store.close();
+  }
+
+  @Test
+  public void class_loaders_share_loaded_bytes() throws Exception {
+    store = new ClassFileStore(1024 * 1024);
+    SquidClassLoader classLoader = store.createClassLoader(Arrays.asList(JAR));
+    byte[] bytes = classLoader.loadBytes("org/sonar/tests/Hello.class");
+    assertThat(bytes).isNotNull();
+    assertThat(store.cachedBytes()).isEqualTo(bytes.length);
+
+    SquidClassLoader otherClassLoader = store.createClassLoader(Arrays.asList(DIR, JAR));
+    assertThat(otherClassLoader.loadBytes("org/sonar/tests/Hello.class")).isSameAs(bytes);
+    assertThat(otherClassLoader.loadBytes("tags/TagName.class")).isNotNull();
+    assertThat(otherClassLoader.loadBytes("tags/Unknown.class")).isNull();
+    assertThat(otherClassLoader.findResource("tags/TagName.class")).isNotNull();
+  }
+
+  @Test
+  public void jdk_classes_are_visible() throws Exception {
+    store = new ClassFileStore(1024 * 1024);
+    SquidClassLoader classLoader = store.createClassLoader(Arrays.asList(JAR));
+    assertThat(classLoader.loadBytes("java/lang/Object.class")).isNotNull();
+    assertThat(classLoader.loadBytes(SquidClassLoader.class.getName().replace('.', '/') + ".class")).isNull();
+  }
+
+  @Test
+  public void missing_classes_are_not_searched_in_files() throws Exception {
+    store = new ClassFileStore(1024 * 1024);
+    SquidClassLoader classLoader = store.createClassLoader(Arrays.asList(DIR, JAR));
+    assertThat(classLoader.loadBytes("tags/Unknown.class")).isNull();
+    assertThat(classLoader.findResource("tags/Unknown.class")).isNull();
+    assertThat(classLoader.loadBytes("java/util/Unknown.class")).isNull();
+    assertThat(classLoader.loadBytes("java/util/Unknown.class")).isNull();
+    assertThat(classLoader.loadBytes("java/util/List.class")).isNotNull();
+    assertThat(store.createClassLoader(Arrays.asList(DIR, JAR)).loadBytes("tags/TagName.class")).isNotNull();
+  }
+
+  @Test
+  public void least_recently_used_bytes_are_evicted() throws Exception {
+    store = new ClassFileStore(1);
+    SquidClassLoader classLoader = store.createClassLoader(Arrays.asList(JAR));
+    assertThat(classLoader.loadBytes("org/sonar/tests/Hello.class")).isNotNull();
+    assertThat(store.cachedBytes()).isEqualTo(0);
+
+    store.close();
+    store = new ClassFileStore(0);
+    classLoader = store.createClassLoader(Arrays.asList(DIR));
+    assertThat(classLoader.loadBytes("tags/TagName.class")).isNotNull();
+    assertThat(store.cachedBytes()).isEqualTo(0);
+  }
+
+  @Test
+  public void closing_class_loader_does_not_close_shared_files() throws Exception {
+    store = new ClassFileStore(0);
+    store.createClassLoader(Arrays.asList(JAR)).close();
+    assertThat(store.createClassLoader(Arrays.asList(JAR)).loadBytes("org/sonar/tests/Hello.class")).isNotNull();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void can_not_create_class_loader_once_closed() {
+    store = new ClassFileStore(0);
+    store.close();
+    store.createClassLoader(Arrays.asList(JAR));
+  }
+
+}
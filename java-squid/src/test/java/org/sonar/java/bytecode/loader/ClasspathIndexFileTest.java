@@ -0,0 +1,99 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.loader;
+
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ClasspathIndexFileTest {
+
+  private static final File JAR = new File("src/test/files/bytecode/lib/hello.jar");
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void class_files_are_kept_between_analyses() throws Exception {
+    File indexFile = new File(temp.getRoot(), "index/classpath.idx");
+    ClasspathIndexFile index = ClasspathIndexFile.load(indexFile);
+    assertThat(index.classFileNames(JAR)).isNull();
+    index.put(JAR, Arrays.asList("org/sonar/tests/Hello.class", "Default.class"));
+    index.save();
+
+    index = ClasspathIndexFile.load(indexFile);
+    assertThat(index.classFileNames(JAR)).containsOnly("org/sonar/tests/Hello.class", "Default.class");
+  }
+
+  @Test
+  public void changed_jar_files_are_not_taken_from_index() throws Exception {
+    File jar = temp.newFile("hello.jar");
+    Files.copy(JAR, jar);
+    File indexFile = temp.newFile("classpath.idx");
+    ClasspathIndexFile index = ClasspathIndexFile.load(indexFile);
+    index.put(jar, Arrays.asList("org/sonar/tests/Hello.class"));
+    index.save();
+
+    assertThat(jar.setLastModified(jar.lastModified() - 10000)).isTrue();
+    assertThat(ClasspathIndexFile.load(indexFile).classFileNames(jar)).isNull();
+  }
+
+  @Test
+  public void only_jar_files_of_last_analysis_are_kept() throws Exception {
+    File indexFile = temp.newFile("classpath.idx");
+    ClasspathIndexFile index = ClasspathIndexFile.load(indexFile);
+    index.put(JAR, Arrays.asList("org/sonar/tests/Hello.class"));
+    index.save();
+
+    ClasspathIndexFile.load(indexFile).save();
+    assertThat(ClasspathIndexFile.load(indexFile).classFileNames(JAR)).isNull();
+  }
+
+  @Test
+  public void invalid_index_file_is_ignored() throws Exception {
+    File indexFile = temp.newFile("classpath.idx");
+    Files.write(new byte[] {1, 2, 3}, indexFile);
+    assertThat(ClasspathIndexFile.load(indexFile).classFileNames(JAR)).isNull();
+  }
+
+  @Test
+  public void store_does_not_open_indexed_jar_files_until_classes_are_loaded() throws Exception {
+    File indexFile = temp.newFile("classpath.idx");
+    ClasspathIndexFile index = ClasspathIndexFile.load(indexFile);
+    ClassFileStore store = new ClassFileStore(0, index);
+    assertThat(store.createClassLoader(Arrays.asList(JAR)).loadBytes("org/sonar/tests/Hello.class")).isNotNull();
+    store.close();
+    index.save();
+
+    store = new ClassFileStore(0, ClasspathIndexFile.load(indexFile));
+    SquidClassLoader classLoader = store.createClassLoader(Arrays.asList(JAR));
+    assertThat(classLoader.hasResource("org/sonar/tests/Hello.class")).isTrue();
+    assertThat(classLoader.loadBytes("org/sonar/tests/Unknown.class")).isNull();
+    assertThat(classLoader.loadBytes("org/sonar/tests/Hello.class")).isNotNull();
+    store.close();
+  }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.loader;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ClasspathIndexTest {
+
+  private static final File JAR = new File("src/test/files/bytecode/lib/hello.jar");
+  private static final File DIR = new File("src/test/files/bytecode/bin/");
+
+  @Test
+  public void class_files_of_jars_and_directories_are_indexed() {
+    ClasspathIndex index = new ClasspathIndex(Arrays.<Loader>asList(new JarLoader(JAR), new FileSystemLoader(DIR)));
+    assertThat(index.mayContain("org/sonar/tests/Hello.class")).isTrue();
+    assertThat(index.mayContain("tags/TagName.class")).isTrue();
+    assertThat(index.mayContain("LambdaExpressions.class")).isTrue();
+    assertThat(index.mayContain("tags/Unknown.class")).isFalse();
+    assertThat(index.mayContain("tags/tagname.class")).isFalse();
+    assertThat(index.mayContain("unknown/Hello.class")).isFalse();
+    // only class files are indexed
+    assertThat(index.mayContain("tags/Unknown.txt")).isTrue();
+  }
+
+  @Test
+  public void index_is_built_once() {
+    Loader loader = mock(Loader.class);
+    when(loader.classFileNames()).thenReturn(Collections.singletonList("org/foo/Bar.class"));
+    ClasspathIndex index = new ClasspathIndex(Arrays.asList(loader));
+    assertThat(index.mayContain("org/foo/Bar.class")).isTrue();
+    assertThat(index.mayContain("org/foo/Baz.class")).isFalse();
+    verify(loader, times(1)).classFileNames();
+  }
+
+  @Test
+  public void index_is_disabled_when_a_loader_can_not_list_its_class_files() {
+    ClasspathIndex index = new ClasspathIndex(Arrays.<Loader>asList(new FileSystemLoader(DIR), new BootstrapLoader()));
+    assertThat(index.mayContain("tags/Unknown.class")).isTrue();
+  }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.loader;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class IndexedJarLoaderTest {
+
+  private static final File JAR = new File("src/test/files/bytecode/lib/hello.jar");
+
+  @Test
+  public void jar_file_is_opened_once_a_class_is_loaded() {
+    IndexedJarLoader loader = new IndexedJarLoader(JAR, ImmutableSet.of("org/sonar/tests/Hello.class"));
+    assertThat(loader.classFileNames()).containsOnly("org/sonar/tests/Hello.class");
+    assertThat(loader.contains("org/sonar/tests/Hello.class")).isTrue();
+    assertThat(loader.contains("org/sonar/tests/Unknown.class")).isFalse();
+    assertThat(loader.loadBytes("org/sonar/tests/Unknown.class")).isNull();
+    assertThat(loader.findResource("org/sonar/tests/Unknown.class")).isNull();
+    assertThat(loader.isOpened()).isFalse();
+
+    assertThat(loader.loadBytes("org/sonar/tests/Hello.class")).isNotNull();
+    assertThat(loader.isOpened()).isTrue();
+    loader.close();
+  }
+
+  @Test
+  public void jar_file_is_opened_for_other_resources() {
+    IndexedJarLoader loader = new IndexedJarLoader(JAR, ImmutableSet.<String>of());
+    assertThat(loader.contains("META-INF/MANIFEST.MF")).isTrue();
+    assertThat(loader.isOpened()).isTrue();
+    loader.close();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void closed() {
+    IndexedJarLoader loader = new IndexedJarLoader(JAR, ImmutableSet.<String>of());
+    loader.close();
+    loader.contains("org/sonar/tests/Hello.class");
+  }
+
+}
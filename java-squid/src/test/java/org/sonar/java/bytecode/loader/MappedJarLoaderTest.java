@@ -0,0 +1,162 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.bytecode.loader;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class MappedJarLoaderTest {
+
+  private static final File JAR = new File("src/test/files/bytecode/lib/hello.jar");
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void shouldThrowIllegalArgumentException() throws Exception {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("file can't be null");
+    new MappedJarLoader(null);
+  }
+
+  @Test
+  public void testFindResource() throws Exception {
+    MappedJarLoader loader = new MappedJarLoader(JAR);
+
+    assertThat(loader.findResource("notfound")).isNull();
+
+    URL url = loader.findResource("META-INF/MANIFEST.MF");
+    assertThat(url).isNotNull();
+    assertThat(url.toString()).startsWith("jar:");
+    assertThat(url.toString()).endsWith("hello.jar!/META-INF/MANIFEST.MF");
+
+    InputStream is = url.openStream();
+    try {
+      assertThat(IOUtils.readLines(is)).contains("Manifest-Version: 1.0");
+    } finally {
+      IOUtils.closeQuietly(is);
+    }
+
+    loader.close();
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Loader closed");
+    loader.findResource("META-INF/MANIFEST.MF");
+  }
+
+  @Test
+  public void testLoadBytes() throws Exception {
+    MappedJarLoader loader = new MappedJarLoader(JAR);
+
+    assertThat(loader.loadBytes("notfound")).isNull();
+
+    byte[] bytes = loader.loadBytes("META-INF/MANIFEST.MF");
+    assertThat(bytes).isNotNull();
+    ByteArrayInputStream is = new ByteArrayInputStream(bytes);
+    assertThat(IOUtils.readLines(is)).contains("Manifest-Version: 1.0");
+
+    JarLoader jarLoader = new JarLoader(JAR);
+    for (String name : loader.classFileNames()) {
+      assertThat(loader.loadBytes(name)).isEqualTo(jarLoader.loadBytes(name));
+    }
+    jarLoader.close();
+
+    loader.close();
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Loader closed");
+    loader.loadBytes("META-INF/MANIFEST.MF");
+  }
+
+  @Test
+  public void testLoadBytesOfStoredEntry() throws Exception {
+    File jar = temp.newFile("stored.jar");
+    byte[] content = "stored content".getBytes("UTF-8");
+    JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+    try {
+      JarEntry entry = new JarEntry("org/example/Stored.class");
+      entry.setMethod(ZipEntry.STORED);
+      entry.setSize(content.length);
+      CRC32 crc = new CRC32();
+      crc.update(content);
+      entry.setCrc(crc.getValue());
+      out.putNextEntry(entry);
+      out.write(content);
+      out.closeEntry();
+    } finally {
+      out.close();
+    }
+
+    MappedJarLoader loader = new MappedJarLoader(jar);
+    assertThat(loader.loadBytes("org/example/Stored.class")).isEqualTo(content);
+    loader.close();
+  }
+
+  @Test
+  public void testContains() throws Exception {
+    MappedJarLoader loader = new MappedJarLoader(JAR);
+    assertThat(loader.contains("META-INF/MANIFEST.MF")).isTrue();
+    assertThat(loader.contains("notfound")).isFalse();
+    assertThat(loader.classFileNames()).isNotEmpty();
+    for (String name : loader.classFileNames()) {
+      assertThat(name).endsWith(".class");
+      assertThat(loader.contains(name)).isTrue();
+    }
+    loader.close();
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Loader closed");
+    loader.contains("META-INF/MANIFEST.MF");
+  }
+
+  @Test
+  public void closeCanBeCalledMultipleTimes() throws Exception {
+    MappedJarLoader loader = new MappedJarLoader(JAR);
+    loader.close();
+    loader.close();
+  }
+
+  @Test
+  public void testCorruptedJar() {
+    File jar = new File("src/test/files/bytecode/src/tags/TagName.java");
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Unable to open " + jar.getAbsolutePath());
+    new MappedJarLoader(jar);
+  }
+
+}
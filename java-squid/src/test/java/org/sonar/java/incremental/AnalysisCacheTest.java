@@ -0,0 +1,225 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.incremental;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.sonar.api.batch.SensorContext;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.resources.Project;
+import org.sonar.api.resources.ProjectFileSystem;
+import org.sonar.check.RuleProperty;
+import org.sonar.java.JavaConfiguration;
+import org.sonar.java.JavaSquid;
+import org.sonar.java.Measurer;
+import org.sonar.plugins.java.api.JavaFileScanner;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.squidbridge.api.CheckMessage;
+import org.sonar.squidbridge.api.CodeVisitor;
+import org.sonar.squidbridge.api.SourceFile;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AnalysisCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File baseDir;
+  private File cacheFile;
+  private List<File> files;
+
+  @Before
+  public void setUp() throws Exception {
+    baseDir = temp.newFolder();
+    cacheFile = new File(temp.newFolder(), "cache/analysis.bin");
+    files = Lists.newArrayList();
+    for (String name : new String[] {"Complexity.java", "Methods.java"}) {
+      File file = new File(baseDir, name);
+      Files.copy(new File("src/test/files/metrics", name), file);
+      files.add(file);
+    }
+  }
+
+  @Test
+  public void unchanged_files_are_replayed() {
+    Result first = scan(new CountingCheck());
+    assertThat(first.check.scannedFiles).isEqualTo(2);
+    assertThat(cacheFile).exists();
+
+    Result second = scan(new CountingCheck());
+    assertThat(second.check.scannedFiles).isEqualTo(0);
+    assertThat(second.measures).isEqualTo(first.measures);
+    assertThat(second.issues).isEqualTo(first.issues);
+  }
+
+  @Test
+  public void changed_file_is_analyzed_again() throws Exception {
+    scan(new CountingCheck());
+    Files.append("\n// change\n", files.get(1), Charsets.UTF_8);
+
+    Result second = scan(new CountingCheck());
+    assertThat(second.check.scannedFiles).isEqualTo(1);
+    assertThat(second.issues).containsOnly("Complexity.java:1:cached", "Methods.java:1:cached");
+  }
+
+  @Test
+  public void all_files_are_analyzed_again_when_parameters_of_checks_change() {
+    scan(new CountingCheck());
+    CountingCheck check = new CountingCheck();
+    check.message = "changed";
+
+    Result second = scan(check);
+    assertThat(second.check.scannedFiles).isEqualTo(2);
+    assertThat(second.issues).containsOnly("Complexity.java:1:changed", "Methods.java:1:changed");
+  }
+
+  @Test
+  public void all_files_are_analyzed_when_cache_is_corrupted() throws Exception {
+    Files.createParentDirs(cacheFile);
+    Files.write("corrupted", cacheFile, Charsets.UTF_8);
+
+    Result result = scan(new CountingCheck());
+    assertThat(result.check.scannedFiles).isEqualTo(2);
+    assertThat(result.issues).hasSize(2);
+  }
+
+  @Test
+  public void file_is_analyzed_again_when_class_files_it_depends_on_change() throws Exception {
+    File classes = temp.newFolder();
+    File classFile = new File(classes, "org/foo/A.class");
+    Files.createParentDirs(classFile);
+    Files.write(new byte[] {1, 2}, classFile);
+    List<File> classpath = ImmutableList.of(classes);
+    File file = files.get(0);
+
+    AnalysisCache cache = AnalysisCache.load(cacheFile, "fingerprint", classpath);
+    assertThat(cache.unchangedAnalysis(file)).isNull();
+    cache.recordingFor(file).recordDependencies(ImmutableList.of("org/foo/A.class", "org/foo/B.class"));
+    cache.save();
+
+    cache = AnalysisCache.load(cacheFile, "fingerprint", classpath);
+    assertThat(cache.unchangedAnalysis(file)).isNotNull();
+    assertThat(cache.recordingFor(file)).isNull();
+    cache.save();
+
+    Files.write(new byte[] {3}, new File(classes, "org/foo/B.class"));
+    cache = AnalysisCache.load(cacheFile, "fingerprint", classpath);
+    assertThat(cache.unchangedAnalysis(file)).isNull();
+    assertThat(cache.recordingFor(file)).isNotNull();
+  }
+
+  @Test
+  public void incomplete_analyses_are_not_cached() {
+    File file = files.get(0);
+    AnalysisCache cache = AnalysisCache.load(cacheFile, "fingerprint", Collections.<File>emptyList());
+    cache.unchangedAnalysis(file);
+    cache.save();
+
+    cache = AnalysisCache.load(cacheFile, "fingerprint", Collections.<File>emptyList());
+    assertThat(cache.unchangedAnalysis(file)).isNull();
+    cache.recordingFor(file).recordDependencies(Collections.<String>emptyList());
+    cache.recordingFor(file).invalidate();
+    cache.save();
+
+    cache = AnalysisCache.load(cacheFile, "fingerprint", Collections.<File>emptyList());
+    assertThat(cache.unchangedAnalysis(file)).isNull();
+  }
+
+  @Test
+  public void fingerprint_depends_on_configuration() {
+    List<File> classpath = Collections.emptyList();
+    List<CodeVisitor> checks = ImmutableList.<CodeVisitor>of(new CountingCheck());
+    JavaConfiguration conf = new JavaConfiguration(Charsets.UTF_8);
+    String fingerprint = AnalysisCache.fingerprint(conf, classpath, checks);
+    assertThat(AnalysisCache.fingerprint(conf, classpath, checks)).isEqualTo(fingerprint);
+
+    conf.setSeparateAccessorsFromMethods(false);
+    assertThat(AnalysisCache.fingerprint(conf, classpath, checks)).isNotEqualTo(fingerprint);
+    assertThat(AnalysisCache.fingerprint(new JavaConfiguration(Charsets.ISO_8859_1), classpath, checks)).isNotEqualTo(fingerprint);
+    assertThat(AnalysisCache.fingerprint(new JavaConfiguration(Charsets.UTF_8), classpath, Collections.emptyList())).isNotEqualTo(fingerprint);
+  }
+
+  private Result scan(CountingCheck check) {
+    SensorContext context = mock(SensorContext.class);
+    Project project = mock(Project.class);
+    ProjectFileSystem pfs = mock(ProjectFileSystem.class);
+    when(project.getFileSystem()).thenReturn(pfs);
+    when(pfs.getBasedir()).thenReturn(baseDir);
+    JavaConfiguration conf = new JavaConfiguration(Charsets.UTF_8);
+    conf.setAnalysisCacheFile(cacheFile);
+
+    JavaSquid squid = new JavaSquid(conf, null, new Measurer(project, context, true), null, new CodeVisitor[] {check});
+    squid.scan(files, Collections.<File>emptyList(), Collections.<File>emptyList());
+
+    Result result = new Result(check);
+    ArgumentCaptor<Measure> measures = ArgumentCaptor.forClass(Measure.class);
+    verify(context, atLeastOnce()).saveMeasure(org.mockito.Matchers.any(org.sonar.api.resources.File.class), measures.capture());
+    for (Measure measure : measures.getAllValues()) {
+      result.measures.add(measure.getMetricKey() + "=" + measure.getValue() + ":" + measure.getData());
+    }
+    for (File file : files) {
+      SourceFile sourceFile = (SourceFile) squid.search(file.getAbsolutePath());
+      for (CheckMessage message : sourceFile.getCheckMessages()) {
+        assertThat(message.getCheck()).isSameAs(check);
+        result.issues.add(file.getName() + ":" + message.getLine() + ":" + message.formatDefaultMessage());
+      }
+    }
+    return result;
+  }
+
+  private static class Result {
+    private final CountingCheck check;
+    private final List<String> measures = Lists.newArrayList();
+    private final List<String> issues = Lists.newArrayList();
+
+    Result(CountingCheck check) {
+      this.check = check;
+    }
+  }
+
+  private static class CountingCheck implements JavaFileScanner {
+    @RuleProperty
+    private String message = "cached";
+    private int scannedFiles;
+
+    @Override
+    public void scanFile(JavaFileScannerContext context) {
+      scannedFiles++;
+      context.addIssue(1, this, message);
+    }
+  }
+
+}
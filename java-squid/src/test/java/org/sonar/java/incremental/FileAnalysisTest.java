@@ -0,0 +1,174 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.incremental;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Multimap;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.sonar.api.batch.SensorContext;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.FileLinesContext;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.PersistenceMode;
+import org.sonar.api.resources.Resource;
+import org.sonar.api.source.Highlightable;
+import org.sonar.api.source.Symbol;
+import org.sonar.api.source.Symbolizable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class FileAnalysisTest {
+
+  @Test
+  public void lines_are_recorded_and_replayed() throws Exception {
+    FileAnalysis recording = new FileAnalysis(42);
+    FileLinesContext fileLinesContext = recording.record(mock(FileLinesContext.class));
+    fileLinesContext.setIntValue(CoreMetrics.NCLOC_DATA_KEY, 1, 1);
+    fileLinesContext.setIntValue(CoreMetrics.NCLOC_DATA_KEY, 2, 0);
+    fileLinesContext.setIntValue(CoreMetrics.COMMENT_LINES_DATA_KEY, 2, 1);
+    fileLinesContext.save();
+
+    FileLinesContext replayed = mock(FileLinesContext.class);
+    writeAndRead(recording).replayLines(replayed);
+    verify(replayed).setIntValue(CoreMetrics.NCLOC_DATA_KEY, 1, 1);
+    verify(replayed).setIntValue(CoreMetrics.NCLOC_DATA_KEY, 2, 0);
+    verify(replayed).setIntValue(CoreMetrics.COMMENT_LINES_DATA_KEY, 2, 1);
+    verify(replayed).save();
+  }
+
+  @Test
+  public void string_values_of_lines_are_not_cacheable() throws Exception {
+    FileAnalysis recording = new FileAnalysis(42);
+    recording.recordDependencies(ImmutableList.<String>of());
+    recording.record(mock(FileLinesContext.class)).setStringValue("key", 1, "value");
+    assertThat(recording.isComplete()).isFalse();
+  }
+
+  @Test
+  public void highlighting_is_recorded_and_replayed() throws Exception {
+    FileAnalysis recording = new FileAnalysis(42);
+    Highlightable highlightable = mock(Highlightable.class);
+    when(highlightable.newHighlighting()).thenReturn(mock(Highlightable.HighlightingBuilder.class));
+    Highlightable.HighlightingBuilder builder = recording.record(highlightable).newHighlighting();
+    builder.highlight(0, 5, "k");
+    builder.highlight(6, 10, "s");
+    builder.highlight(11, 15, "k");
+    builder.done();
+
+    Highlightable replayed = mock(Highlightable.class);
+    Highlightable.HighlightingBuilder replayedBuilder = mock(Highlightable.HighlightingBuilder.class);
+    when(replayed.newHighlighting()).thenReturn(replayedBuilder);
+    writeAndRead(recording).replayHighlighting(replayed);
+    verify(replayedBuilder).highlight(0, 5, "k");
+    verify(replayedBuilder).highlight(6, 10, "s");
+    verify(replayedBuilder).highlight(11, 15, "k");
+    verify(replayedBuilder).done();
+  }
+
+  @Test
+  public void symbols_are_recorded_and_replayed() throws Exception {
+    FileAnalysis recording = new FileAnalysis(42);
+    Symbolizable symbolizable = mock(Symbolizable.class);
+    Symbolizable.SymbolTableBuilder builder = mock(Symbolizable.SymbolTableBuilder.class);
+    when(symbolizable.newSymbolTableBuilder()).thenReturn(builder);
+    Symbol first = mock(Symbol.class);
+    Symbol second = mock(Symbol.class);
+    when(builder.newSymbol(0, 3)).thenReturn(first);
+    when(builder.newSymbol(10, 12)).thenReturn(second);
+    Symbolizable recordingSymbolizable = recording.record(symbolizable);
+    Symbolizable.SymbolTableBuilder recordingBuilder = recordingSymbolizable.newSymbolTableBuilder();
+    Symbol symbol = recordingBuilder.newSymbol(0, 3);
+    recordingBuilder.newReference(symbol, 20);
+    recordingBuilder.newReference(recordingBuilder.newSymbol(10, 12), 30);
+    recordingBuilder.newReference(symbol, 40);
+    recordingSymbolizable.setSymbolTable(recordingBuilder.build());
+
+    Symbolizable replayed = mock(Symbolizable.class);
+    Symbolizable.SymbolTableBuilder replayedBuilder = mock(Symbolizable.SymbolTableBuilder.class);
+    when(replayed.newSymbolTableBuilder()).thenReturn(replayedBuilder);
+    when(replayedBuilder.newSymbol(0, 3)).thenReturn(first);
+    when(replayedBuilder.newSymbol(10, 12)).thenReturn(second);
+    writeAndRead(recording).replaySymbols(replayed);
+    verify(replayedBuilder).newReference(first, 20);
+    verify(replayedBuilder).newReference(second, 30);
+    verify(replayedBuilder).newReference(first, 40);
+    verify(replayed).setSymbolTable(any(Symbolizable.SymbolTable.class));
+  }
+
+  @Test
+  public void nothing_is_replayed_when_nothing_was_recorded() throws Exception {
+    Highlightable highlightable = mock(Highlightable.class);
+    Symbolizable symbolizable = mock(Symbolizable.class);
+    FileAnalysis analysis = writeAndRead(new FileAnalysis(42));
+    analysis.replayHighlighting(highlightable);
+    analysis.replaySymbols(symbolizable);
+    verify(highlightable, never()).newHighlighting();
+    verify(symbolizable, never()).newSymbolTableBuilder();
+  }
+
+  @Test
+  public void measures_and_classes_are_recorded_and_replayed() throws Exception {
+    FileAnalysis recording = new FileAnalysis(42);
+    recording.recordMeasure(new Measure(CoreMetrics.COMPLEXITY, 3.0));
+    recording.recordMeasure(new Measure(CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION, "1=0;2=1").setPersistenceMode(PersistenceMode.MEMORY));
+    Multimap<Integer, String> suppressWarningLines = LinkedHashMultimap.create();
+    suppressWarningLines.put(3, "all");
+    recording.recordClasses(ImmutableList.of("org/foo/A", "org/foo/A$B"), ImmutableMap.of("org/foo/A#m()V", 4), suppressWarningLines);
+
+    FileAnalysis replayed = writeAndRead(recording);
+    assertThat(replayed.classKeys()).containsExactly("org/foo/A", "org/foo/A$B");
+    assertThat(replayed.methodStartLines()).isEqualTo(ImmutableMap.of("org/foo/A#m()V", 4));
+    assertThat(replayed.suppressWarningLines()).isEqualTo(suppressWarningLines);
+    SensorContext sensorContext = mock(SensorContext.class);
+    Resource resource = mock(Resource.class);
+    replayed.replayMeasures(sensorContext, resource);
+    ArgumentCaptor<Measure> measures = ArgumentCaptor.forClass(Measure.class);
+    verify(sensorContext, times(2)).saveMeasure(eq(resource), measures.capture());
+    assertThat(measures.getAllValues().get(0).getMetric()).isEqualTo(CoreMetrics.COMPLEXITY);
+    assertThat(measures.getAllValues().get(0).getValue()).isEqualTo(3.0);
+    assertThat(measures.getAllValues().get(1).getData()).isEqualTo("1=0;2=1");
+    assertThat(measures.getAllValues().get(1).getPersistenceMode()).isEqualTo(PersistenceMode.MEMORY);
+  }
+
+  private static FileAnalysis writeAndRead(FileAnalysis analysis) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    analysis.write(new DataOutputStream(bytes));
+    FileAnalysis result = FileAnalysis.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), analysis.contentHash);
+    assertThat(result).isNotNull();
+    return result;
+  }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.parser.sslr;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.sonar.java.parser.sslr.ActionParser2.GrammarBuilderInterceptor;
+import org.sonar.java.parser.sslr.ActionParser2.RuleBinding;
+import org.sonar.sslr.grammar.GrammarRuleKey;
+import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
+
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class GrammarBuilderInterceptorTest {
+
+  private final LexerlessGrammarBuilder b = spy(LexerlessGrammarBuilder.create());
+  private final GrammarBuilderInterceptor interceptor = new GrammarBuilderInterceptor(b);
+
+  @Test
+  public void rules_are_bound_according_to_their_kind() throws Exception {
+    GrammarRuleKey delegateKey = new TestRuleKey();
+    interceptor.nonterminal(delegateKey);
+    interceptor.token("a");
+    interceptor.optional(null);
+    interceptor.token("b");
+    interceptor.oneOrMore(null);
+    interceptor.token("c");
+    interceptor.zeroOrMore(null);
+    GrammarRuleKey actionKey = interceptor.ruleKeyForAction(TestTreeFactory.class.getMethod("action"));
+    interceptor.bindRules(TestTreeFactory.class);
+
+    ArgumentCaptor<GrammarRuleKey> generatedKeys = ArgumentCaptor.forClass(GrammarRuleKey.class);
+    verify(b, times(3)).rule(generatedKeys.capture());
+    List<GrammarRuleKey> keys = generatedKeys.getAllValues();
+    assertThat(interceptor.bindingForRuleKey(delegateKey).kind()).isEqualTo(RuleBinding.Kind.DELEGATE);
+    assertThat(interceptor.bindingForRuleKey(keys.get(0)).kind()).isEqualTo(RuleBinding.Kind.OPTIONAL);
+    assertThat(interceptor.bindingForRuleKey(keys.get(1)).kind()).isEqualTo(RuleBinding.Kind.ONE_OR_MORE);
+    assertThat(interceptor.bindingForRuleKey(keys.get(2)).kind()).isEqualTo(RuleBinding.Kind.ZERO_OR_MORE);
+    assertThat(interceptor.bindingForRuleKey(actionKey).kind()).isEqualTo(RuleBinding.Kind.ACTION);
+    assertThat(interceptor.bindingForRuleKey(actionKey).invokeAction(new TestTreeFactory(), new Object[0])).isEqualTo("action");
+    assertThat(interceptor.bindingForRuleKey(new TestRuleKey())).isNull();
+  }
+
+  @Test
+  public void rule_of_several_kinds_is_bound_to_the_first_of_them() throws Exception {
+    GrammarRuleKey actionKey = interceptor.ruleKeyForAction(TestTreeFactory.class.getMethod("action"));
+    interceptor.nonterminal(actionKey);
+    interceptor.bindRules(TestTreeFactory.class);
+
+    assertThat(interceptor.bindingForRuleKey(actionKey).kind()).isEqualTo(RuleBinding.Kind.DELEGATE);
+  }
+
+  private static class TestRuleKey implements GrammarRuleKey {
+  }
+
+  public static class TestTreeFactory {
+    public String action() {
+      return "action";
+    }
+  }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.parser.sslr;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class StringPoolTest {
+
+  @Test
+  public void should_return_same_instance_for_same_value() {
+    StringPool pool = new StringPool();
+    char[] chars = "foo bar foo".toCharArray();
+    String first = pool.get(chars, 0, 3);
+    assertThat(first).isEqualTo("foo");
+    assertThat(pool.get(chars, 8, 11)).isSameAs(first);
+    assertThat(pool.get(chars, 4, 7)).isEqualTo("bar");
+    assertThat(pool.get(chars, 3, 3)).isEqualTo("");
+    assertThat(pool.size()).isEqualTo(3);
+  }
+
+  @Test
+  public void should_not_pool_long_values() {
+    StringPool pool = new StringPool();
+    char[] chars = new char[StringPool.MAX_POOLED_LENGTH + 1];
+    assertThat(pool.get(chars, 0, chars.length)).isNotSameAs(pool.get(chars, 0, chars.length));
+    assertThat(pool.get(chars, 0, chars.length)).isEqualTo(new String(chars));
+    assertThat(pool.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void should_keep_values_when_growing() {
+    StringPool pool = new StringPool();
+    String[] values = new String[5000];
+    for (int i = 0; i < values.length; i++) {
+      char[] chars = ("v" + i).toCharArray();
+      values[i] = pool.get(chars, 0, chars.length);
+    }
+    for (int i = 0; i < values.length; i++) {
+      char[] chars = ("v" + i).toCharArray();
+      assertThat(pool.get(chars, 0, chars.length)).isSameAs(values[i]);
+    }
+    assertThat(pool.size()).isEqualTo(values.length);
+  }
+
+  @Test
+  public void should_stop_pooling_when_full() {
+    StringPool pool = new StringPool();
+    for (int i = 0; i < StringPool.MAX_POOLED_VALUES + 10; i++) {
+      char[] chars = ("v" + i).toCharArray();
+      assertThat(pool.get(chars, 0, chars.length)).isEqualTo("v" + i);
+    }
+    assertThat(pool.size()).isEqualTo(StringPool.MAX_POOLED_VALUES);
+  }
+
+}
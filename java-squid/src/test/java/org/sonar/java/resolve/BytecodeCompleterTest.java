@@ -109,6 +109,18 @@ public class BytecodeCompleterTest {
     assertThat(interfacesName).contains("List", "RandomAccess", "Cloneable", "Serializable");
   }
 
+  @Test
+  public void fields_and_methods_are_read_on_first_lookup_of_members() {
+    JavaSymbol.TypeJavaSymbol arrayList = bytecodeCompleter.getClassSymbol("java/util/ArrayList");
+    assertThat(arrayList.getSuperclass().symbol.name).isEqualTo("AbstractList");
+    assertThat(arrayList.members.lookup("ensureCapacity")).isEmpty();
+    assertThat(arrayList.members.lookup("DEFAULT_CAPACITY")).isEmpty();
+
+    assertThat(arrayList.members().lookup("ensureCapacity")).hasSize(1);
+    assertThat(arrayList.members().lookup("DEFAULT_CAPACITY")).hasSize(1);
+    assertThat(arrayList.members().lookup("Itr")).hasSize(1);
+  }
+
   @Test
   public void symbol_type_in_same_package_should_be_resolved() throws Exception {
     JavaSymbol.TypeJavaSymbol thisTest = bytecodeCompleter.getClassSymbol(Convert.bytecodeName(getClass().getName()));
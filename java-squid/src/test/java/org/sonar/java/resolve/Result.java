@@ -114,4 +114,8 @@ class Result {
   public Tree getTree(Symbol symbol) {
     return semanticModel.getTree(symbol);
   }
+
+  public SemanticModel semanticModel() {
+    return semanticModel;
+  }
 }
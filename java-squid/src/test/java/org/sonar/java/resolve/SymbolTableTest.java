@@ -23,6 +23,7 @@ import com.google.common.collect.Iterables;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.sonar.java.model.JavaTree;
 import org.sonar.plugins.java.api.semantic.Symbol;
 import org.sonar.plugins.java.api.semantic.Type;
 import org.sonar.plugins.java.api.tree.ExpressionStatementTree;
@@ -42,6 +43,47 @@ public class SymbolTableTest {
   @Rule
   public ExpectedException expectedEx = ExpectedException.none();
 
+  @Test
+  public void trees_are_linked_to_their_parent() {
+    Result result = Result.createFor("MethodResolutionCache");
+    JavaTree classTree = (JavaTree) result.getTree(result.symbol("MethodResolutionCache"));
+    JavaTree innerClassTree = (JavaTree) result.getTree(result.symbol("Inner"));
+    assertThat(((JavaTree) result.getTree(result.symbol("f", 2))).parent()).isSameAs(classTree);
+    assertThat(innerClassTree.parent()).isSameAs(classTree);
+    assertThat(classTree.parent().parent()).isNull();
+
+    SemanticModel semanticModel = result.semanticModel();
+    IdentifierTree reference = result.referenceTree(27, 7);
+    assertThat(semanticModel.getEnclosingClass(reference)).isSameAs(result.symbol("Inner"));
+    assertThat(semanticModel.getTree(semanticModel.getEnv(innerClassTree))).isSameAs(innerClassTree);
+  }
+
+  @Test
+  public void method_resolutions_are_cached() {
+    Result result = Result.createFor("MethodResolutionCache");
+    JavaSymbol fInt = result.symbol("f", 2);
+    JavaSymbol fObject = result.symbol("f", 3);
+    JavaSymbol hVarargs = result.symbol("h", 5);
+    for (int line = 9; line <= 10; line++) {
+      assertThat(result.reference(line, 5)).isSameAs(fInt);
+    }
+    for (int line = 11; line <= 12; line++) {
+      assertThat(result.reference(line, 5)).isSameAs(fObject);
+    }
+    for (int line = 13; line <= 14; line++) {
+      assertThat(result.reference(line, 5)).isSameAs(result.symbol("g", 4));
+    }
+    for (int line = 15; line <= 20; line++) {
+      assertThat(result.reference(line, 5)).isSameAs(hVarargs);
+    }
+    // same invocation is resolved differently from another class
+    assertThat(result.reference(27, 7)).isSameAs(result.symbol("f", 24));
+    assertThat(result.reference(28, 34)).isSameAs(fObject);
+
+    assertThat(result.semanticModel().methodResolutionCacheHits()).isGreaterThanOrEqualTo(6);
+    assertThat(result.semanticModel().methodResolutionCacheMisses()).isGreaterThan(0);
+  }
+
   @Test
   public void Generics() {
     Result result = Result.createFor("Generics");
@@ -35,6 +35,7 @@ import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
 import org.sonar.plugins.java.api.tree.ClassTree;
 import org.sonar.plugins.java.api.tree.CompilationUnitTree;
 import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.NewClassTree;
 import org.sonar.plugins.java.api.tree.Tree;
 import org.sonar.plugins.java.api.tree.VariableTree;
 
@@ -183,6 +184,16 @@ public class TypeAndReferenceSolverTest {
     assertThat(annotation5.values().get(1).name()).isEqualTo("expr2");
   }
 
+  @Test
+  public void enum_constant_body_is_subtype_of_enum() {
+    CompilationUnitTree compilationUnit = treeOf("interface I { } enum E implements I { A { void f() { g(this); } }; static void g(I i) { } }");
+    ClassTreeImpl enumTree = (ClassTreeImpl) compilationUnit.types().get(1);
+    ClassTree classBody = ((NewClassTree) ((VariableTree) enumTree.members().get(0)).initializer()).classBody();
+    JavaType classBodyType = (JavaType) classBody.symbol().type();
+    assertThat(classBodyType.isSubtypeOf("E")).isTrue();
+    assertThat(classBodyType.isSubtypeOf("I")).isTrue();
+  }
+
   private AnnotationInstance extractFirstAnnotationInstance(String source) {
     ClassTree tree = (ClassTree) treeOf(source).types().get(1);
     return ((JavaSymbol.TypeJavaSymbol) tree.symbol()).metadata().annotations().get(0);
@@ -80,6 +80,33 @@ public class TypesTest {
 
   }
 
+  @Test
+  public void supertypes_are_memoized_once_hierarchy_is_completed() {
+    JavaSymbol.TypeJavaSymbol superSymbol = new JavaSymbol.TypeJavaSymbol(Flags.PUBLIC, "Super", symbols.defaultPackage);
+    final JavaType.ClassJavaType superType = (JavaType.ClassJavaType) superSymbol.type;
+    superType.interfaces = Lists.newArrayList();
+    final JavaSymbol.TypeJavaSymbol subSymbol = new JavaSymbol.TypeJavaSymbol(Flags.PUBLIC, "Sub", symbols.defaultPackage);
+    final JavaType.ClassJavaType subType = (JavaType.ClassJavaType) subSymbol.type;
+    subSymbol.completer = new JavaSymbol.Completer() {
+      @Override
+      public void complete(JavaSymbol symbol) {
+        subType.interfaces = Lists.newArrayList();
+        // hierarchy is queried while it is still incomplete
+        assertThat(types.isSubtype(subType, superType)).isFalse();
+        subType.supertype = superType;
+      }
+    };
+
+    assertThat(types.isSubtype(subType, superType)).isTrue();
+    assertThat(subSymbol.superTypes()).containsOnly(superType);
+    assertThat(subSymbol.superTypes()).isSameAs(subSymbol.superTypes());
+    assertThat(subSymbol.erasedSuperTypes()).isSameAs(subSymbol.erasedSuperTypes());
+
+    subType.supertype = null;
+    subSymbol.resetSuperTypes();
+    assertThat(types.isSubtype(subType, superType)).isFalse();
+  }
+
   @Test
   public void array_types_equality() throws Exception {
     JavaType.ArrayJavaType arrayInt= new JavaType.ArrayJavaType(symbols.intType, symbols.arrayClass);
@@ -0,0 +1,83 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.java.api;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class FileContentTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void lines() throws Exception {
+    FileContent content = content("a\nbc\r\nd\re");
+    assertThat(content.chars()).isEqualTo("a\nbc\r\nd\re".toCharArray());
+    assertThat(content.lines()).isEqualTo(4);
+    assertThat(content.linesIgnoringTrailingEmptyLine()).isEqualTo(4);
+    assertThat(content.line(1)).isEqualTo("a");
+    assertThat(content.line(2)).isEqualTo("bc");
+    assertThat(content.line(3)).isEqualTo("d");
+    assertThat(content.line(4)).isEqualTo("e");
+    assertThat(content.lineStart(2)).isEqualTo(2);
+    assertThat(content.lineEnd(2)).isEqualTo(4);
+    assertThat(content.lineLength(2)).isEqualTo(2);
+    assertThat(content.lineStart(3)).isEqualTo(6);
+  }
+
+  @Test
+  public void trailing_empty_line() throws Exception {
+    FileContent content = content("a\r\n");
+    assertThat(content.lines()).isEqualTo(2);
+    assertThat(content.line(1)).isEqualTo("a");
+    assertThat(content.line(2)).isEqualTo("");
+    assertThat(content.linesIgnoringTrailingEmptyLine()).isEqualTo(1);
+
+    content = content("");
+    assertThat(content.lines()).isEqualTo(1);
+    assertThat(content.linesIgnoringTrailingEmptyLine()).isEqualTo(0);
+  }
+
+  @Test
+  public void same_number_of_lines_as_files_read_lines() throws Exception {
+    for (String text : new String[] {"", "a", "a\n", "a\n\n", "\r\r\n", "a\rb"}) {
+      File file = temp.newFile();
+      Files.write(text, file, Charsets.UTF_8);
+      FileContent content = FileContent.read(file, Charsets.UTF_8);
+      assertThat(content.file()).isEqualTo(file);
+      assertThat(content.linesIgnoringTrailingEmptyLine()).isEqualTo(Files.readLines(file, Charsets.UTF_8).size());
+    }
+  }
+
+  private FileContent content(String text) throws Exception {
+    File file = temp.newFile();
+    Files.write(text, file, Charsets.UTF_8);
+    return FileContent.read(file, Charsets.UTF_8);
+  }
+
+}
@@ -21,6 +21,7 @@ package org.sonar.plugins.surefire;
 
 import com.google.common.collect.ImmutableList;
 import org.sonar.api.CoreProperties;
+import org.sonar.api.PropertyType;
 import org.sonar.api.config.PropertyDefinition;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.plugins.surefire.api.SurefireUtils;
@@ -41,6 +42,14 @@ public final class SurefireExtensions {
             .category(CoreProperties.CATEGORY_JAVA)
             .subCategory("JUnit")
             .build(),
+        PropertyDefinition.builder(SurefireUtils.STACK_TRACE_MAX_LENGTH_PROPERTY)
+            .name("JUnit Stack Traces Maximum Length")
+            .description("Maximum number of characters of the stack trace of a failing test kept during the analysis. Stack traces are not truncated when not set or set to 0.")
+            .onQualifiers(Qualifiers.PROJECT)
+            .category(CoreProperties.CATEGORY_JAVA)
+            .subCategory("JUnit")
+            .type(PropertyType.INTEGER)
+            .build(),
 
         SurefireSensor.class,
         SurefireJavaParser.class);
@@ -19,12 +19,16 @@
  */
 package org.sonar.plugins.surefire;
 
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.BatchExtension;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.component.ResourcePerspectives;
+import org.sonar.api.config.Settings;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.Metric;
 import org.sonar.api.resources.Resource;
@@ -33,7 +37,9 @@ import org.sonar.api.test.TestCase;
 import org.sonar.api.utils.ParsingUtils;
 import org.sonar.api.utils.SonarException;
 import org.sonar.api.utils.StaxParser;
+import org.sonar.java.ReportThreads;
 import org.sonar.plugins.java.api.JavaResourceLocator;
+import org.sonar.plugins.surefire.api.SurefireUtils;
 import org.sonar.plugins.surefire.data.SurefireStaxHandler;
 import org.sonar.plugins.surefire.data.UnitTestClassReport;
 import org.sonar.plugins.surefire.data.UnitTestIndex;
@@ -42,7 +48,14 @@ import org.sonar.plugins.surefire.data.UnitTestResult;
 import javax.xml.stream.XMLStreamException;
 import java.io.File;
 import java.io.FilenameFilter;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * @since 2.4
@@ -52,10 +65,14 @@ public class SurefireJavaParser implements BatchExtension {
   private static final Logger LOGGER = LoggerFactory.getLogger(SurefireJavaParser.class);
   private final ResourcePerspectives perspectives;
   private final JavaResourceLocator javaResourceLocator;
+  private final int stackTraceMaxLength;
+  private final int threads;
 
-  public SurefireJavaParser(ResourcePerspectives perspectives, JavaResourceLocator javaResourceLocator) {
+  public SurefireJavaParser(ResourcePerspectives perspectives, JavaResourceLocator javaResourceLocator, Settings settings) {
     this.perspectives = perspectives;
     this.javaResourceLocator = javaResourceLocator;
+    this.stackTraceMaxLength = Math.max(0, settings.getInt(SurefireUtils.STACK_TRACE_MAX_LENGTH_PROPERTY));
+    this.threads = ReportThreads.get(settings);
   }
 
 
@@ -100,8 +117,42 @@ public class SurefireJavaParser implements BatchExtension {
     save(index, context);
   }
 
+  /**
+   * Reports are split in batches of consecutive files, each of them parsed into its own index by a worker thread.
+   * Indexes of batches are then added in the order of files, so that results do not depend on the number of threads.
+   */
   private void parseFiles(File[] reports, UnitTestIndex index) {
-    SurefireStaxHandler staxParser = new SurefireStaxHandler(index);
+    int batches = Math.min(reports.length, 4 * threads);
+    if (threads == 1 || batches == 1) {
+      parseBatch(reports, index);
+      return;
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<UnitTestIndex>> batchIndexes = Lists.newArrayList();
+      for (int i = 0; i < batches; i++) {
+        final File[] batch = Arrays.copyOfRange(reports, i * reports.length / batches, (i + 1) * reports.length / batches);
+        batchIndexes.add(executor.submit(new Callable<UnitTestIndex>() {
+          @Override
+          public UnitTestIndex call() {
+            UnitTestIndex batchIndex = new UnitTestIndex();
+            parseBatch(batch, batchIndex);
+            return batchIndex;
+          }
+        }));
+      }
+      for (Future<UnitTestIndex> batchIndex : batchIndexes) {
+        index.add(Uninterruptibles.getUninterruptibly(batchIndex));
+      }
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void parseBatch(File[] reports, UnitTestIndex index) {
+    SurefireStaxHandler staxParser = new SurefireStaxHandler(index, stackTraceMaxLength);
     StaxParser parser = new StaxParser(staxParser, false);
     for (File report : reports) {
       try {
@@ -36,6 +36,7 @@ public final class SurefireUtils {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(SurefireUtils.class);
   public static final String SUREFIRE_REPORTS_PATH_PROPERTY = "sonar.junit.reportsPath";
+  public static final String STACK_TRACE_MAX_LENGTH_PROPERTY = "sonar.junit.stackTraceMaxLength";
 
   private SurefireUtils() {
   }
@@ -34,9 +34,18 @@ import java.util.Locale;
 public class SurefireStaxHandler implements XmlStreamHandler {
 
   private final UnitTestIndex index;
+  private final int stackTraceMaxLength;
 
   public SurefireStaxHandler(UnitTestIndex index) {
+    this(index, 0);
+  }
+
+  /**
+   * @param stackTraceMaxLength number of characters of stack traces kept in the index, <tt>0</tt> to keep whole stack traces
+   */
+  public SurefireStaxHandler(UnitTestIndex index, int stackTraceMaxLength) {
     this.index = index;
+    this.stackTraceMaxLength = stackTraceMaxLength;
   }
 
   @Override
@@ -78,6 +87,10 @@ public class SurefireStaxHandler implements XmlStreamHandler {
   private void setStackAndMessage(UnitTestResult result, SMInputCursor stackAndMessageCursor) throws XMLStreamException {
     result.setMessage(stackAndMessageCursor.getAttrValue("message"));
     String stack = stackAndMessageCursor.collectDescendantText();
+    if (stackTraceMaxLength > 0 && stack.length() > stackTraceMaxLength) {
+      // stack traces of failing integration tests can be huge, only their top frames are kept
+      stack = stack.substring(0, stackTraceMaxLength);
+    }
     result.setStackTrace(stack);
   }
 
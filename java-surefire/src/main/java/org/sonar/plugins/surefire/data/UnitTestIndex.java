@@ -76,5 +76,15 @@ public class UnitTestIndex {
     indexByClassname.remove(classname);
   }
 
+  /**
+   * Adds results of another index after the results already indexed for the same classes.
+   */
+  public UnitTestIndex add(UnitTestIndex other) {
+    for (Map.Entry<String, UnitTestClassReport> entry : other.indexByClassname.entrySet()) {
+      index(entry.getKey()).add(entry.getValue());
+    }
+    return this;
+  }
+
 
 }
@@ -26,6 +26,7 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.component.ResourcePerspectives;
+import org.sonar.api.config.Settings;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.Metric;
 import org.sonar.api.resources.File;
@@ -37,6 +38,7 @@ import org.sonar.api.test.IsResource;
 import org.sonar.api.test.MutableTestCase;
 import org.sonar.api.test.MutableTestPlan;
 import org.sonar.api.test.TestCase;
+import org.sonar.java.ReportThreads;
 import org.sonar.plugins.java.api.JavaResourceLocator;
 
 import java.net.URISyntaxException;
@@ -72,7 +74,7 @@ public class SurefireJavaParserTest {
       }
     });
 
-    parser = new SurefireJavaParser(perspectives, javaResourceLocator);
+    parser = new SurefireJavaParser(perspectives, javaResourceLocator, new Settings());
   }
 
   @Test
@@ -127,6 +129,34 @@ public class SurefireJavaParserTest {
     verify(context, times(6)).saveMeasure(argThat(new IsResource(Scopes.FILE, Qualifiers.FILE)), eq(CoreMetrics.TEST_ERRORS), anyDouble());
   }
 
+  @Test
+  public void should_parse_reports_in_parallel() throws URISyntaxException {
+    SensorContext context = mockContext();
+
+    Settings settings = new Settings();
+    settings.setProperty(ReportThreads.REPORT_THREADS_PROPERTY, 3);
+    parser = new SurefireJavaParser(perspectives, javaResourceLocator, settings);
+    parser.collect(context, getDir("multipleReports"));
+
+    verify(context, times(6)).saveMeasure(argThat(new IsResource(Scopes.FILE, Qualifiers.FILE)), eq(CoreMetrics.TESTS), anyDouble());
+    verify(context).saveMeasure(argThat(new IsResource(Scopes.FILE, Qualifiers.FILE, "ch.hortis.sonar.mvn.mc.MetricsCollectorRegistryTest")), eq(CoreMetrics.TESTS), eq(4.0));
+  }
+
+  @Test
+  public void should_merge_inner_classes_parsed_in_parallel() throws URISyntaxException {
+    SensorContext context = mockContext();
+
+    Settings settings = new Settings();
+    settings.setProperty(ReportThreads.REPORT_THREADS_PROPERTY, 2);
+    parser = new SurefireJavaParser(perspectives, javaResourceLocator, settings);
+    parser.collect(context, getDir("nestedInnerClasses"));
+
+    verify(context).saveMeasure(
+        argThat(new IsResource(Scopes.FILE, Qualifiers.FILE, "org.sonar.plugins.surefire.NestedInnerTest")),
+        eq(CoreMetrics.TESTS),
+        eq(3.0));
+  }
+
   // SONAR-2841: if there's only a test suite report, then it should be read.
   @Test
   public void shouldUseTestSuiteReportIfAlone() throws URISyntaxException {
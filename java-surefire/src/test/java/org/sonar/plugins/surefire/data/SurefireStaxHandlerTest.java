@@ -106,6 +106,14 @@ public class SurefireStaxHandlerTest {
     assertThat(error.getName(), is("testTwo"));
   }
 
+  @Test
+  public void shouldTruncateStackTraces() throws XMLStreamException {
+    parse("errorsAndFailures.xml", 10);
+    UnitTestClassReport report = index.get("org.sonar.Foo");
+    assertThat(report.getResults().get(0).getStackTrace().length(), is(10));
+    assertThat(report.getResults().get(0).getMessage(), startsWith("expected"));
+  }
+
   @Test
   public void shouldSupportMultipleSuitesInSameReport() throws XMLStreamException {
     parse("multipleSuites.xml");
@@ -115,8 +123,12 @@ public class SurefireStaxHandlerTest {
   }
 
   private void parse(String path) throws XMLStreamException {
+    parse(path, 0);
+  }
+
+  private void parse(String path, int stackTraceMaxLength) throws XMLStreamException {
     File xml = TestUtils.getResource(getClass(), path);
-    SurefireStaxHandler staxParser = new SurefireStaxHandler(index);
+    SurefireStaxHandler staxParser = new SurefireStaxHandler(index, stackTraceMaxLength);
     StaxParser parser = new StaxParser(staxParser, false);
     parser.parse(xml);
   }
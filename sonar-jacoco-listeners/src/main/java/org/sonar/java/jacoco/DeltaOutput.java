@@ -0,0 +1,147 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.jacoco;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileLock;
+import java.util.Arrays;
+
+/**
+ * Appends to a file the execution data recorded by the JaCoCo agent between two boundaries of tests, restricted to the classes
+ * whose probes have been hit since the previous boundary. The file keeps the JaCoCo execution data format: each session only holds
+ * the classes covered during that session, and sessions without any covered class are not written.
+ */
+class DeltaOutput {
+
+  private static final byte BLOCK_HEADER = 0x01;
+  private static final byte BLOCK_SESSIONINFO = 0x10;
+  private static final byte BLOCK_EXECUTIONDATA = 0x11;
+  private static final int HEADER_LENGTH = 5;
+
+  private final File file;
+  private FileOutputStream out;
+  private long lastBoundary = System.currentTimeMillis();
+
+  DeltaOutput(File file) {
+    this.file = file;
+  }
+
+  /**
+   * @param executionData execution data recorded since the previous boundary, as returned by the JaCoCo agent
+   */
+  void write(String sessionId, byte[] executionData) throws IOException {
+    long now = System.currentTimeMillis();
+    ByteArrayOutputStream delta = new ByteArrayOutputStream();
+    byte[] header = copyCoveredClasses(executionData, delta);
+    if (delta.size() > 0) {
+      ByteArrayOutputStream block = new ByteArrayOutputStream(delta.size() + sessionId.length() + 32);
+      if (out == null) {
+        // file may have been written by other JVMs, so each of them starts its data with a header
+        block.write(header);
+      }
+      DataOutputStream sessionInfo = new DataOutputStream(block);
+      sessionInfo.writeByte(BLOCK_SESSIONINFO);
+      sessionInfo.writeUTF(sessionId);
+      sessionInfo.writeLong(lastBoundary);
+      sessionInfo.writeLong(now);
+      delta.writeTo(block);
+      append(block.toByteArray());
+    }
+    lastBoundary = now;
+  }
+
+  /**
+   * Copies execution data blocks of classes with at least one hit probe, without decoding their probes.
+   *
+   * @return header block of the execution data
+   */
+  private static byte[] copyCoveredClasses(byte[] data, ByteArrayOutputStream delta) throws IOException {
+    if (data.length < HEADER_LENGTH || data[0] != BLOCK_HEADER) {
+      throw new IOException("Invalid execution data.");
+    }
+    byte[] header = Arrays.copyOf(data, HEADER_LENGTH);
+    int position = 0;
+    while (position < data.length) {
+      int blockStart = position;
+      byte type = data[position++];
+      if (type == BLOCK_HEADER) {
+        position += HEADER_LENGTH - 1;
+      } else if (type == BLOCK_SESSIONINFO) {
+        position += 2 + readUnsignedShort(data, position) + 16;
+      } else if (type == BLOCK_EXECUTIONDATA) {
+        position += 8;
+        position += 2 + readUnsignedShort(data, position);
+        int probes = 0;
+        int shift = 0;
+        int b;
+        do {
+          b = data[position++] & 0xFF;
+          probes |= (b & 0x7F) << shift;
+          shift += 7;
+        } while ((b & 0x80) != 0);
+        int blockEnd = position + (probes + 7) / 8;
+        if (hasHits(data, position, blockEnd)) {
+          delta.write(data, blockStart, blockEnd - blockStart);
+        }
+        position = blockEnd;
+      } else {
+        throw new IOException(String.format("Unknown block type %x.", type));
+      }
+    }
+    return header;
+  }
+
+  private static int readUnsignedShort(byte[] data, int position) {
+    return ((data[position] & 0xFF) << 8) | (data[position + 1] & 0xFF);
+  }
+
+  private static boolean hasHits(byte[] data, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (data[i] != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void append(byte[] bytes) throws IOException {
+    if (out == null) {
+      out = new FileOutputStream(file, true);
+    }
+    // several forked JVMs may append to the same file
+    FileLock lock = out.getChannel().lock();
+    try {
+      out.write(bytes);
+    } finally {
+      lock.release();
+    }
+  }
+
+  void close() throws IOException {
+    if (out != null) {
+      out.close();
+    }
+  }
+
+}
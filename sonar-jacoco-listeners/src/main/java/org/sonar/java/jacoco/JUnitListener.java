@@ -24,6 +24,8 @@ import org.junit.runner.notification.RunListener;
 
 /**
  * JUnit listener that instructs JaCoCo to create one session per test.
+ * When the system property <tt>sonar.jacoco.deltaFile</tt> is set, sessions only hold the classes covered by their test
+ * and are written to the given file, which then holds the whole coverage of the tests.
  */
 public class JUnitListener extends RunListener {
 
@@ -22,13 +22,21 @@ package org.sonar.java.jacoco;
 import org.jacoco.agent.rt.IAgent;
 import org.jacoco.agent.rt.RT;
 
+import java.io.File;
 import java.io.IOException;
 
 class JacocoController {
 
+  /**
+   * System property giving the file in which only classes covered since the previous boundary of tests are recorded,
+   * instead of dumping coverage of all loaded classes through the JaCoCo agent.
+   */
+  static final String DELTA_FILE_PROPERTY = "sonar.jacoco.deltaFile";
+
   private static final String ERROR = "Unable to access JaCoCo Agent - make sure that you use JaCoCo and version not lower than 0.6.2.";
 
   private final IAgent agent;
+  private final DeltaOutput deltaOutput;
 
   private boolean testStarted;
 
@@ -42,8 +50,29 @@ class JacocoController {
   }
 
   private JacocoController() {
+    this(getAgent(), deltaOutput(System.getProperty(DELTA_FILE_PROPERTY)));
+    if (deltaOutput != null) {
+      Runtime.getRuntime().addShutdownHook(new Thread() {
+        @Override
+        public void run() {
+          onShutdown();
+        }
+      });
+    }
+  }
+
+  JacocoController(IAgent agent) {
+    this(agent, null);
+  }
+
+  JacocoController(IAgent agent, DeltaOutput deltaOutput) {
+    this.agent = agent;
+    this.deltaOutput = deltaOutput;
+  }
+
+  private static IAgent getAgent() {
     try {
-      this.agent = RT.getAgent();
+      return RT.getAgent();
     } catch (NoClassDefFoundError e) {
       throw new JacocoControllerError(ERROR, e);
     } catch (Exception e) {
@@ -51,8 +80,8 @@ class JacocoController {
     }
   }
 
-  JacocoController(IAgent agent) {
-    this.agent = agent;
+  private static DeltaOutput deltaOutput(String deltaFile) {
+    return deltaFile == null || deltaFile.trim().isEmpty() ? null : new DeltaOutput(new File(deltaFile.trim()));
   }
 
   public synchronized void onTestStart(String name) {
@@ -70,10 +99,26 @@ class JacocoController {
     testStarted = false;
   }
 
+  /**
+   * Records coverage after the last test, which has been reset in the agent and therefore is not part of its own dump at exit.
+   */
+  synchronized void onShutdown() {
+    dump("");
+    try {
+      deltaOutput.close();
+    } catch (IOException e) {
+      throw new JacocoControllerError(e);
+    }
+  }
+
   private void dump(String sessionId) {
-    agent.setSessionId(sessionId);
     try {
-      agent.dump(true);
+      if (deltaOutput != null) {
+        deltaOutput.write(sessionId, agent.getExecutionData(true));
+      } else {
+        agent.setSessionId(sessionId);
+        agent.dump(true);
+      }
     } catch (IOException e) {
       throw new JacocoControllerError(e);
     }
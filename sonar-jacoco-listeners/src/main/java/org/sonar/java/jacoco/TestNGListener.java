@@ -25,6 +25,7 @@ import org.testng.ITestResult;
 
 /**
  * TestNG and JUnit listener that instructs JaCoCo to create one session per test.
+ * See {@link JUnitListener} for recording of sessions in a separate file.
  */
 public class TestNGListener extends JUnitListener implements ITestListener {
 
@@ -0,0 +1,148 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.java.jacoco;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class DeltaOutputTest {
+
+  private static final byte[] HEADER = {0x01, (byte) 0xC0, (byte) 0xC0, 0x10, 0x07};
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  @Test
+  public void should_write_only_covered_classes() throws Exception {
+    File file = new File(temp.getRoot(), "deltas.exec");
+    DeltaOutput output = new DeltaOutput(file);
+    byte[] covered = executionData(2, "org/example/Covered", new boolean[] {false, true, false});
+    byte[] manyProbes = executionData(3, "org/example/ManyProbes", probes(200, 150));
+    output.write("Test test", agentData(covered, executionData(1, "org/example/NotCovered", new boolean[3]), manyProbes));
+    output.write("", agentData(executionData(1, "org/example/NotCovered", new boolean[3])));
+    output.write("Test other", agentData(covered));
+    output.close();
+
+    DataInputStream in = new DataInputStream(new FileInputStream(file));
+    try {
+      assertArrayEquals(HEADER, read(in, HEADER.length));
+      assertSession(in, "Test test");
+      assertArrayEquals(covered, read(in, covered.length));
+      assertArrayEquals(manyProbes, read(in, manyProbes.length));
+      assertSession(in, "Test other");
+      assertArrayEquals(covered, read(in, covered.length));
+      assertEquals(-1, in.read());
+    } finally {
+      in.close();
+    }
+  }
+
+  @Test
+  public void should_not_create_file_without_covered_classes() throws Exception {
+    File file = new File(temp.getRoot(), "deltas.exec");
+    DeltaOutput output = new DeltaOutput(file);
+    output.write("Test test", agentData(executionData(1, "org/example/NotCovered", new boolean[3])));
+    output.close();
+    assertEquals(false, file.exists());
+  }
+
+  @Test
+  public void should_fail_on_invalid_execution_data() throws Exception {
+    DeltaOutput output = new DeltaOutput(new File(temp.getRoot(), "deltas.exec"));
+    thrown.expect(IOException.class);
+    thrown.expectMessage("Invalid execution data.");
+    output.write("Test test", new byte[0]);
+  }
+
+  private static void assertSession(DataInputStream in, String sessionId) throws IOException {
+    assertEquals(0x10, in.readByte());
+    assertEquals(sessionId, in.readUTF());
+    long start = in.readLong();
+    long dump = in.readLong();
+    assertEquals(true, start <= dump);
+  }
+
+  private static byte[] read(DataInputStream in, int length) throws IOException {
+    byte[] result = new byte[length];
+    in.readFully(result);
+    return result;
+  }
+
+  private static boolean[] probes(int length, int covered) {
+    boolean[] probes = new boolean[length];
+    probes[covered] = true;
+    return probes;
+  }
+
+  /**
+   * @return data in the format of the JaCoCo agent: header, session of the agent and execution data of all classes
+   */
+  private static byte[] agentData(byte[]... classes) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    bytes.write(HEADER);
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeByte(0x10);
+    out.writeUTF("agent-session");
+    out.writeLong(1);
+    out.writeLong(2);
+    for (byte[] data : classes) {
+      bytes.write(data);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static byte[] executionData(long id, String name, boolean[] probes) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeByte(0x11);
+    out.writeLong(id);
+    out.writeUTF(name);
+    int length = probes.length;
+    while ((length & 0xFFFFFF80) != 0) {
+      out.writeByte((length & 0x7F) | 0x80);
+      length >>>= 7;
+    }
+    out.writeByte(length);
+    byte[] packed = new byte[(probes.length + 7) / 8];
+    for (int i = 0; i < probes.length; i++) {
+      if (probes[i]) {
+        packed[i / 8] |= 1 << (i % 8);
+      }
+    }
+    out.write(packed);
+    return bytes.toByteArray();
+  }
+
+}
@@ -33,6 +33,8 @@ import java.io.IOException;
 import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
@@ -69,6 +71,25 @@ public class JacocoControllerTest {
     verifyNoMoreInteractions(agent);
   }
 
+  @Test
+  public void should_write_deltas_instead_of_dumping() throws Exception {
+    DeltaOutput deltaOutput = mock(DeltaOutput.class);
+    byte[] executionData = new byte[] {0x01};
+    when(agent.getExecutionData(true)).thenReturn(executionData);
+    jacoco = new JacocoController(agent, deltaOutput);
+
+    jacoco.onTestStart("test");
+    jacoco.onTestFinish("test");
+    jacoco.onShutdown();
+
+    InOrder inOrder = Mockito.inOrder(deltaOutput);
+    inOrder.verify(deltaOutput).write("", executionData);
+    inOrder.verify(deltaOutput).write("test", executionData);
+    inOrder.verify(deltaOutput).write("", executionData);
+    inOrder.verify(deltaOutput).close();
+    verify(agent, never()).dump(anyBoolean());
+  }
+
   @Test
   public void should_throw_exception_when_dump_failed() throws Exception {
     doThrow(IOException.class).when(agent).dump(anyBoolean());
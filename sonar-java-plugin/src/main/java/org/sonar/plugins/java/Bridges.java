@@ -31,11 +31,14 @@ import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
 import org.sonar.java.JavaSquid;
 import org.sonar.java.SonarComponents;
+import org.sonar.java.ast.SourceFileListener;
 import org.sonar.java.bytecode.visitor.ResourceMapping;
 import org.sonar.plugins.java.bridges.ChecksBridge;
 import org.sonar.plugins.java.bridges.DesignBridge;
 import org.sonar.squidbridge.api.SourceFile;
 
+import java.io.File;
+
 public class Bridges {
 
   private static final Logger LOG = LoggerFactory.getLogger(Bridges.class);
@@ -61,6 +64,25 @@ public class Bridges {
     reportIssues(resourceMapping, noSonarFilter, checksBridge, project);
   }
 
+  /**
+   * @return listener reporting issues of each source file as soon as it is scanned, so that check messages, and the trees they might refer to,
+   * do not accumulate until the end of the analysis
+   */
+  public SourceFileListener issuesReporter(final Project project, SonarComponents sonarComponents, final NoSonarFilter noSonarFilter,
+    RulesProfile rulesProfile) {
+    final ChecksBridge checksBridge = new ChecksBridge(sonarComponents, rulesProfile);
+    return new SourceFileListener() {
+      @Override
+      public void sourceFileScanned(File file, SourceFile squidFile) {
+        org.sonar.api.resources.File sonarFile = org.sonar.api.resources.File.fromIOFile(file, project);
+        if (sonarFile != null) {
+          noSonarFilter.addResource(sonarFile, squidFile.getNoSonarTagLines());
+          checksBridge.reportIssues(squidFile, sonarFile);
+        }
+      }
+    };
+  }
+
   private void reportIssues(ResourceMapping resourceMapping, NoSonarFilter noSonarFilter, ChecksBridge checksBridge, Project project) {
     for (Resource directory : resourceMapping.directories()) {
       checksBridge.reportIssueForPackageInfo((Directory) directory, project);
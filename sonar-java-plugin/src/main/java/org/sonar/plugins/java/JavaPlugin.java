@@ -29,6 +29,7 @@ import org.sonar.java.DefaultJavaResourceLocator;
 import org.sonar.java.JavaClasspath;
 import org.sonar.java.JavaClasspathProperties;
 import org.sonar.java.JavaTestClasspath;
+import org.sonar.java.ReportThreads;
 import org.sonar.java.SonarComponents;
 import org.sonar.java.filters.SuppressWarningsFilter;
 import org.sonar.plugins.jacoco.JaCoCoExtensions;
@@ -44,6 +45,16 @@ public class JavaPlugin extends SonarPlugin {
   public static final String SQUID_ANALYSE_ACCESSORS_PROPERTY = "sonar.squid.analyse.property.accessors";
   public static final boolean SQUID_ANALYSE_ACCESSORS_DEFAULT_VALUE = true;
 
+  public static final String BYTECODE_CACHE_SIZE_PROPERTY = "sonar.java.bytecodeCacheSize";
+  public static final int BYTECODE_CACHE_SIZE_DEFAULT_VALUE = 64;
+
+  public static final String SCAN_THREADS_PROPERTY = "sonar.java.scanThreads";
+  public static final int SCAN_THREADS_DEFAULT_VALUE = 1;
+
+  public static final String ANALYSIS_CACHE_PROPERTY = "sonar.java.analysisCache";
+
+  public static final String CLASSPATH_INDEX_PROPERTY = "sonar.java.classpathIndex";
+
   @Override
   public List getExtensions() {
     ImmutableList.Builder<Object> builder = ImmutableList.builder();
@@ -74,6 +85,53 @@ public class JavaPlugin extends SonarPlugin {
             .type(PropertyType.BOOLEAN)
             .onQualifiers(Qualifiers.PROJECT)
             .build(),
+        PropertyDefinition.builder(JavaPlugin.BYTECODE_CACHE_SIZE_PROPERTY)
+            .defaultValue(JavaPlugin.BYTECODE_CACHE_SIZE_DEFAULT_VALUE + "")
+            .category(JAVA_CATEGORY)
+            .subCategory(GENERAL_SUBCATEGORY)
+            .name("Bytecode cache size")
+            .description("Maximal amount of memory, in megabytes, used to keep class files of the project classpath " +
+                "shared between the analyses of all the source files.")
+            .type(PropertyType.INTEGER)
+            .onQualifiers(Qualifiers.PROJECT)
+            .build(),
+        PropertyDefinition.builder(JavaPlugin.SCAN_THREADS_PROPERTY)
+            .defaultValue(JavaPlugin.SCAN_THREADS_DEFAULT_VALUE + "")
+            .category(JAVA_CATEGORY)
+            .subCategory(GENERAL_SUBCATEGORY)
+            .name("Scan threads")
+            .description("Number of threads used to parse source files and resolve their symbols, and to parse class files. " +
+                "Rules are always executed one file after another, so that results do not depend on this value.")
+            .type(PropertyType.INTEGER)
+            .onQualifiers(Qualifiers.PROJECT)
+            .build(),
+        PropertyDefinition.builder(ReportThreads.REPORT_THREADS_PROPERTY)
+            .category(JAVA_CATEGORY)
+            .subCategory(GENERAL_SUBCATEGORY)
+            .name("Report threads")
+            .description("Number of threads used to read JaCoCo and JUnit reports. Leave empty to use all available processors, " +
+                "set to 1 to read reports sequentially.")
+            .type(PropertyType.INTEGER)
+            .onQualifiers(Qualifiers.PROJECT)
+            .build(),
+        PropertyDefinition.builder(JavaPlugin.ANALYSIS_CACHE_PROPERTY)
+            .category(JAVA_CATEGORY)
+            .subCategory(GENERAL_SUBCATEGORY)
+            .name("Analysis cache")
+            .description("Path of the file, absolute or relative to the project base directory, in which results of main source files " +
+                "are kept between analyses. When set, only source files changed since the previous analysis, or depending on changed " +
+                "class files, are analyzed again. Leave empty to analyze all source files.")
+            .onQualifiers(Qualifiers.PROJECT)
+            .build(),
+        PropertyDefinition.builder(JavaPlugin.CLASSPATH_INDEX_PROPERTY)
+            .category(JAVA_CATEGORY)
+            .subCategory(GENERAL_SUBCATEGORY)
+            .name("Classpath index")
+            .description("Path of the file, absolute or relative to the project base directory, in which names of the classes of JAR files " +
+                "of the classpath are kept between analyses. When set, JAR files unchanged since the previous analysis are only opened " +
+                "when classes are read from them. Leave empty to open all JAR files.")
+            .onQualifiers(Qualifiers.PROJECT)
+            .build(),
         PropertyDefinition.builder(CoreProperties.DESIGN_SKIP_DESIGN_PROPERTY)
             .defaultValue(CoreProperties.DESIGN_SKIP_DESIGN_DEFAULT_VALUE + "")
             .category(JAVA_CATEGORY)
@@ -20,6 +20,7 @@
 package org.sonar.plugins.java;
 
 import com.google.common.collect.Lists;
+import org.apache.commons.lang.StringUtils;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.DependedUpon;
 import org.sonar.api.batch.DependsUpon;
@@ -41,6 +42,7 @@ import org.sonar.java.SonarComponents;
 import org.sonar.java.api.JavaUtils;
 import org.sonar.java.checks.CheckList;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.nio.charset.Charset;
 import java.util.Collections;
@@ -83,8 +85,10 @@ public class JavaSquidSensor implements Sensor {
     JavaConfiguration configuration = createConfiguration();
     Measurer measurer = new Measurer(project, context, configuration.separatesAccessorsFromMethods());
     JavaSquid squid = new JavaSquid(configuration, sonarComponents, measurer, javaResourceLocator, sonarComponents.checkClasses());
+    Bridges bridges = new Bridges(squid, settings);
+    squid.setSourceFileListener(bridges.issuesReporter(project, sonarComponents, noSonarFilter, profile));
     squid.scan(getSourceFiles(), getTestFiles(), getBytecodeFiles());
-    new Bridges(squid, settings).save(context, project, sonarComponents, javaResourceLocator.getResourceMapping(), noSonarFilter, profile);
+    bridges.save(context, project, sonarComponents, javaResourceLocator.getResourceMapping(), noSonarFilter, profile);
   }
 
   private Iterable<File> getSourceFiles() {
@@ -115,9 +119,30 @@ public class JavaSquidSensor implements Sensor {
     Charset charset = fs.encoding();
     JavaConfiguration conf = new JavaConfiguration(charset);
     conf.setSeparateAccessorsFromMethods(analyzePropertyAccessors);
+    if (settings.hasKey(JavaPlugin.BYTECODE_CACHE_SIZE_PROPERTY)) {
+      conf.setBytecodeCacheSize(settings.getLong(JavaPlugin.BYTECODE_CACHE_SIZE_PROPERTY) * 1024 * 1024);
+    }
+    if (settings.hasKey(JavaPlugin.SCAN_THREADS_PROPERTY)) {
+      conf.setScanThreads(Math.max(1, settings.getInt(JavaPlugin.SCAN_THREADS_PROPERTY)));
+    }
+    conf.setAnalysisCacheFile(fileFromProperty(JavaPlugin.ANALYSIS_CACHE_PROPERTY));
+    conf.setClasspathIndexFile(fileFromProperty(JavaPlugin.CLASSPATH_INDEX_PROPERTY));
     return conf;
   }
 
+  /**
+   * @return file set by the given property, resolved against the base directory of the project when relative, <tt>null</tt> if property is not set
+   */
+  @Nullable
+  private File fileFromProperty(String property) {
+    String path = settings.getString(property);
+    if (StringUtils.isBlank(path)) {
+      return null;
+    }
+    File file = new File(path.trim());
+    return file.isAbsolute() ? file : new File(fs.baseDir(), file.getPath());
+  }
+
   @Override
   public String toString() {
     return getClass().getSimpleName();